@@ -0,0 +1,224 @@
+/**
+ * Class implementing a cellular GA for the problem of Boolean functions. The
+ * individuals are placed on a two-dimensional torus, and each cell breeds a
+ * child from parents selected in its neighbourhood. The child replaces the
+ * individual of the cell if it is not worse. The cells of an update class
+ * breed in parallel, each one with its own random generator seeded by the
+ * main generator, so that a run does not depend on the number of threads.
+ */
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import boolfun.*;
+import genalg.*;
+
+public class CellularGABF {
+    
+    public static void main(String[] args) {
+        
+        if(args.length != 14) {
+            
+            System.err.println("\nUsage: java CellularGABF nvar rows cols "
+                    + "fiteval freqprint tournsize mutprob crossop shuffle bent moore synchronous threads seed");
+            System.err.println("\nwhere:");
+            System.err.println("- nvar is the number of variables of the boolean functions");
+            System.err.println("- rows and cols are the dimensions of the toroidal grid (population size = rows*cols)");
+            System.err.println("- fiteval is the maximum number of fitness evaluations");
+            System.err.println("- freqprint is the sampling frequency to print info on the population (once every freqprint sweeps of the grid)");
+            System.err.println("- tournsize is the size of the tournament for selection inside a neighbourhood");
+            System.err.println("- mutprob is the mutation probability");
+            System.err.println("- crossop is the code for the crossover operator "
+                    + "(0: one-point crossover, 1: balanced crossover with counters, 2: balanced crossover with zero-length maps, 3: balanced crossover with maps of 1s)");
+            System.err.println("- shuffle is a boolean flag specifying whether to shuffle the parents positions to be copied in balanced crossover operators");
+            System.err.println("- bent is a boolean flag specifying whether to evolve functions with the weight of bent functions (true) or balanced functions (false)");
+            System.err.println("- moore is a boolean flag specifying whether to use the Moore neighbourhood (true) or the von Neumann neighbourhood (false)");
+            System.err.println("- synchronous is a boolean flag specifying whether to update all cells at once (true) or with the checkerboard asynchronous model (false, requires even rows and cols)");
+            System.err.println("- threads is the number of threads used to breed and evaluate the cells (0: all available processors)");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable\n");
+            
+            System.exit(1);
+            
+        }
+        
+        //Read command-line parameters
+        int nvar = Integer.parseInt(args[0]);
+        int rows = Integer.parseInt(args[1]);
+        int cols = Integer.parseInt(args[2]);
+        int fiteval = Integer.parseInt(args[3]);
+        int freqprint = Integer.parseInt(args[4]);
+        int tournsize = Integer.parseInt(args[5]);
+        double mutprob = Double.parseDouble(args[6]);
+        int crossop = Integer.parseInt(args[7]);
+        boolean shuffle = Boolean.parseBoolean(args[8]);
+        boolean bent = Boolean.parseBoolean(args[9]);
+        boolean moore = Boolean.parseBoolean(args[10]);
+        boolean synchronous = Boolean.parseBoolean(args[11]);
+        int threads = Integer.parseInt(args[12]);
+        long seed = Long.parseLong(args[13]);
+        
+        boolean unbal;
+        
+        //Determine unbalancedness flag (only set it to true if the crossover is one-point)
+        if(crossop == 0) {
+            unbal = true;
+        } else {
+            unbal = false;
+        }
+        
+        if(!synchronous && ((rows % 2 != 0) || (cols % 2 != 0))) {
+            System.err.println("The checkerboard update requires an even number of rows and columns");
+            System.exit(1);
+        }
+        
+        //Initialize random number generator with the input seed
+        Random genrand = new Random(seed);
+        ForkJoinPool pool;
+        if(threads > 0) {
+            pool = new ForkJoinPool(threads);
+        } else {
+            pool = ForkJoinPool.commonPool();
+        }
+        
+        int popsize = rows*cols;
+        int tlength = (int)Math.pow(2, nvar);    //length of the boolean functions truth table, 2^nvar
+        int weight;                              //number of 1s in the truth tables
+        if(bent) {
+            weight = (int)Math.pow(2, nvar-1) - (int)Math.pow(2, (nvar/2)-1);
+        } else {
+            weight = tlength/2;
+        }
+        int sweeps = fiteval/popsize;            //each sweep of the grid costs popsize fitness evaluations
+        
+        int[][] neighs = CellularTools.buildNeighborhoods(rows, cols, moore);
+        int[][] classes = CellularTools.buildUpdateClasses(rows, cols, moore, synchronous);
+        
+        //Step 1: generate the initial grid of boolean functions of nvar
+        //variables (unbalanced if we are using one-point crossover, with fixed
+        //weight otherwise), evaluate their fitness, and find best individual
+        boolean[][] population;
+        if(unbal) {
+            population = GeneticTools.createUnbalPop(tlength, popsize, genrand);
+        } else {
+            if(bent) {
+                population = GeneticTools.createUnbalPopBent(tlength, nvar, popsize, genrand);
+            } else {
+                population = GeneticTools.createBalPop(tlength, popsize, genrand);
+            }
+        }
+        double[] fitnesses = FitnessFunctions.compFitnessBFPopPar(population, nvar, unbal, pool);
+        int bestpos = GeneticTools.findMaxFitIndivPos(fitnesses);
+        double bestfit = fitnesses[bestpos];
+        
+        //Print initial information
+        System.out.println("GA Info:");
+        System.out.println("\n- Number of variables: "+nvar);
+        System.out.println("- Grid: "+rows+" x "+cols);
+        System.out.println("- Fitness evaluations: "+fiteval);
+        System.out.println("- Sampling frequency: "+freqprint);
+        System.out.println("- Tournament size: "+tournsize);
+        System.out.println("- Mutation probability: "+mutprob);
+        System.out.println("- Crossover Operator: "+crossop);
+        System.out.println("- Shuffle parents positions: "+shuffle);
+        System.out.println("- Bent weight: "+bent);
+        System.out.println("- Moore neighbourhood: "+moore);
+        System.out.println("- Synchronous update: "+synchronous);
+        System.out.println("- Threads: "+pool.getParallelism());
+        System.out.println("Seed: "+seed);
+        
+        double avgf = 0.0;
+        for(int l=0; l<fitnesses.length; l++) {
+            avgf += fitnesses[l];
+        }
+        avgf /= fitnesses.length;
+        System.out.println("Best fitness in initial population: "+bestfit);
+        System.out.println("Average fitness in initial population: "+avgf);
+        System.out.println("Best initial individual: Function "+BinTools.bin2DecBig(population[bestpos]));
+        
+        System.out.println("Sweep\tEvaluations\tBest fit\tAvg fit");
+        
+        //Step 2: sweep the grid until fiteval evaluations are done
+        for(int sw=1; sw<=sweeps; sw++) {
+            
+            for(int cl=0; cl<classes.length; cl++) {
+                
+                int[] cells = classes[cl];
+                
+                //Step 2a: draw the seeds of the cells of the class from the
+                //main generator
+                long[] seeds = new long[cells.length];
+                for(int i=0; i<cells.length; i++) {
+                    seeds[i] = genrand.nextLong();
+                }
+                
+                //Step 2b: each cell of the class selects two parents in its
+                //neighbourhood, breeds and evaluates a child. The cells of a
+                //class do not read each other, hence they run in parallel
+                boolean[][] curpop = population;
+                double[] curfit = fitnesses;
+                boolean[][] children = new boolean[cells.length][];
+                double[] childfit = FitnessFunctions.compFitnessBatchPar(cells.length, i -> {
+                    
+                    Random cellrand = new Random(seeds[i]);
+                    int[] parents = CellularTools.localTournSelection(neighs[cells[i]],
+                            curfit, tournsize, cellrand, true);
+                    boolean[] child = CrossoverOperators.crossoverBF(curpop[parents[0]],
+                            curpop[parents[1]], weight, crossop, shuffle, cellrand);
+                    
+                    if(crossop == 0) {
+                        MutationOperators.flipMutation(cellrand, child, mutprob);
+                    } else {
+                        MutationOperators.swapMutation(cellrand, child, mutprob);
+                    }
+                    
+                    children[i] = child;
+                    return FitnessFunctions.compFitnessBF(child, nvar, unbal);
+                    
+                }, pool);
+                
+                //Step 2c: replace each cell with its child if the latter is
+                //not worse. The best individual is never replaced by a worse one
+                for(int i=0; i<cells.length; i++) {
+                    
+                    if(childfit[i] >= fitnesses[cells[i]]) {
+                        
+                        population[cells[i]] = children[i];
+                        fitnesses[cells[i]] = childfit[i];
+                        
+                        if(childfit[i] > bestfit) {
+                            bestpos = cells[i];
+                            bestfit = childfit[i];
+                        }
+                        
+                    }
+                    
+                }
+                
+            }
+            
+            if(sw%freqprint == 0) {
+                avgf = 0.0;
+                for(int l=0; l<fitnesses.length; l++) {
+                    avgf += fitnesses[l];
+                }
+                avgf /= fitnesses.length;
+                System.out.println(sw+"\t"+(sw*popsize)+"\t"+bestfit+"\t"+avgf);
+            }
+            
+        }
+        
+        //Print final info
+        avgf = 0.0;
+        for(int l=0; l<fitnesses.length; l++) {
+            avgf += fitnesses[l];
+        }
+        avgf /= fitnesses.length;
+        System.out.println("Best fitness in final population: "+bestfit);
+        System.out.println("Average fitness in final population: "+avgf);
+        System.out.println("Best final individual: Function "+BinTools.bin2DecBig(population[bestpos]));
+        System.out.println("Best final individual HW: "+BinTools.computeHW(population[bestpos]));
+        
+        pool.shutdown();
+        
+    }
+    
+}
@@ -0,0 +1,209 @@
+/**
+ * Class implementing a cellular GA for the problem of Orthogonal Arrays. The
+ * individuals are placed on a two-dimensional torus, and each cell breeds a
+ * child from parents selected in its neighbourhood. The child replaces the
+ * individual of the cell if it is not worse. The cells of an update class
+ * breed in parallel, each one with its own random generator seeded by the
+ * main generator, so that a run does not depend on the number of threads.
+ */
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import boolfun.*;
+import genalg.*;
+
+public class CellularGAOA {
+    
+    public static void main(String[] args) {
+        
+        //Check number of command line arguments
+        if(args.length != 16) {
+            
+            System.err.println("\nUsage: java CellularGAOA nvar k t lambda p "
+                    + "rows cols fiteval tournsize mutprob crossop shuffle moore synchronous threads seed");
+            System.err.println("\nwhere:");
+            System.err.println("- nvar is the number of variables of the boolean functions (N = 2^n)");
+            System.err.println("- k is the number of columns of the OA");
+            System.err.println("- t is the strength of the OA");
+            System.err.println("- lambda is the index of the OA (N = lambda * 2^t)");
+            System.err.println("- p is the exponent of the L^p norm");
+            System.err.println("- rows and cols are the dimensions of the toroidal grid (population size = rows*cols)");
+            System.err.println("- fiteval is the maximum number of fitness evaluations");
+            System.err.println("- tournsize is the size of the tournament for selection inside a neighbourhood");
+            System.err.println("- mutprob is the mutation probability");
+            System.err.println("- crossop is the code for the crossover operator "
+                    + "(0: one-point crossover, 1: balanced crossover with counters, 2: balanced crossover with zero-length maps, 3: balanced crossover with maps of 1s)");
+            System.err.println("- shuffle is a boolean flag specifying whether to shuffle the parents positions to be copied in balanced crossover operators");
+            System.err.println("- moore is a boolean flag specifying whether to use the Moore neighbourhood (true) or the von Neumann neighbourhood (false)");
+            System.err.println("- synchronous is a boolean flag specifying whether to update all cells at once (true) or with the checkerboard asynchronous model (false, requires even rows and cols)");
+            System.err.println("- threads is the number of threads used to breed and evaluate the cells (0: all available processors)");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable\n");
+            
+            System.exit(1);
+            
+        }
+        
+        //Read command-line parameters
+        int nvar = Integer.parseInt(args[0]);
+        int k = Integer.parseInt(args[1]);
+        int t = Integer.parseInt(args[2]);
+        int lambda = Integer.parseInt(args[3]);
+        int p = Integer.parseInt(args[4]);
+        int rows = Integer.parseInt(args[5]);
+        int cols = Integer.parseInt(args[6]);
+        int fiteval = Integer.parseInt(args[7]);
+        int tournsize = Integer.parseInt(args[8]);
+        double mutprob = Double.parseDouble(args[9]);
+        int crossop = Integer.parseInt(args[10]);
+        boolean shuffle = Boolean.parseBoolean(args[11]);
+        boolean moore = Boolean.parseBoolean(args[12]);
+        boolean synchronous = Boolean.parseBoolean(args[13]);
+        int threads = Integer.parseInt(args[14]);
+        long seed = Long.parseLong(args[15]);
+        
+        boolean unbal;
+        
+        //Determine unbalancedness flag (only set it to true if the crossover is one-point)
+        if(crossop == 0) {
+            unbal = true;
+        } else {
+            unbal = false;
+        }
+        
+        if(!synchronous && ((rows % 2 != 0) || (cols % 2 != 0))) {
+            System.err.println("The checkerboard update requires an even number of rows and columns");
+            System.exit(1);
+        }
+        
+        //Initialize random number generator with the input seed
+        Random genrand = new Random(seed);
+        ForkJoinPool pool;
+        if(threads > 0) {
+            pool = new ForkJoinPool(threads);
+        } else {
+            pool = ForkJoinPool.commonPool();
+        }
+        
+        int popsize = rows*cols;
+        int N = (int)Math.pow(2, nvar);    //length of the boolean functions truth table (== number of rows in the OA), 2^nvar
+        int sweeps = fiteval/popsize;      //each sweep of the grid costs popsize fitness evaluations
+        
+        int[][] neighs = CellularTools.buildNeighborhoods(rows, cols, moore);
+        int[][] classes = CellularTools.buildUpdateClasses(rows, cols, moore, synchronous);
+        
+        //Step 1: generate the initial grid of boolean matrices of size Nxk.
+        //Each column is a boolean function of nvar variables (unbalanced if we
+        //are using one-point crossover, balanced otherwise).
+        boolean[][][] population;
+        if(unbal) {
+            population = GeneticTools.createUnbalOAPop(popsize, N, k, genrand);
+        } else {
+            population = GeneticTools.createBalOAPop(popsize, N, k, genrand);
+        }
+        double[] fitnesses = FitnessFunctions.compFitnessOAPopPar(population, t, lambda, p, pool);
+        
+        //Remember that this problem requires minimizing the fitness function
+        int bestpos = GeneticTools.findMinFitIndivPos(fitnesses);
+        double bestfit = fitnesses[bestpos];
+        
+        //Print initial info
+        System.out.println("GA Info:");
+        System.out.println("\n- Number of variables: "+nvar);
+        System.out.println("- OA Profile: ("+N+", "+k+", "+t+", "+lambda+")");
+        System.out.println("- Grid: "+rows+" x "+cols);
+        System.out.println("- Fitness evaluations: "+fiteval);
+        System.out.println("- Tournament size: "+tournsize);
+        System.out.println("- Mutation probability: "+mutprob);
+        System.out.println("- Crossover Operator: "+crossop);
+        System.out.println("- Shuffle parents positions: "+shuffle);
+        System.out.println("- Moore neighbourhood: "+moore);
+        System.out.println("- Synchronous update: "+synchronous);
+        System.out.println("- Threads: "+pool.getParallelism());
+        System.out.println("- Seed: "+seed);
+        
+        System.out.println("Best fitness in initial population: "+bestfit);
+        
+        //Step 2: sweep the grid until fiteval evaluations are done, or until
+        //an OA (fitness 0) is found
+        int sw = 0;
+        while(sw < sweeps && bestfit > 0) {
+            
+            sw++;
+            
+            for(int cl=0; cl<classes.length; cl++) {
+                
+                int[] cells = classes[cl];
+                
+                //Step 2a: draw the seeds of the cells of the class from the
+                //main generator
+                long[] seeds = new long[cells.length];
+                for(int i=0; i<cells.length; i++) {
+                    seeds[i] = genrand.nextLong();
+                }
+                
+                //Step 2b: each cell of the class selects two parents in its
+                //neighbourhood, breeds and evaluates a child. The cells of a
+                //class do not read each other, hence they run in parallel
+                boolean[][][] curpop = population;
+                double[] curfit = fitnesses;
+                boolean[][][] children = new boolean[cells.length][][];
+                double[] childfit = FitnessFunctions.compFitnessBatchPar(cells.length, i -> {
+                    
+                    Random cellrand = new Random(seeds[i]);
+                    int[] parents = CellularTools.localTournSelection(neighs[cells[i]],
+                            curfit, tournsize, cellrand, false);
+                    boolean[][] child = CrossoverOperators.crossoverOA(
+                            curpop[parents[0]], curpop[parents[1]], crossop,
+                            shuffle, cellrand);
+                    MutationOperators.mutateOA(cellrand, child, mutprob, unbal);
+                    
+                    children[i] = child;
+                    return FitnessFunctions.compFitnessOA(child, t, lambda, p);
+                    
+                }, pool);
+                
+                //Step 2c: replace each cell with its child if the latter is
+                //not worse. The best individual is never replaced by a worse one
+                for(int i=0; i<cells.length; i++) {
+                    
+                    if(childfit[i] <= fitnesses[cells[i]]) {
+                        
+                        population[cells[i]] = children[i];
+                        fitnesses[cells[i]] = childfit[i];
+                        
+                        if(childfit[i] < bestfit) {
+                            bestpos = cells[i];
+                            bestfit = childfit[i];
+                        }
+                        
+                    }
+                    
+                }
+                
+            }
+            
+        }
+        
+        System.out.println("Sweeps: "+sw);
+        System.out.println("Fitness evaluations: "+(sw*popsize));
+        System.out.println("Best fitness in final population: "+bestfit);
+        System.out.println("Best final individual:");
+        for(int i=0; i<N; i++) {
+            
+            for(int j=0; j<k; j++) {
+                
+                System.out.print(BinTools.singleBool2Bin(population[bestpos][i][j])+" ");
+                
+            }
+            
+            System.out.println("");
+            
+        }
+        
+        System.out.println("");
+        
+        pool.shutdown();
+        
+    }
+    
+}
@@ -0,0 +1,181 @@
+/**
+ * Class implementing a generational (mu+lambda) GA for the problem of
+ * Orthogonal Arrays. In each generation lambda children are bred from the
+ * current population and evaluated as a single batch in parallel.
+ */
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import boolfun.*;
+import genalg.*;
+
+public class GenerationalGAOA {
+    
+    public static void main(String[] args) {
+        
+        //Check number of command line arguments
+        if(args.length != 14) {
+            
+            System.err.println("\nUsage: java GenerationalGAOA nvar k t lambda p "
+                    + "popsize offspring fiteval tournsize mutprob crossop shuffle threads seed");
+            System.err.println("\nwhere:");
+            System.err.println("- nvar is the number of variables of the boolean functions (N = 2^n)");
+            System.err.println("- k is the number of columns of the OA");
+            System.err.println("- t is the strength of the OA");
+            System.err.println("- lambda is the index of the OA (N = lambda * 2^t)");
+            System.err.println("- p is the exponent of the L^p norm");
+            System.err.println("- popsize is the size of the population (mu)");
+            System.err.println("- offspring is the number of children bred and evaluated in each generation");
+            System.err.println("- fiteval is the maximum number of fitness evaluations");
+            System.err.println("- tournsize is the size of the tournament for selection");
+            System.err.println("- mutprob is the mutation probability");
+            System.err.println("- crossop is the code for the crossover operator "
+                    + "(0: one-point crossover, 1: balanced crossover with counters, 2: balanced crossover with zero-length maps, 3: balanced crossover with maps of 1s)");
+            System.err.println("- shuffle is a boolean flag specifying whether to shuffle the parents positions to be copied in balanced crossover operators");
+            System.err.println("- threads is the number of threads used to evaluate the children (0: all available processors)");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable\n");
+            
+            System.exit(1);
+            
+        }
+        
+        //Read command-line parameters
+        int nvar = Integer.parseInt(args[0]);
+        int k = Integer.parseInt(args[1]);
+        int t = Integer.parseInt(args[2]);
+        int lambda = Integer.parseInt(args[3]);
+        int p = Integer.parseInt(args[4]);
+        int popsize = Integer.parseInt(args[5]);
+        int offspring = Integer.parseInt(args[6]);
+        int fiteval = Integer.parseInt(args[7]);
+        int tournsize = Integer.parseInt(args[8]);
+        double mutprob = Double.parseDouble(args[9]);
+        int crossop = Integer.parseInt(args[10]);
+        boolean shuffle = Boolean.parseBoolean(args[11]);
+        int threads = Integer.parseInt(args[12]);
+        long seed = Long.parseLong(args[13]);
+        
+        boolean unbal;
+        
+        //Determine unbalancedness flag (only set it to true if the crossover is one-point)
+        if(crossop == 0) {
+            unbal = true;
+        } else {
+            unbal = false;
+        }
+        
+        //Initialize random number generator with the input seed. The random
+        //generator is used only by the main thread (selection, crossover and
+        //mutation), hence the run does not depend on the number of threads
+        Random genrand = new Random(seed);
+        ForkJoinPool pool;
+        if(threads > 0) {
+            pool = new ForkJoinPool(threads);
+        } else {
+            pool = ForkJoinPool.commonPool();
+        }
+        
+        int N = (int)Math.pow(2, nvar);    //length of the boolean functions truth table (== number of rows in the OA), 2^nvar
+        int generations = fiteval/offspring;     //each generation costs offspring fitness evaluations
+        
+        //Step 1: generate initial population of boolean matrices of size Nxk.
+        //Each column is a boolean function of nvar variables (unbalanced if we
+        //are using one-point crossover, balanced otherwise).
+        boolean[][][] population;
+        if(unbal) {
+            population = GeneticTools.createUnbalOAPop(popsize, N, k, genrand);
+        } else {
+            population = GeneticTools.createBalOAPop(popsize, N, k, genrand);
+        }
+        double[] fitnesses = FitnessFunctions.compFitnessOAPopPar(population, t, lambda, p, pool);
+        
+        //Remember that this problem requires minimizing the fitness function
+        int bestpos = GeneticTools.findMinFitIndivPos(fitnesses);
+        double bestfit = fitnesses[bestpos];
+        
+        //Print initial info
+        System.out.println("GA Info:");
+        System.out.println("\n- Number of variables: "+nvar);
+        System.out.println("- OA Profile: ("+N+", "+k+", "+t+", "+lambda+")");
+        System.out.println("- Population size: "+popsize);
+        System.out.println("- Children per generation: "+offspring);
+        System.out.println("- Fitness evaluations: "+fiteval);
+        System.out.println("- Tournament size: "+tournsize);
+        System.out.println("- Mutation probability: "+mutprob);
+        System.out.println("- Crossover Operator: "+crossop);
+        System.out.println("- Shuffle parents positions: "+shuffle);
+        System.out.println("- Evaluation threads: "+pool.getParallelism());
+        System.out.println("- Seed: "+seed);
+        
+        System.out.println("Best fitness in initial population: "+bestfit);
+        
+        //Step 2: Iterate the generational GA until fiteval evaluations are
+        //done, or until an OA (fitness 0) is found
+        int g = 0;
+        while(g < generations && bestfit > 0) {
+            
+            g++;
+            
+            //Step 2a: breed the children by tournament selection, crossover
+            //and mutation. Since the fitness has to be minimized, the
+            //objective flag of the tournament is set to false
+            boolean[][][] children = new boolean[offspring][][];
+            for(int c=0; c<offspring; c++) {
+                
+                int[] candpos = GeneticTools.tournSelectionPop(popsize, fitnesses,
+                        tournsize, genrand, false);
+                children[c] = CrossoverOperators.crossoverOA(
+                        population[candpos[0]], population[candpos[1]], crossop,
+                        shuffle, genrand);
+                MutationOperators.mutateOA(genrand, children[c], mutprob, unbal);
+                
+            }
+            
+            //Step 2b: evaluate the whole batch of children in parallel
+            double[] childfit = FitnessFunctions.compFitnessOAPopPar(children, t, lambda, p, pool);
+            
+            //Step 2c: (mu+lambda) elitist survivor selection
+            int[] survivors = GeneticTools.plusSelection(fitnesses, childfit, false);
+            boolean[][][] newpop = new boolean[popsize][][];
+            double[] newfit = new double[popsize];
+            for(int s=0; s<popsize; s++) {
+                if(survivors[s] < popsize) {
+                    newpop[s] = population[survivors[s]];
+                    newfit[s] = fitnesses[survivors[s]];
+                } else {
+                    newpop[s] = children[survivors[s]-popsize];
+                    newfit[s] = childfit[survivors[s]-popsize];
+                }
+            }
+            population = newpop;
+            fitnesses = newfit;
+            
+            //Survivors are sorted from best to worst
+            bestpos = 0;
+            bestfit = fitnesses[0];
+            
+        }
+        
+        System.out.println("Generations: "+g);
+        System.out.println("Fitness evaluations: "+(g*offspring));
+        System.out.println("Best fitness in final population: "+bestfit);
+        System.out.println("Best final individual:");
+        for(int i=0; i<N; i++) {
+            
+            for(int j=0; j<k; j++) {
+                
+                System.out.print(BinTools.singleBool2Bin(population[bestpos][i][j])+" ");
+                
+            }
+            
+            System.out.println("");
+            
+        }
+        
+        System.out.println("");
+        
+        pool.shutdown();
+        
+    }
+    
+}
@@ -0,0 +1,205 @@
+/**
+ * Class implementing a generational (mu+lambda) GA for the problem of
+ * Weightwise Perfectly Balanced (WPB) Boolean functions. In each generation
+ * lambda children are bred from the current population and evaluated as a
+ * single batch in parallel.
+ */
+
+import boolfun.*;
+import genalg.*;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class GenerationalGAWPB {
+    
+    public static void main(String[] args) {
+        
+        if(args.length != 13) {
+            
+            System.err.println("\nUsage: java GenerationalGAWPB nvar popsize "
+                    + "lambda fiteval fitfun freqprint tournsize mutprob crossop shuffle unbal threads seed");
+            System.err.println("\nwhere:");
+            System.err.println("- nvar is the number of variables of the boolean functions");
+            System.err.println("- popsize is the size of the population (mu)");
+            System.err.println("- lambda is the number of children bred and evaluated in each generation");
+            System.err.println("- fiteval is the maximum number of fitness evaluations");
+            System.err.println("- fitfun is the fitness function to be maximized (false: sum nonlinearity, true: min nonlinearity)");
+            System.err.println("- freqprint is the sampling frequency to print info on the population (once every freqprint generations)");
+            System.err.println("- tournsize is the size of the tournament for selection");
+            System.err.println("- mutprob is the mutation probability");
+            System.err.println("- crossop is the code for the crossover operator "
+                    + "(0: one-point crossover, 1: balanced crossover with counters, 2: balanced crossover with zero-length maps, 3: balanced crossover with maps of 1s)");
+            System.err.println("- shuffle is a boolean flag specifying whether to shuffle the parents positions to be copied in balanced crossover operators");
+            System.err.println("- unbal is a boolean flag to specify whether unbalancedness penalty factor must be considered in the fitness function computation or not");
+            System.err.println("- threads is the number of threads used to evaluate the children (0: all available processors)");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable\n");
+            
+            System.exit(1);
+            
+        }
+        
+        //Read command-line parameters
+        int nvar = Integer.parseInt(args[0]);
+        int popsize = Integer.parseInt(args[1]);
+        int lambda = Integer.parseInt(args[2]);
+        int fiteval = Integer.parseInt(args[3]);
+        boolean fitfunc = Boolean.parseBoolean(args[4]);
+        int freqprint = Integer.parseInt(args[5]);
+        int tournsize = Integer.parseInt(args[6]);
+        double mutprob = Double.parseDouble(args[7]);
+        int crossop = Integer.parseInt(args[8]);
+        boolean shuffle = Boolean.parseBoolean(args[9]);
+        boolean unbal = Boolean.parseBoolean(args[10]);
+        int threads = Integer.parseInt(args[11]);
+        long seed = Long.parseLong(args[12]);
+        
+        //Initialize random number generator with the input seed. The random
+        //generator is used only by the main thread (selection, crossover and
+        //mutation), hence the run does not depend on the number of threads
+        Random genrand = new Random(seed);
+        ForkJoinPool pool;
+        if(threads > 0) {
+            pool = new ForkJoinPool(threads);
+        } else {
+            pool = ForkJoinPool.commonPool();
+        }
+        
+        int flength = (int)Math.pow(2, nvar);    //length of the boolean functions truth table, 2^nvar
+        int[] sizes = CombTools.allBinCoeffs(nvar);
+        boolean[][][] inmat = CombTools.genBinCombsMatrix(nvar, sizes);
+        int generations = fiteval/lambda;        //each generation costs lambda fitness evaluations
+        
+        //Step 1: generate initial population of boolean functions of nvar
+        //variables (random if we use one-point crossover, WPB if balanced crossover
+        //are used), evaluate their fitness, and find best individual
+        boolean[][] population;
+        if(unbal) {
+            population = GeneticTools.createUnbalPop(flength, popsize, genrand);
+        } else {
+            population = GeneticTools.createWPBPop(flength, popsize, inmat, genrand);
+        }
+        double[] fitnesses = FitnessFunctions.compFitnessWPBFuncPopPar(population,
+                nvar, inmat, sizes, unbal, fitfunc, pool);
+        int bestpos = GeneticTools.findMaxFitIndivPos(fitnesses);
+        double bestfit = fitnesses[bestpos];
+        
+        //Print initial information
+        System.out.println("GA Info:");
+        System.out.println("\n- Number of variables: "+nvar);
+        System.out.println("- Population size: "+popsize);
+        System.out.println("- Children per generation: "+lambda);
+        System.out.println("- Fitness evaluations: "+fiteval);
+        System.out.print("- Fitness function: ");
+        if(fitfunc && unbal) {
+            System.out.println("delta_pen * min(nl(f)) - pen(f)");
+        } else {
+            if(fitfunc && !unbal) {
+                System.out.println("min(nl(f)");
+            } else {
+                if(!fitfunc && unbal) {
+                    System.out.println("delta_pen * sum(nl(f)) - pen(f)");
+                } else {
+                    System.out.println("sum(nl(f))");
+                }
+            }
+        }
+        System.out.println("- Sampling frequency: "+freqprint);
+        System.out.println("- Tournament size: "+tournsize);
+        System.out.println("- Mutation probability: "+mutprob);
+        System.out.println("- Crossover Operator: "+crossop);
+        System.out.println("- Shuffle parents positions: "+shuffle);
+        System.out.println("- Evaluation threads: "+pool.getParallelism());
+        System.out.println("- Seed: "+seed);
+        
+        //Print initial info
+        double avgf = 0.0;
+        for(int l=0; l<fitnesses.length; l++) {
+            avgf += fitnesses[l];
+        }
+        avgf /= fitnesses.length;
+        System.out.println("\nBest fitness in initial population: "+bestfit);
+        System.out.println("Average fitness in initial population: "+avgf);
+        System.out.println("Best initial individual: Function "+BinTools.bin2DecBig(population[bestpos]));
+        
+        System.out.println("Generation\tEvaluations\tBest fit\tAvg fit");
+        
+        //Step 2: Iterate the generational GA until fiteval evaluations are done
+        for(int g=1; g<=generations; g++) {
+            
+            //Step 2a: breed lambda children by tournament selection, and
+            //crossover (which also applies the mutation step)
+            boolean[][] children = new boolean[lambda][];
+            for(int c=0; c<lambda; c++) {
+                
+                int[] candpos = GeneticTools.tournSelectionPop(popsize, fitnesses, tournsize, genrand, true);
+                children[c] = CrossoverOperators.crossoverWPB(population[candpos[0]],
+                        population[candpos[1]], inmat, crossop, shuffle, genrand, mutprob);
+                
+            }
+            
+            //Step 2b: evaluate the whole batch of children in parallel
+            double[] childfit = FitnessFunctions.compFitnessWPBFuncPopPar(children,
+                    nvar, inmat, sizes, unbal, fitfunc, pool);
+            
+            //Step 2c: (mu+lambda) elitist survivor selection
+            int[] survivors = GeneticTools.plusSelection(fitnesses, childfit, true);
+            boolean[][] newpop = new boolean[popsize][];
+            double[] newfit = new double[popsize];
+            for(int s=0; s<popsize; s++) {
+                if(survivors[s] < popsize) {
+                    newpop[s] = population[survivors[s]];
+                    newfit[s] = fitnesses[survivors[s]];
+                } else {
+                    newpop[s] = children[survivors[s]-popsize];
+                    newfit[s] = childfit[survivors[s]-popsize];
+                }
+            }
+            population = newpop;
+            fitnesses = newfit;
+            
+            //Survivors are sorted from best to worst
+            bestpos = 0;
+            bestfit = fitnesses[0];
+            
+            if(g%freqprint == 0) {
+                avgf = 0.0;
+                for(int l=0; l<fitnesses.length; l++) {
+                    avgf += fitnesses[l];
+                }
+                avgf /= fitnesses.length;
+                System.out.println(g+"\t"+(g*lambda)+"\t"+bestfit+"\t"+avgf);
+            }
+            
+        }
+        
+        //Print final info
+        avgf = 0.0;
+        for(int l=0; l<fitnesses.length; l++) {
+            avgf += fitnesses[l];
+        }
+        avgf /= fitnesses.length;
+        System.out.println("Best fitness in final population: "+bestfit);
+        System.out.println("Average fitness in final population: "+avgf);
+        System.out.println("Best final individual: Function "+BinTools.bin2DecBig(population[bestpos]));
+        
+        int[][] bestreswt = BoolTransf.resWalshTransforms(population[bestpos], nvar, inmat);
+        int[] bestnls = BoolTransf.compResNl(nvar, bestreswt, sizes);
+        int[] bestunb = BoolTransf.compResUnb(nvar, population[bestpos], inmat, sizes);
+        
+        System.out.print("Nonlinearities: ");
+        for(int i=0; i<bestnls.length; i++) {
+            System.out.print(bestnls[i]+" ");
+        }
+        System.out.println("");
+        
+        System.out.print("Unbalancedness: ");
+        for(int i=0; i<bestunb.length; i++) {
+            System.out.print(bestunb[i]+" ");
+        }
+        System.out.println("");
+        
+        pool.shutdown();
+        
+    }
+    
+}
@@ -0,0 +1,259 @@
+/**
+ * Class implementing a steady state GA for the problem of Boolean functions
+ * as an island of a distributed island model. Several islands run as separate
+ * processes and periodically exchange their best individuals over TCP through
+ * a MigrationNode. Migration is asynchronous: an island never waits for its
+ * peers, and keeps evolving if one of them crashes or is not started yet.
+ */
+
+import java.io.IOException;
+import java.util.Random;
+import boolfun.*;
+import genalg.*;
+import island.MigrationNode;
+
+public class IslandGABF {
+    
+    public static void main(String[] args) {
+        
+        if(args.length != 13) {
+            
+            System.err.println("\nUsage: java IslandGABF nvar popsize "
+                    + "fiteval freqprint tournsize mutprob crossop shuffle seed port peers migfreq migsize");
+            System.err.println("\nwhere:");
+            System.err.println("- nvar is the number of variables of the boolean functions");
+            System.err.println("- popsize is the size of the population");
+            System.err.println("- fiteval is the maximum number of fitness evaluations");
+            System.err.println("- freqprint is the sampling frequency to print info on the population (once every freqprint fitness evaluations)");
+            System.err.println("- tournsize is the size of the tournament for selection");
+            System.err.println("- mutprob is the mutation probability");
+            System.err.println("- crossop is the code for the crossover operator "
+                    + "(0: one-point crossover, 1: balanced crossover with counters, 2: balanced crossover with zero-length maps, 3: balanced crossover with maps of 1s)");
+            System.err.println("- shuffle is a boolean flag specifying whether to shuffle the parents positions to be copied in balanced crossover operators");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable");
+            System.err.println("- port is the TCP port on which the island receives migrants");
+            System.err.println("- peers is the comma-separated list of host:port addresses of the other islands (none: isolated island)");
+            System.err.println("- migfreq is the migration frequency (the best individuals are sent once every migfreq fitness evaluations)");
+            System.err.println("- migsize is the number of best individuals sent in each migration\n");
+            
+            System.exit(1);
+            
+        }
+        
+        //Read command-line parameters
+        int nvar = Integer.parseInt(args[0]);
+        int popsize = Integer.parseInt(args[1]);
+        int fiteval = Integer.parseInt(args[2]);
+        int freqprint = Integer.parseInt(args[3]);
+        int tournsize = Integer.parseInt(args[4]);
+        double mutprob = Double.parseDouble(args[5]);
+        int crossop = Integer.parseInt(args[6]);
+        boolean shuffle = Boolean.parseBoolean(args[7]);
+        long seed = Long.parseLong(args[8]);
+        int port = Integer.parseInt(args[9]);
+        String peers = args[10];
+        int migfreq = Integer.parseInt(args[11]);
+        int migsize = Integer.parseInt(args[12]);
+        if(migfreq < 1 || migsize < 1 || migsize > popsize) {
+            System.err.println("migfreq must be positive, and migsize between 1 and popsize");
+            System.exit(1);
+        }
+        
+        boolean unbal;
+        
+        //Determine unbalancedness flag (only set it to true if the crossover is one-point)
+        if(crossop == 0) {
+            unbal = true;
+        } else {
+            unbal = false;
+        }
+        
+        //Initialize random number generator with the input seed
+        Random genrand = new Random(seed);
+        
+        int tlength = (int)Math.pow(2, nvar);    //length of the boolean functions truth table, 2^nvar
+        int weight = tlength/2;                  //weight of balanced boolean functions
+        int words = (tlength+63)/64;             //number of 64-bit words of a packed truth table
+        
+        //Start the migration node, which listens for migrants on the given
+        //port and sends the emigrants to the peers in the background
+        MigrationNode node = new MigrationNode(port, MigrationNode.parsePeers(peers), words);
+        try {
+            node.start();
+        } catch(IOException e) {
+            System.err.println("Cannot listen on port "+port+": "+e.getMessage());
+            System.exit(1);
+        }
+        
+        //Step 1: generate initial population of boolean functions of nvar
+        //variables (unbalanced if we are using one-point crossover, balanced
+        //otherwise), evaluate their fitness, and find best and worse individual
+        boolean[][] population;
+        if(unbal) {
+            population = GeneticTools.createUnbalPop(tlength, popsize, genrand);
+        } else {
+            population = GeneticTools.createBalPop(tlength, popsize, genrand);
+        }
+        double[] fitnesses = FitnessFunctions.compFitnessBFPop(population, nvar, unbal);
+        int bestpos = GeneticTools.findMaxFitIndivPos(fitnesses);
+        double bestfit = fitnesses[bestpos];
+        
+        //Print initial information
+        System.out.println("GA Info:");
+        System.out.println("\n- Number of variables: "+nvar);
+        System.out.println("- Population size: "+popsize);
+        System.out.println("- Fitness evaluations: "+fiteval);
+        System.out.println("- Sampling frequency: "+freqprint);
+        System.out.println("- Tournament size: "+tournsize);
+        System.out.println("- Mutation probability: "+mutprob);
+        System.out.println("- Crossover Operator: "+crossop);
+        System.out.println("- Shuffle parents positions: "+shuffle);
+        System.out.println("- Migration port: "+port);
+        System.out.println("- Peers: "+peers);
+        System.out.println("- Migration frequency: "+migfreq);
+        System.out.println("- Migration size: "+migsize);
+        System.out.println("Seed: "+seed);
+        
+        //Print initial info
+        //Compute average fitness and average HW
+        double avgf = 0.0;
+        double avghw = 0.0;
+        for(int l=0; l<fitnesses.length; l++) {
+            avgf += fitnesses[l];
+            avghw += BinTools.computeHW(population[l]);
+        }
+        avgf /= fitnesses.length;
+        avghw /= population.length;
+        System.out.println("Best fitness in initial population: "+bestfit);
+        System.out.println("Average fitness in initial population: "+avgf);
+        System.out.println("Best initial individual: Function "+BinTools.bin2DecBig(population[bestpos]));
+        System.out.println("Best initial individual HW: "+BinTools.computeHW(population[bestpos]));
+        System.out.println("Average HW in initial population: "+avghw);
+        
+        System.out.println("Generation\tBest fit\tAvg fit\tBest HW\tavgHW");
+        
+        int immigrants = 0;
+        int rejected = 0;
+        
+        //Step 2: Iterate the Steady-state GA for fiteval evaluations
+        for(int i=0; i<fiteval; i++) {
+            
+            //Step 2a: select two parents by tournament selection, cross them
+            //and mutate the child (one-point crossover: flip mutation,
+            //balanced crossover: swap mutation)
+            int[] candpos = GeneticTools.tournSelectionPop(popsize, fitnesses, tournsize, genrand, true);
+            boolean[] child = CrossoverOperators.crossoverBF(population[candpos[0]],
+                    population[candpos[1]], weight, crossop, shuffle, genrand);
+            
+            if(crossop == 0) {
+                MutationOperators.flipMutation(genrand, child, mutprob);
+            } else {
+                MutationOperators.swapMutation(genrand, child, mutprob);
+            }
+            
+            //Step 2b: Evaluate child's fitness and apply elitist replacement
+            double fitchild = FitnessFunctions.compFitnessBF(child, nvar, false);
+            if((fitchild > fitnesses[candpos[0]]) || (fitchild > fitnesses[candpos[1]])) {
+                
+                //If the child is better than the best individual, the whole
+                //population can be replaced, otherwise the best is preserved
+                boolean replacebest = fitchild > bestfit;
+                int replpos = GeneticTools.selectForDeath(popsize, replacebest,
+                        bestpos, genrand);
+                population[replpos] = child;
+                fitnesses[replpos] = fitchild;
+                if(replacebest) {
+                    bestpos = replpos;
+                    bestfit = fitchild;
+                }
+                
+            }
+            
+            //Step 2c: insert the migrants received from the other islands.
+            //The fitness sent by the peer is not trusted: each migrant is
+            //evaluated again, and discarded if it is not balanced when the
+            //crossover requires it. A migrant replaces a random individual
+            //other than the best one, but only if it is better than it
+            MigrationNode.Migrant migrant;
+            while((migrant = node.pollMigrant()) != null) {
+                
+                boolean[] immigrant = BinTools.unpackTable(migrant.genome, tlength);
+                if(crossop != 0 && BinTools.computeHW(immigrant) != weight) {
+                    rejected++;
+                    continue;
+                }
+                double fitmigrant = FitnessFunctions.compFitnessBF(immigrant, nvar, false);
+                
+                int replpos = GeneticTools.selectForDeath(popsize, false,
+                        bestpos, genrand);
+                if(fitmigrant > fitnesses[replpos]) {
+                    
+                    population[replpos] = immigrant;
+                    fitnesses[replpos] = fitmigrant;
+                    immigrants++;
+                    if(fitmigrant > bestfit) {
+                        bestpos = replpos;
+                        bestfit = fitmigrant;
+                    }
+                    
+                }
+                
+            }
+            
+            //Step 2d: send the best individuals to the other islands
+            if(i%migfreq == 0 && i>0) {
+                
+                int[] ranking = GeneticTools.plusSelection(fitnesses, new double[0], true);
+                long[][] emigrants = new long[migsize][];
+                double[] emigfit = new double[migsize];
+                for(int m=0; m<migsize; m++) {
+                    emigrants[m] = BinTools.packTable(population[ranking[m]]);
+                    emigfit[m] = fitnesses[ranking[m]];
+                }
+                node.offer(emigrants, emigfit);
+                
+            }
+            
+            if(i%freqprint == 0 && i>0) {
+                //Compute average fitness and average HW
+                avgf = 0.0;
+                avghw = 0.0;
+                for(int l=0; l<fitnesses.length; l++) {
+                    avgf += fitnesses[l];
+                    avghw += BinTools.computeHW(population[l]);
+                }
+                avgf /= fitnesses.length;
+                avghw /= population.length;
+                System.out.println(i+"\t"+bestfit+"\t"+avgf+"\t"+BinTools.computeHW(population[bestpos])+"\t"+avghw+"\t");
+            }
+            
+        }
+        
+        //Print final info
+        //Compute average fitness and average HW
+        avgf = 0.0;
+        avghw = 0.0;
+        for(int l=0; l<fitnesses.length; l++) {
+            avgf += fitnesses[l];
+            avghw += BinTools.computeHW(population[l]);
+        }
+        avgf /= fitnesses.length;
+        avghw /= population.length;
+        System.out.println("Best fitness in final population: "+bestfit);
+        System.out.println("Average fitness in final population: "+avgf);
+        System.out.println("Best final individual: Function "+BinTools.bin2DecBig(population[bestpos]));
+        System.out.println("Best final individual HW: "+BinTools.computeHW(population[bestpos]));
+        System.out.println("Average HW in final population: "+avghw);
+        System.out.println("Migration batches sent: "+node.getSentBatches());
+        System.out.println("Migrants received: "+node.getReceivedMigrants());
+        System.out.println("Migrants accepted: "+immigrants);
+        System.out.println("Unbalanced migrants rejected: "+rejected);
+        System.out.println("Migration batches dropped: "+node.getDroppedBatches());
+        System.out.println("Received migrants dropped: "+node.getDroppedMigrants());
+        System.out.println("Connection failures: "+node.getFailures());
+        
+        node.close();
+        
+    }
+    
+}
@@ -0,0 +1,109 @@
+/**
+ * Class running an iterated local search for the problem of balanced Boolean
+ * functions, with the same budget of fitness evaluations as the GAs. The
+ * neighbours evaluated by the local searches and the swaps of the kicks are
+ * updated in O(2^n) instead of recomputing the Walsh transform in O(n*2^n),
+ * hence each of them counts as 1/nvar of a fitness evaluation, as in
+ * SteadyGALSBF.
+ */
+
+import java.util.Random;
+import boolfun.*;
+import genalg.*;
+import lon.*;
+
+public class IteratedLSBF {
+    
+    public static void main(String[] args) {
+        
+        if(args.length != 11) {
+            
+            System.err.println("\nUsage: java IteratedLSBF nvar fiteval freqprint lsop lsbudget samples kmin kmax accept patience seed");
+            System.err.println("\nwhere:");
+            System.err.println("- nvar is the number of variables of the boolean functions");
+            System.err.println("- fiteval is the maximum number of fitness evaluations (nvar evaluated neighbours each)");
+            System.err.println("- freqprint is the sampling frequency to print info on the run (once every freqprint fitness evaluations)");
+            System.err.println("- lsop is the code for the local search strategy "
+                    + "(0: best improvement, 1: best improvement over the pruned neighbourhood, 2: first improvement in random order, 3: best of a sampled neighbourhood, 4: tabu search, 5: tabu search over the pruned neighbourhood)");
+            System.err.println("- lsbudget is the maximum number of neighbours evaluated by each local search (0: no limit, not allowed for strategies 4 and 5)");
+            System.err.println("- samples is the number of swaps sampled at each step by strategy 3, or the tabu tenure of strategies 4 and 5");
+            System.err.println("- kmin is the minimum number of random swaps of a kick");
+            System.err.println("- kmax is the maximum number of random swaps of a kick");
+            System.err.println("- accept is the code for the acceptance criterion "
+                    + "(0: better optima, 1: better or equal optima, 2: better or equal optima, restarting from a random function on stagnation)");
+            System.err.println("- patience is the number of kicks without improving the best optimum after which the search restarts (criterion 2)");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable\n");
+            
+            System.exit(1);
+            
+        }
+        
+        //Read command-line parameters
+        int nvar = Integer.parseInt(args[0]);
+        int fiteval = Integer.parseInt(args[1]);
+        int freqprint = Integer.parseInt(args[2]);
+        int lsop = Integer.parseInt(args[3]);
+        int lsbudget = Integer.parseInt(args[4]);
+        int samples = Integer.parseInt(args[5]);
+        int kmin = Integer.parseInt(args[6]);
+        int kmax = Integer.parseInt(args[7]);
+        int accept = Integer.parseInt(args[8]);
+        int patience = Integer.parseInt(args[9]);
+        long seed = Long.parseLong(args[10]);
+        if(lsop >= 4 && lsbudget == 0) {
+            System.err.println("The tabu search strategies need a positive lsbudget");
+            System.exit(1);
+        }
+        
+        //Initialize random number generator with the input seed
+        Random genrand = new Random(seed);
+        int tlength = (int)Math.pow(2, nvar);
+        
+        //Step 1: generate and evaluate a random balanced function, and climb
+        //to its local optimum
+        boolean[] function = CombTools.genBalancedBinaryString(genrand, tlength);
+        SearchSolution sol = FitnessFunctions.compFitnessBF_SS(function, nvar, false);
+        double infit = sol.fitness;
+        IteratedLocalSearch ils = new IteratedLocalSearch(sol, lsop, lsbudget,
+                samples, kmin, kmax, accept, patience, genrand);
+        
+        //Print initial information
+        System.out.println("ILS Info:");
+        System.out.println("\n- Number of variables: "+nvar);
+        System.out.println("- Fitness evaluations: "+fiteval);
+        System.out.println("- Sampling frequency: "+freqprint);
+        System.out.println("- Local search strategy: "+lsop);
+        System.out.println("- Local search budget: "+lsbudget);
+        System.out.println("- Samples/tenure: "+samples);
+        System.out.println("- Kick strength: "+kmin+"-"+kmax);
+        System.out.println("- Acceptance criterion: "+accept);
+        System.out.println("- Patience: "+patience);
+        System.out.println("Seed: "+seed);
+        System.out.println("Initial fitness: "+infit);
+        System.out.println("First local optimum: "+ils.getCurrent().fitness);
+        
+        System.out.println("eval\tbestf\tcurf\tstrength\tkicks\trestarts");
+        
+        //Step 2: iterate kicks and local searches, printing the state once
+        //every freqprint evaluations
+        for(long i=freqprint; i-freqprint<fiteval; i+=freqprint) {
+            
+            long target = Math.min(i, fiteval);
+            ils.search(target*nvar);
+            System.out.println(target+"\t"+ils.getBest().fitness+"\t"
+                    +ils.getCurrent().fitness+"\t"+ils.getStrength()+"\t"
+                    +ils.getKicks()+"\t"+ils.getRestarts());
+            
+        }
+        
+        //Print final info
+        SearchSolution best = ils.getBest();
+        System.out.println("Best fitness: "+best.fitness);
+        System.out.println("Best function: "+BinTools.bin2DecBig(best.function));
+        System.out.println("Evaluated neighbours: "+ils.getEval());
+        System.out.println("Kicks: "+ils.getKicks());
+        System.out.println("Restarts: "+ils.getRestarts());
+        
+    }
+    
+}
@@ -0,0 +1,94 @@
+/**
+ * Class running a simulated annealing for the problem of balanced Boolean
+ * functions, with the same budget of fitness evaluations as the GAs. Each move
+ * updates the Walsh transform in O(2^n) instead of recomputing it in
+ * O(n*2^n), hence it counts as 1/nvar of a fitness evaluation, as the
+ * neighbours evaluated by the local search of SteadyGALSBF.
+ */
+
+import java.util.Random;
+import boolfun.*;
+import genalg.*;
+import lon.*;
+
+public class SimAnnealBF {
+    
+    public static void main(String[] args) {
+        
+        if(args.length != 8) {
+            
+            System.err.println("\nUsage: java SimAnnealBF nvar fiteval freqprint t0 cooling coolparam mix seed");
+            System.err.println("\nwhere:");
+            System.err.println("- nvar is the number of variables of the boolean functions");
+            System.err.println("- fiteval is the maximum number of fitness evaluations (nvar moves each)");
+            System.err.println("- freqprint is the sampling frequency to print info on the run (once every freqprint fitness evaluations)");
+            System.err.println("- t0 is the initial temperature");
+            System.err.println("- cooling is the code for the cooling schedule "
+                    + "(0: geometric, 1: linear down to 0 at the end of the run, 2: Lundy-Mees)");
+            System.err.println("- coolparam is the cooling factor of the geometric schedule, or the beta coefficient of the Lundy-Mees schedule");
+            System.err.println("- mix is the weight of the bent-style fitness in the cost, in [0,1] (0: nonlinearity only, 1: bent-style fitness only)");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable\n");
+            
+            System.exit(1);
+            
+        }
+        
+        //Read command-line parameters
+        int nvar = Integer.parseInt(args[0]);
+        int fiteval = Integer.parseInt(args[1]);
+        int freqprint = Integer.parseInt(args[2]);
+        double t0 = Double.parseDouble(args[3]);
+        int cooling = Integer.parseInt(args[4]);
+        double coolparam = Double.parseDouble(args[5]);
+        double mix = Double.parseDouble(args[6]);
+        long seed = Long.parseLong(args[7]);
+        
+        //Initialize random number generator with the input seed
+        Random genrand = new Random(seed);
+        int tlength = (int)Math.pow(2, nvar);
+        
+        //Step 1: generate and evaluate a random balanced function
+        boolean[] function = CombTools.genBalancedBinaryString(genrand, tlength);
+        SearchSolution sol = FitnessFunctions.compFitnessBF_SS(function, nvar, false);
+        SimulatedAnnealing sa = new SimulatedAnnealing(sol, t0, cooling,
+                coolparam, mix, (long)fiteval*nvar);
+        
+        //Print initial information
+        System.out.println("SA Info:");
+        System.out.println("\n- Number of variables: "+nvar);
+        System.out.println("- Fitness evaluations: "+fiteval);
+        System.out.println("- Sampling frequency: "+freqprint);
+        System.out.println("- Initial temperature: "+t0);
+        System.out.println("- Cooling schedule: "+cooling);
+        System.out.println("- Cooling parameter: "+coolparam);
+        System.out.println("- Bent-style weight: "+mix);
+        System.out.println("Seed: "+seed);
+        System.out.println("Initial fitness: "+sol.fitness);
+        
+        System.out.println("eval\tbestf\tcurf\tbestcost\tcurcost\ttemp\taccepted");
+        
+        //Step 2: anneal, printing the state once every freqprint evaluations
+        int i = 0;
+        while(i < fiteval) {
+            
+            int steps = Math.min(freqprint, fiteval-i);
+            sa.anneal((long)steps*nvar, genrand);
+            i += steps;
+            System.out.print(i+"\t"+sa.getBest().fitness+"\t"+sol.fitness+"\t");
+            System.out.printf("%.2f\t%.2f\t%.4f\t", sa.getBestCost(), sa.getCost(), sa.getTemperature());
+            System.out.println(sa.getAccepted());
+            
+        }
+        
+        //Print final info
+        SearchSolution best = sa.getBest();
+        System.out.println("Best fitness: "+best.fitness);
+        System.out.println("Best bent-style fitness: "
+                +FitnessFunctions.compFitnessBentGlob(best.function, best.walsht, nvar, false));
+        System.out.println("Best function: "+BinTools.bin2DecBig(best.function));
+        System.out.println("Moves: "+sa.getMoves());
+        System.out.println("Accepted moves: "+sa.getAccepted());
+        
+    }
+    
+}
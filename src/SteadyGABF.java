@@ -2,7 +2,10 @@
  * Class implementing a steady state GA for the problem of Boolean functions.
  */
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import boolfun.*;
 import genalg.*;
 
@@ -10,10 +13,10 @@ public class SteadyGABF {
     
     public static void main(String[] args) {
         
-        if(args.length != 9) {
+        if(args.length != 9 && args.length != 12 && args.length != 14 && args.length != 15 && args.length != 16 && args.length != 17) {
             
             System.err.println("\nUsage: java genalg.SteadyGABF nvar popsize "
-                    + "fiteval freqprint tournsize mutprob crossop shuffle seed");
+                    + "fiteval freqprint tournsize mutprob crossop shuffle seed [ckptfile ckptfreq resume [cachesize counthits [dedup [probes [threads]]]]]");
             System.err.println("\nwhere:");
             System.err.println("- nvar is the number of variables of the boolean functions");
             System.err.println("- popsize is the size of the population");
@@ -24,7 +27,16 @@ public class SteadyGABF {
             System.err.println("- crossop is the code for the crossover operator "
                     + "(0: one-point crossover, 1: balanced crossover with counters, 2: balanced crossover with zero-length maps, 3: balanced crossover with maps of 1s)");
             System.err.println("- shuffle is a boolean flag specifying whether to shuffle the parents positions to be copied in balanced crossover operators");            
-            System.err.println("- seed is the initial seed for the random number generator, read as a long variable\n");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable");
+            System.err.println("- ckptfile is the file where the snapshots of the run are saved (optional, none: no snapshots)");
+            System.err.println("- ckptfreq is the checkpoint frequency (a snapshot is saved once every ckptfreq fitness evaluations)");
+            System.err.println("- resume is a boolean flag specifying whether to resume the run from the snapshot in ckptfile");
+            System.err.println("- cachesize is the capacity of the fitness cache (0: no cache)");
+            System.err.println("- counthits is a boolean flag specifying whether cache hits count as fitness evaluations "
+                    + "(if false, a hit is counted anyway after popsize children in a row not counted, and a run with snapshots cannot be resumed)");
+            System.err.println("- dedup is a boolean flag specifying whether to reject the children that are clones of a member of the population");
+            System.err.println("- probes is the number of largest Walsh coefficients of each parent probed on the child before the full transform (0: no probing)");
+            System.err.println("- threads is the number of threads computing the Walsh transform of each function, worth it for nvar >= 16 (default 1, 0: all available processors)\n");
             
             System.exit(1);
             
@@ -40,6 +52,37 @@ public class SteadyGABF {
         int crossop = Integer.parseInt(args[6]);
         boolean shuffle = Boolean.parseBoolean(args[7]);
         long seed = Long.parseLong(args[8]);
+        String ckptfile = null;
+        int ckptfreq = 0;
+        boolean resume = false;
+        if(args.length >= 12 && !args[9].equals("none")) {
+            ckptfile = args[9];
+            ckptfreq = Integer.parseInt(args[10]);
+            resume = Boolean.parseBoolean(args[11]);
+        }
+        FitnessCache cache = null;
+        if(args.length >= 14 && Integer.parseInt(args[12]) > 0) {
+            cache = new FitnessCache(Integer.parseInt(args[12]), Boolean.parseBoolean(args[13]));
+        }
+        boolean dedup = (args.length >= 15) && Boolean.parseBoolean(args[14]);
+        int probes = 0;
+        if(args.length >= 16) {
+            probes = Integer.parseInt(args[15]);
+        }
+        ForkJoinPool pool = null;
+        if(args.length == 17 && Integer.parseInt(args[16]) != 1) {
+            int threads = Integer.parseInt(args[16]);
+            if(threads == 0) {
+                threads = Runtime.getRuntime().availableProcessors();
+            }
+            pool = new ForkJoinPool(threads);
+        }
+        
+        //The parameters of the run that affect its trajectory identify its
+        //snapshots
+        String tag = "SteadyGABF "+String.join(" ", Arrays.copyOf(args, 9))
+                +" "+((cache != null) ? cache.getCapacity() : 0)+" "+((cache != null) && cache.isCountingHits())
+                +" "+dedup+" "+probes;
         
         boolean unbal;
         
@@ -58,16 +101,65 @@ public class SteadyGABF {
         
         //Step 1: generate initial population of boolean functions of nvar
         //variables (unbalanced if we are using one-point crossover, balanced
-        //otherwise), evaluate their fitness, and find best and worse individual
+        //otherwise), evaluate their fitness, and find best and worse individual.
+        //When resuming, the whole state is loaded from the snapshot instead
         boolean[][] population;
-        if(unbal) {
-            population = GeneticTools.createUnbalPop(tlength, popsize, genrand);
+        double[] fitnesses;
+        int bestpos;
+        int start = 0;
+        if(resume) {
+            Checkpoint ckpt = null;
+            try {
+                ckpt = Checkpoint.read(ckptfile);
+            } catch(IOException e) {
+                System.err.println("Cannot resume: "+e.getMessage());
+                System.exit(1);
+            }
+            if(!ckpt.tag.equals(tag)) {
+                System.err.println("Cannot resume: the snapshot was saved by a run with different parameters");
+                System.exit(1);
+            }
+            if(cache != null && !cache.isCountingHits()) {
+                System.err.println("Cannot resume: the fitness cache is not saved in the snapshot, hence the hits must count as fitness evaluations");
+                System.exit(1);
+            }
+            population = ckpt.population;
+            fitnesses = ckpt.fitnesses;
+            bestpos = ckpt.bestpos;
+            genrand = ckpt.genrand;
+            start = (int)ckpt.evals;
         } else {
-            population = GeneticTools.createBalPop(tlength, popsize, genrand);
+            if(unbal) {
+                population = GeneticTools.createUnbalPop(tlength, popsize, genrand);
+            } else {
+                population = GeneticTools.createBalPop(tlength, popsize, genrand);
+            }
+            if(pool != null) {
+                fitnesses = FitnessFunctions.compFitnessBFPopPar(population, nvar, unbal, pool);
+            } else {
+                fitnesses = FitnessFunctions.compFitnessBFPop(population, nvar, unbal);
+            }
+            bestpos = GeneticTools.findMaxFitIndivPos(fitnesses);
         }
-        double[] fitnesses = FitnessFunctions.compFitnessBFPop(population, nvar, unbal);
-        int bestpos = GeneticTools.findMaxFitIndivPos(fitnesses);
         double bestfit = fitnesses[bestpos];
+        DuplicateFilter filter = null;
+        if(dedup) {
+            filter = new DuplicateFilter(population);
+        }
+        
+        //When probing, keep the indices of the largest Walsh coefficients of
+        //each member of the population
+        int[][] targets = null;
+        if(probes > 0) {
+            targets = new int[popsize][probes];
+            for(int l=0; l<popsize; l++) {
+                FitnessFunctions.compFitnessBFTargets(population[l], nvar, false, targets[l]);
+            }
+        }
+        CheckpointWriter writer = null;
+        if(ckptfile != null) {
+            writer = new CheckpointWriter(ckptfile);
+        }
         
         //Print initial information
         System.out.println("GA Info:");
@@ -80,6 +172,9 @@ public class SteadyGABF {
         System.out.println("- Crossover Operator: "+crossop);
         System.out.println("- Shuffle parents positions: "+shuffle);
         System.out.println("Seed: "+seed);
+        if(resume) {
+            System.out.println("Resumed from "+ckptfile+" at evaluation "+start);
+        }
         
         //Print initial info
         //Compute average fitness and average HW
@@ -99,8 +194,15 @@ public class SteadyGABF {
         
         System.out.println("Generation\tBest fit\tAvg fit\tBest HW\tavgHW");
         
+        int discarded = 0;
+        int probediscarded = 0;
+        int uncharged = 0;      //consecutive children not charged to the budget
+        int chargedclones = 0;
+        int chargedhits = 0;
+        int evaluated = 0;      //children whose Walsh transform was computed
+        
         //Step 2: Iterate the Steady-state GA for fiteval evaluations
-        for(int i=0; i<fiteval; i++){
+        for(int i=start; i<fiteval; i++){
             //Step 2a: select two individuals from the population for crossover,
             //using tournament selection. In this case, the problem is of
             //maximizing the fitness function (=nonlinearity), so the objective
@@ -176,8 +278,74 @@ public class SteadyGABF {
             
             
             
-            //Step 2d: Evaluate child's fitness and apply elitist replacement
-            double fitchild = FitnessFunctions.compFitnessBF(child, nvar, false);
+            //Reject the child without evaluating it if it is a clone of a
+            //member of the population. Rejected children do not consume the
+            //evaluation budget, unless popsize children in a row have not
+            //consumed it (e.g. when the population holds all the functions
+            //that the operators can produce): then the clone is charged to
+            //the budget, without evaluation or replacement
+            long childhash = 0L;
+            boolean clone = false;
+            if(filter != null) {
+                childhash = filter.hash(child);
+                if(filter.isDuplicate(child, childhash, population)) {
+                    if(uncharged < popsize) {
+                        uncharged++;
+                        i--;
+                        continue;
+                    }
+                    clone = true;
+                    chargedclones++;
+                }
+            }
+            
+            //Step 2d: Evaluate child's fitness (looking it up in the cache, if
+            //any) and apply elitist replacement. If the distance from one of
+            //the parents proves that the child cannot beat either of them, it
+            //is discarded without evaluation. The bound requires the fitness
+            //of the parents to be their nonlinearity, which is not the case
+            //for the unbalanced initial population of one-point crossover.
+            //Otherwise, if probing is enabled, the coefficients of the child
+            //where the parents have the largest values are computed first,
+            //since a single large coefficient also proves that the child
+            //cannot beat its parents
+            double threshold = Math.min(fitnesses[candpos[0]], fitnesses[candpos[1]]);
+            boolean discard = !clone && !unbal && (
+                    FitnessFunctions.isBoundedBF(child, population[candpos[0]], fitnesses[candpos[0]], threshold, false)
+                    || FitnessFunctions.isBoundedBF(child, population[candpos[1]], fitnesses[candpos[1]], threshold, false));
+            boolean probed = false;
+            if(!clone && !discard && targets != null) {
+                long[] packed = BinTools.packTable(child);
+                probed = FitnessFunctions.isBoundedBFProbe(packed, nvar, targets[candpos[0]], threshold)
+                        || FitnessFunctions.isBoundedBFProbe(packed, nvar, targets[candpos[1]], threshold);
+            }
+            double fitchild;
+            int[] childtargets = null;
+            if(clone) {
+                fitchild = threshold;
+            } else if(discard) {
+                fitchild = threshold;
+                discarded++;
+            } else if(probed) {
+                fitchild = threshold;
+                probediscarded++;
+            } else if(cache != null) {
+                long misses = cache.getMisses();
+                fitchild = FitnessFunctions.compFitnessBFCached(child, nvar, false, cache, pool);
+                if(cache.getMisses() > misses) {
+                    evaluated++;
+                }
+            } else if(targets != null) {
+                childtargets = new int[probes];
+                fitchild = FitnessFunctions.compFitnessBFTargets(child, nvar, false, childtargets);
+                evaluated++;
+            } else if(pool != null) {
+                fitchild = FitnessFunctions.compFitnessBF(child, nvar, false, pool);
+                evaluated++;
+            } else {
+                fitchild = FitnessFunctions.compFitnessBF(child, nvar, false);
+                evaluated++;
+            }
             if((fitchild > fitnesses[candpos[0]]) || (fitchild > fitnesses[candpos[1]])) {
                 
                 //the child's fitness value is better than at least that of one
@@ -192,6 +360,17 @@ public class SteadyGABF {
                     int replpos = GeneticTools.selectForDeath(popsize, true,
                             bestpos, genrand);
                     population[replpos] = child;
+                    if(filter != null) {
+                        filter.replace(replpos, childhash);
+                    }
+                    if(targets != null) {
+                        if(childtargets == null) {
+                            //The fitness came from the cache
+                            childtargets = new int[probes];
+                            FitnessFunctions.compFitnessBFTargets(child, nvar, false, childtargets);
+                        }
+                        targets[replpos] = childtargets;
+                    }
                     fitnesses[replpos] = fitchild;
                     bestpos = replpos;
                     bestfit = fitchild;
@@ -204,12 +383,36 @@ public class SteadyGABF {
                     int replpos = GeneticTools.selectForDeath(popsize, false,
                             bestpos, genrand);
                     population[replpos] = child;
+                    if(filter != null) {
+                        filter.replace(replpos, childhash);
+                    }
+                    if(targets != null) {
+                        if(childtargets == null) {
+                            //The fitness came from the cache
+                            childtargets = new int[probes];
+                            FitnessFunctions.compFitnessBFTargets(child, nvar, false, childtargets);
+                        }
+                        targets[replpos] = childtargets;
+                    }
                     fitnesses[replpos] = fitchild;
-                        
+                    
                 }
                 
             }
             
+            //If cache hits are not counted, a cached child does not consume
+            //the evaluation budget, unless popsize children in a row have not
+            //consumed it (e.g. when the population has converged)
+            if(cache != null && !clone && !discard && !probed && cache.isFreeHit()) {
+                if(uncharged < popsize) {
+                    uncharged++;
+                    i--;
+                    continue;
+                }
+                chargedhits++;
+            }
+            uncharged = 0;
+            
             if(i%freqprint == 0 && i>0) {
                 //Compute average fitness and average HW
                 avgf = 0.0;
@@ -223,6 +426,20 @@ public class SteadyGABF {
                 System.out.println(i+"\t"+bestfit+"\t"+avgf+"\t"+BinTools.computeHW(population[bestpos])+"\t"+avghw+"\t");
             }
             
+            //Step 2e: periodically save a snapshot of the run, which is
+            //resumed from the next evaluation
+            if(writer != null && (i+1)%ckptfreq == 0) {
+                writer.submit(new Checkpoint(tag, nvar, population, fitnesses,
+                        null, null, bestpos, i+1, i+1, genrand));
+            }
+            
+        }
+        
+        if(writer != null) {
+            writer.close();
+        }
+        if(pool != null) {
+            pool.shutdown();
         }
         
         //Print final info
@@ -240,6 +457,18 @@ public class SteadyGABF {
         System.out.println("Best final individual: Function "+BinTools.bin2DecBig(population[bestpos]));
         System.out.println("Best final individual HW: "+BinTools.computeHW(population[bestpos]));
         System.out.println("Average HW in final population: "+avghw);
+        if(cache != null) {
+            System.out.println("Fitness cache hits: "+cache.getHits());
+            System.out.println("Fitness cache misses: "+cache.getMisses());
+            System.out.println("Cache hits charged to the budget after "+popsize+" uncharged children: "+chargedhits);
+        }
+        if(filter != null) {
+            System.out.println("Clones rejected: "+filter.getRejected());
+            System.out.println("Clones charged to the budget after "+popsize+" uncharged children: "+chargedclones);
+        }
+        System.out.println("Children discarded by the nonlinearity bound: "+discarded);
+        System.out.println("Children discarded by Walsh probing: "+probediscarded);
+        System.out.println("Children evaluated: "+evaluated);
         
     }
     
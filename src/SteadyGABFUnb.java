@@ -4,6 +4,8 @@
  * 
  */
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
 import boolfun.*;
 import genalg.*;
@@ -12,10 +14,10 @@ public class SteadyGABFUnb {
     
     public static void main(String[] args) {
         
-        if(args.length != 13) {
+        if(args.length != 13 && args.length != 16) {
             
             System.err.println("\nUsage: java genalg.SteadyGABF nvar popsize "
-                    + "fiteval freqprint tournsize mutprob crossop shuffle seed coolingparam unbalanceProb frequency unbal");
+                    + "fiteval freqprint tournsize mutprob crossop shuffle seed coolingparam unbalanceProb frequency unbal [ckptfile ckptfreq resume]");
             System.err.println("\nwhere:");
             System.err.println("- nvar is the number of variables of the boolean functions");
             System.err.println("- popsize is the size of the population");
@@ -30,7 +32,10 @@ public class SteadyGABFUnb {
             System.err.println("- coolinparam is the reducing factor for the unbalancedness probability");
             System.err.println("- unbalanceProb is the initial probability if the unbalancedness");
             System.err.println("- frequp is the frequency of updating the unbalancedness probability");
-            System.err.println("- unbal is a boolean flag to specify whether unbalancedness penalty factor must be considered in the fitness function computation or not\n");
+            System.err.println("- unbal is a boolean flag to specify whether unbalancedness penalty factor must be considered in the fitness function computation or not");
+            System.err.println("- ckptfile is the file where the snapshots of the run are saved (optional, none: no snapshots)");
+            System.err.println("- ckptfreq is the checkpoint frequency (a snapshot is saved once every ckptfreq fitness evaluations)");
+            System.err.println("- resume is a boolean flag specifying whether to resume the run from the snapshot in ckptfile\n");
             
             System.exit(1);
             
@@ -50,6 +55,17 @@ public class SteadyGABFUnb {
         double unbalanceProb = Double.parseDouble(args[10]);
         int frequpd = Integer.parseInt(args[11]);
         boolean unbal = Boolean.parseBoolean(args[12]);
+        String ckptfile = null;
+        int ckptfreq = 0;
+        boolean resume = false;
+        if(args.length == 16 && !args[13].equals("none")) {
+            ckptfile = args[13];
+            ckptfreq = Integer.parseInt(args[14]);
+            resume = Boolean.parseBoolean(args[15]);
+        }
+        
+        //The parameters of the run identify its snapshots
+        String tag = "SteadyGABFUnb "+String.join(" ", Arrays.copyOf(args, 13));
         
         //Initialize random number generator with the input seed
         Random genrand;
@@ -63,16 +79,50 @@ public class SteadyGABFUnb {
         
         //Step 1: generate initial population of boolean functions of nvar
         //variables (unbalanced if we are using one-point crossover, balanced
-        //otherwise), evaluate their fitness, and find best and worse individual
+        //otherwise), evaluate their fitness, and find best and worse individual.
+        //When resuming, the whole state is loaded from the snapshot instead,
+        //and the unbalancedness probability is cooled as in the evaluations
+        //already performed
         boolean[][] population;
-        if(unbal) {
-            population = GeneticTools.createPartUnbalPop(tlength, weight, popsize, unbalanceProb, shuffle, genrand);
+        double[] fitnesses;
+        int bestpos;
+        int start = 0;
+        if(resume) {
+            Checkpoint ckpt = null;
+            try {
+                ckpt = Checkpoint.read(ckptfile);
+            } catch(IOException e) {
+                System.err.println("Cannot resume: "+e.getMessage());
+                System.exit(1);
+            }
+            if(!ckpt.tag.equals(tag)) {
+                System.err.println("Cannot resume: the snapshot was saved by a run with different parameters");
+                System.exit(1);
+            }
+            population = ckpt.population;
+            fitnesses = ckpt.fitnesses;
+            bestpos = ckpt.bestpos;
+            genrand = ckpt.genrand;
+            start = (int)ckpt.evals;
+            for(int j=1; j<start; j++) {
+                if(j%frequpd == 0) {
+                    unbalanceProb *= coolingparam;
+                }
+            }
         } else {
-            population = GeneticTools.createBalPop(tlength, popsize, genrand);
+            if(unbal) {
+                population = GeneticTools.createPartUnbalPop(tlength, weight, popsize, unbalanceProb, shuffle, genrand);
+            } else {
+                population = GeneticTools.createBalPop(tlength, popsize, genrand);
+            }
+            fitnesses = FitnessFunctions.compFitnessBFPop(population, nvar, unbal);
+            bestpos = GeneticTools.findMaxFitIndivPos(fitnesses);
         }
-        double[] fitnesses = FitnessFunctions.compFitnessBFPop(population, nvar, unbal);
-        int bestpos = GeneticTools.findMaxFitIndivPos(fitnesses);
         double bestfit = fitnesses[bestpos];
+        CheckpointWriter writer = null;
+        if(ckptfile != null) {
+            writer = new CheckpointWriter(ckptfile);
+        }
         
         //Print initial information
         System.out.println("GA Info:");
@@ -88,6 +138,9 @@ public class SteadyGABFUnb {
         System.out.println("- Initial unbalancedness probability: "+unbalanceProb);
         System.out.println("- Frequency of changing the unbalancedness probability: "+frequpd);
         System.out.println("Seed: "+seed);
+        if(resume) {
+            System.out.println("Resumed from "+ckptfile+" at evaluation "+start);
+        }
         
         //Print initial info
         //Compute average fitness and average HW
@@ -107,8 +160,10 @@ public class SteadyGABFUnb {
         
         System.out.println("Generation\tBest fit\tAvg fit\tBest HW\tavgHW");
        
+        int discarded = 0;
+        
         //Step 2: Iterate the Steady-state GA for fiteval evaluations
-        for(int i=0; i<fiteval; i++){
+        for(int i=start; i<fiteval; i++){
             //Step 2a: select two individuals from the population for crossover,
             //using tournament selection. In this case, the problem is of
             //maximizing the fitness function (=nonlinearity), so the objective
@@ -193,8 +248,18 @@ public class SteadyGABFUnb {
                 MutationOperators.swapMutation(genrand, child, mutprob);
             }
             
-            //Step 2d: Evaluate child's fitness and apply elitist replacement
-            double fitchild = FitnessFunctions.compFitnessBF(child, nvar, unbal);
+            //Step 2d: Evaluate child's fitness and apply elitist replacement.
+            //If the distance from one of the parents proves that the child
+            //cannot beat either of them, it is discarded without evaluation
+            double threshold = Math.min(fitnesses[candpos[0]], fitnesses[candpos[1]]);
+            double fitchild;
+            if(FitnessFunctions.isBoundedBF(child, population[candpos[0]], fitnesses[candpos[0]], threshold, unbal)
+                    || FitnessFunctions.isBoundedBF(child, population[candpos[1]], fitnesses[candpos[1]], threshold, unbal)) {
+                fitchild = threshold;
+                discarded++;
+            } else {
+                fitchild = FitnessFunctions.compFitnessBF(child, nvar, unbal);
+            }
             if((fitchild > fitnesses[candpos[0]]) || (fitchild > fitnesses[candpos[1]])) {
                 
                 //the child's fitness value is better than at least that of one
@@ -243,6 +308,17 @@ public class SteadyGABFUnb {
                 avghw /= population.length;
                 System.out.println(i+"\t"+bestfit+"\t"+avgf+"\t"+BinTools.computeHW(population[bestpos])+"\t"+avghw+"\t");
             }
+            
+            //Step 2f: periodically save a snapshot of the run, which is
+            //resumed from the next evaluation
+            if(writer != null && (i+1)%ckptfreq == 0) {
+                writer.submit(new Checkpoint(tag, nvar, population, fitnesses,
+                        null, null, bestpos, i+1, i+1, genrand));
+            }
+        }
+        
+        if(writer != null) {
+            writer.close();
         }
         
         //Print final info
@@ -260,6 +336,8 @@ public class SteadyGABFUnb {
         System.out.println("Best final individual: Function "+BinTools.bin2DecBig(population[bestpos]));
         System.out.println("Best final individual HW: "+BinTools.computeHW(population[bestpos]));
         System.out.println("Average HW in final population: "+avghw);
+        System.out.println("Children discarded by the nonlinearity bound: "+discarded);
+        System.out.println("Children evaluated: "+(fiteval-start-discarded));
         
     }
     
@@ -2,6 +2,8 @@
  * Class implementing a steady state GA for the Hyperbent functions problem.
  */
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
 import boolfun.*;
 import genalg.*;
@@ -10,10 +12,10 @@ public class SteadyGABentBF {
     
     public static void main(String[] args) {
         
-        if(args.length != 8) {
+        if(args.length != 8 && args.length != 11) {
             
             System.err.println("\nUsage: java genalg.SteadyGABentBF nvar popsize"
-                    + " fiteval tournsize mutprob crossop shuffle seed");
+                    + " fiteval tournsize mutprob crossop shuffle seed [ckptfile ckptfreq resume]");
             System.err.println("\nwhere:");
             System.err.println("- nvar is the number of variables of the boolean "
                     + "functions");
@@ -31,7 +33,10 @@ public class SteadyGABentBF {
             System.err.println("- shuffle is a boolean flag specifying whether "
                     + "to shuffle the parents positions to be copied in balanced"
                     + " crossover operators");
-            System.err.println("- seed is the initial seed for the random number generator, read as a long variable\n");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable");
+            System.err.println("- ckptfile is the file where the snapshots of the run are saved (optional, none: no snapshots)");
+            System.err.println("- ckptfreq is the checkpoint frequency (a snapshot is saved once every ckptfreq fitness evaluations)");
+            System.err.println("- resume is a boolean flag specifying whether to resume the run from the snapshot in ckptfile\n");
             
             System.exit(1);
             
@@ -46,6 +51,17 @@ public class SteadyGABentBF {
         int crossop = Integer.parseInt(args[5]);
         boolean shuffle = Boolean.parseBoolean(args[6]);
         long seed = Long.parseLong(args[7]);
+        String ckptfile = null;
+        int ckptfreq = 0;
+        boolean resume = false;
+        if(args.length == 11 && !args[8].equals("none")) {
+            ckptfile = args[8];
+            ckptfreq = Integer.parseInt(args[9]);
+            resume = Boolean.parseBoolean(args[10]);
+        }
+        
+        //The parameters of the run identify its snapshots
+        String tag = "SteadyGABentBF "+String.join(" ", Arrays.copyOf(args, 8));
         
         boolean unbal;
         
@@ -66,20 +82,47 @@ public class SteadyGABentBF {
         
         //Step 1: generate initial population of boolean functions of nvar
         //variables (unbalanced if we are using one-point crossover, balanced
-        //otherwise), evaluate their fitness, and find best and worse individual
+        //otherwise), evaluate their fitness, and find best and worse individual.
+        //When resuming, the whole state is loaded from the snapshot instead
         boolean[][] population;
-        if(unbal) {
-            population = GeneticTools.createUnbalPop(tlength, popsize, genrand);
+        double[] fitnesses;
+        int bestpos;
+        int start = 0;
+        if(resume) {
+            Checkpoint ckpt = null;
+            try {
+                ckpt = Checkpoint.read(ckptfile);
+            } catch(IOException e) {
+                System.err.println("Cannot resume: "+e.getMessage());
+                System.exit(1);
+            }
+            if(!ckpt.tag.equals(tag)) {
+                System.err.println("Cannot resume: the snapshot was saved by a run with different parameters");
+                System.exit(1);
+            }
+            population = ckpt.population;
+            fitnesses = ckpt.fitnesses;
+            bestpos = ckpt.bestpos;
+            genrand = ckpt.genrand;
+            start = (int)ckpt.evals;
         } else {
-            population = GeneticTools.createUnbalPopBent(tlength, nvar, popsize, genrand);
+            if(unbal) {
+                population = GeneticTools.createUnbalPop(tlength, popsize, genrand);
+            } else {
+                population = GeneticTools.createUnbalPopBent(tlength, nvar, popsize, genrand);
+            }
+            
+            //Compute the fitness only as the nonlinearity of the boolean function 
+            //(no unbalancedness penalty factor)
+            fitnesses = FitnessFunctions.compFitnessBFPop(population, nvar, false);
+            
+            bestpos = GeneticTools.findMaxFitIndivPos(fitnesses);
         }
-        
-        //Compute the fitness only as the nonlinearity of the boolean function 
-        //(no unbalancedness penalty factor)
-        double[] fitnesses = FitnessFunctions.compFitnessBFPop(population, nvar, false);
-
-        int bestpos = GeneticTools.findMaxFitIndivPos(fitnesses);
         double bestfit = fitnesses[bestpos];
+        CheckpointWriter writer = null;
+        if(ckptfile != null) {
+            writer = new CheckpointWriter(ckptfile);
+        }
         
         //Print initial information
         System.out.println("GA Info:");
@@ -91,15 +134,20 @@ public class SteadyGABentBF {
         System.out.println("- Crossover Operator: "+crossop);
         System.out.println("- Shuffle parents positions: "+shuffle);
         System.out.println("Seed: "+seed);
+        if(resume) {
+            System.out.println("Resumed from "+ckptfile+" at evaluation "+start);
+        }
         
         System.out.println("Best fitness in initial population: "+bestfit);
         System.out.println("Best initial individual: Function "+BinTools.bin2DecBig(population[bestpos]));
         
         
+        int discarded = 0;
+        
         //Step 2: Iterate the Steady-state GA until nonimp fitness evaluations
         //without improvement have been performed, or until an optimal solution
         //(== hyperbent function) is found
-        for(int i=0; i<fiteval; i++) {
+        for(int i=start; i<fiteval; i++) {
             //Step 2a: select two individuals from the population for crossover,
             //using tournament selection. In this case, the problem is of
             //maximize the fitness function (=nonlinearity), so the objective
@@ -173,8 +221,18 @@ public class SteadyGABentBF {
                 MutationOperators.swapMutation(genrand, child, mutprob);
             }
             
-            //Step 2d: Evaluate child's fitness and apply elitist replacement
-            double fitchild = FitnessFunctions.compFitnessBF(child, nvar, false);
+            //Step 2d: Evaluate child's fitness and apply elitist replacement.
+            //If the distance from one of the parents proves that the child
+            //cannot beat either of them, it is discarded without evaluation
+            double threshold = Math.min(fitnesses[candpos[0]], fitnesses[candpos[1]]);
+            double fitchild;
+            if(FitnessFunctions.isBoundedBF(child, population[candpos[0]], fitnesses[candpos[0]], threshold, false)
+                    || FitnessFunctions.isBoundedBF(child, population[candpos[1]], fitnesses[candpos[1]], threshold, false)) {
+                fitchild = threshold;
+                discarded++;
+            } else {
+                fitchild = FitnessFunctions.compFitnessBF(child, nvar, false);
+            }
             if((fitchild > fitnesses[candpos[0]]) || (fitchild > fitnesses[candpos[1]])) {
                 
                 //the child's fitness value is better than at least that of one
@@ -207,11 +265,24 @@ public class SteadyGABentBF {
                 
             }
             
+            //Step 2e: periodically save a snapshot of the run, which is
+            //resumed from the next evaluation
+            if(writer != null && (i+1)%ckptfreq == 0) {
+                writer.submit(new Checkpoint(tag, nvar, population, fitnesses,
+                        null, null, bestpos, i+1, i+1, genrand));
+            }
+            
+        }
+        
+        if(writer != null) {
+            writer.close();
         }
         
         //Print final info
         System.out.println("Best fitness in final population: "+bestfit);
         System.out.println("Best final individual: Function "+BinTools.bin2DecBig(population[bestpos]));
+        System.out.println("Children discarded by the nonlinearity bound: "+discarded);
+        System.out.println("Children evaluated: "+(fiteval-start-discarded));
         
     }
     
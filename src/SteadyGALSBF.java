@@ -3,28 +3,31 @@
  * @author rymoah
  */
 
+import java.io.IOException;
 import java.util.Vector;
 import java.util.Random;
 import boolfun.*;
 import genalg.*;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 import lon.*;
 
 public class SteadyGALSBF {
     
-    public static double[] computePopStats(SearchSolution[] pop) {
+    public static double[] computePopStats(SolutionStore pop) {
         
+        int popsize = pop.getCapacity();
         double avgfit = 0.0;
         double varfit = 0.0;
         double stdfit = 0.0;
-        double minfit = pop[0].fitness;
+        double minfit = pop.getFitness(0);
         double maxfit = 0.0;
         double medfit = 0.0;
-        double[] fitnesses = new double[pop.length];
+        double[] fitnesses = new double[popsize];
         
         //compute average, max and min fitnesses
-        for(int i=0; i<pop.length; i++) {
-            fitnesses[i] = pop[i].fitness;
+        for(int i=0; i<popsize; i++) {
+            fitnesses[i] = pop.getFitness(i);
             avgfit += fitnesses[i];
             if(fitnesses[i] < minfit) {
                 minfit = fitnesses[i];
@@ -33,18 +36,18 @@ public class SteadyGALSBF {
                 maxfit = fitnesses[i];
             }
         }
-        avgfit /= pop.length;
+        avgfit /= popsize;
         
         //compute fitness variance and standard deviation
-        for(int i=0; i<pop.length; i++) {
+        for(int i=0; i<popsize; i++) {
             varfit += Math.pow((fitnesses[i] - avgfit), 2);
         }
-        varfit /= pop.length - 1;
+        varfit /= popsize - 1;
         stdfit = Math.sqrt(varfit);
         
         //Sort fitness array and compute median
         Arrays.sort(fitnesses);
-        if(pop.length % 2 == 0) {
+        if(popsize % 2 == 0) {
             medfit = ((double)fitnesses[fitnesses.length/2] + (double)fitnesses[fitnesses.length/2 - 1])/2;
         } else {
             medfit = (double) fitnesses[fitnesses.length/2];
@@ -53,16 +56,16 @@ public class SteadyGALSBF {
         double avgdist = 0.0;
         double vardist = 0.0;
         double stddist = 0.0;
-        double mindist = Math.pow(2, pop[0].nvar);
+        double mindist = Math.pow(2, pop.getNvar());
         double maxdist = 0.0;
         double meddist = 0.0;
         
         Vector<Double> dists = new Vector<Double>();
         
         //compute average, max and min distances
-        for(int i=0; i<pop.length-1; i++) {
-            for(int j=i+1; j<pop.length; j++) {
-                double dist = (double)BinTools.computeHD(pop[i].function, pop[j].function);
+        for(int i=0; i<popsize-1; i++) {
+            for(int j=i+1; j<popsize; j++) {
+                double dist = (double)pop.getDistance(i, j);
                 dists.add(dist);
                 avgdist += dist;
                 if(dist < mindist) {
@@ -100,10 +103,10 @@ public class SteadyGALSBF {
     
     public static void main(String[] args) {
         
-        if(args.length != 10) {
+        if(args.length != 10 && args.length != 13 && args.length != 16 && args.length != 17) {
             
             System.err.println("\nUsage: java genalg.SteadyGALSBF nvar popsize "
-                    + "fiteval freqprint tournsize mutprob crossop shuffle seed");
+                    + "fiteval freqprint tournsize mutprob crossop steepest shuffle seed [ckptfile ckptfreq resume [lsop lsbudget samples [threads]]]");
             System.err.println("\nwhere:");
             System.err.println("- nvar is the number of variables of the boolean functions");
             System.err.println("- popsize is the size of the population");
@@ -115,7 +118,15 @@ public class SteadyGALSBF {
                     + "(0: one-point crossover, 1: balanced crossover with counters, 2: balanced crossover with zero-length maps, 3: balanced crossover with maps of 1s)");
             System.err.println("- steepest is a boolean flag specifying whether to apply steepest hill climbing (true) or single swap (false)");            
             System.err.println("- shuffle is a boolean flag specifying whether to shuffle the parents positions to be copied in balanced crossover operators");            
-            System.err.println("- seed is the initial seed for the random number generator, read as a long variable\n");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable");
+            System.err.println("- ckptfile is the file where the snapshots of the run are saved (optional, none: no snapshots)");
+            System.err.println("- ckptfreq is the checkpoint frequency (a snapshot is saved once every ckptfreq generations)");
+            System.err.println("- resume is a boolean flag specifying whether to resume the run from the snapshot in ckptfile");
+            System.err.println("- lsop is the code for the local search strategy "
+                    + "(0: best improvement (default), 1: best improvement over the pruned neighbourhood, 2: first improvement in random order, 3: best of a sampled neighbourhood, 4: tabu search, 5: tabu search over the pruned neighbourhood)");
+            System.err.println("- lsbudget is the maximum number of neighbours evaluated by each local search (0: no limit, not allowed for strategies 4 and 5)");
+            System.err.println("- samples is the number of swaps sampled at each step by strategy 3, or the tabu tenure of strategies 4 and 5");
+            System.err.println("- threads is the number of threads evaluating the neighbourhood in strategy 0 (default 1, 0: all available processors)\n");
             
             System.exit(1);
             
@@ -123,6 +134,10 @@ public class SteadyGALSBF {
         
         //Read command-line parameters
         int nvar = Integer.parseInt(args[0]);
+        if(nvar > 14) {
+            System.err.println("The population is kept in a SolutionStore, limited to 14 variables");
+            System.exit(1);
+        }
         int popsize = Integer.parseInt(args[1]);
         int fiteval = Integer.parseInt(args[2]);
         int freqprint = Integer.parseInt(args[3]);
@@ -132,6 +147,45 @@ public class SteadyGALSBF {
         boolean steepest = Boolean.parseBoolean(args[7]);
         boolean shuffle = Boolean.parseBoolean(args[8]);
         long seed = Long.parseLong(args[9]);
+        String ckptfile = null;
+        int ckptfreq = 0;
+        boolean resume = false;
+        if(args.length >= 13 && !args[10].equals("none")) {
+            ckptfile = args[10];
+            ckptfreq = Integer.parseInt(args[11]);
+            resume = Boolean.parseBoolean(args[12]);
+        }
+        
+        int lsop = 0;
+        int lsbudget = 0;
+        int samples = 0;
+        if(args.length >= 16) {
+            lsop = Integer.parseInt(args[13]);
+            lsbudget = Integer.parseInt(args[14]);
+            samples = Integer.parseInt(args[15]);
+        }
+        if(lsop >= 4 && steepest && lsbudget == 0) {
+            System.err.println("The tabu search strategies need a positive lsbudget");
+            System.exit(1);
+        }
+        
+        //The neighbourhood is evaluated in parallel only if requested, and the
+        //run does not depend on the number of threads
+        ForkJoinPool pool = null;
+        if(args.length == 17) {
+            int threads = Integer.parseInt(args[16]);
+            if(threads == 0) {
+                pool = ForkJoinPool.commonPool();
+            } else if(threads > 1) {
+                pool = new ForkJoinPool(threads);
+            }
+        }
+        
+        //The parameters of the run identify its snapshots
+        String tag = "SteadyGALSBF "+String.join(" ", Arrays.copyOf(args, 10));
+        if(args.length >= 16) {
+            tag += " "+String.join(" ", Arrays.copyOfRange(args, 13, 16));
+        }
         
         boolean unbal;
         
@@ -151,18 +205,58 @@ public class SteadyGALSBF {
         //Step 1: generate initial population of boolean functions of nvar
         //variables (unbalanced if we are using one-point crossover, balanced
         //otherwise), evaluate their fitness, and find best and worse individual
-        //store data about population in array of SearchSolution
-        SearchSolution[] populationSS;
+        //store data about population in a SolutionStore, which keeps the
+        //truth tables packed and the Walsh transforms as shorts, with the
+        //fitness values also in an array for the selection. When resuming,
+        //the whole state is loaded from the snapshot instead (the initial
+        //tables are saved as mating pool, since they are the ones used for
+        //crossover)
+        SolutionStore popstore = new SolutionStore(nvar, popsize, unbal);
+        double[] fitnesses = new double[popsize];
         boolean[][] population;
-        if(unbal) {
-            population = GeneticTools.createUnbalPop(tlength, popsize, genrand);
+        int bestpos;
+        int i = 0;
+        int gen = 0;
+        if(resume) {
+            Checkpoint ckpt = null;
+            try {
+                ckpt = Checkpoint.read(ckptfile);
+            } catch(IOException e) {
+                System.err.println("Cannot resume: "+e.getMessage());
+                System.exit(1);
+            }
+            if(!ckpt.tag.equals(tag)) {
+                System.err.println("Cannot resume: the snapshot was saved by a run with different parameters");
+                System.exit(1);
+            }
+            for(int p=0; p<popsize; p++) {
+                popstore.set(p, new SearchSolution(ckpt.population[p],
+                        ckpt.spectra[p], ckpt.fitnesses[p], nvar));
+                fitnesses[p] = ckpt.fitnesses[p];
+            }
+            population = ckpt.matingpool;
+            bestpos = ckpt.bestpos;
+            genrand = ckpt.genrand;
+            i = (int)ckpt.evals;
+            gen = (int)ckpt.gen;
         } else {
-            population = GeneticTools.createBalPop(tlength, popsize, genrand);
+            if(unbal) {
+                population = GeneticTools.createUnbalPop(tlength, popsize, genrand);
+            } else {
+                population = GeneticTools.createBalPop(tlength, popsize, genrand);
+            }
+            SearchSolution[] populationSS = FitnessFunctions.compFitnessBF_SSPop(population, nvar, unbal);
+            for(int p=0; p<popsize; p++) {
+                popstore.set(p, populationSS[p]);
+                fitnesses[p] = populationSS[p].fitness;
+            }
+            bestpos = GeneticTools.findMaxFitIndivPos(fitnesses);
+        }
+        double bestfit = fitnesses[bestpos];
+        CheckpointWriter writer = null;
+        if(ckptfile != null) {
+            writer = new CheckpointWriter(ckptfile);
         }
-        populationSS = FitnessFunctions.compFitnessBF_SSPop(population, nvar, unbal);
-        //double[] fitnesses = FitnessFunctions.compFitnessBFPop(population, nvar, unbal);
-        int bestpos = GeneticTools.findMaxFitIndivPos(populationSS);
-        double bestfit = populationSS[bestpos].fitness;
         
         //Print initial information
         System.out.println("GA Info:");
@@ -175,12 +269,15 @@ public class SteadyGALSBF {
         System.out.println("- Crossover Operator: "+crossop);
         System.out.println("- Shuffle parents positions: "+shuffle);
         System.out.println("Seed: "+seed);
+        if(resume) {
+            System.out.println("Resumed from "+ckptfile+" at generation "+gen+", evaluation "+i);
+        }
         
         //Print initial info
         System.out.println("\nInitial population info:");
         System.out.println("gen\teval\tavgf\tmedf\tvarf\tstdf\tmaxf\tminf\tavgd\tmedd\tvard\tstdd\tmaxd\tmind");
         //Compute statistics
-        double[] stats = computePopStats(populationSS); 
+        double[] stats = computePopStats(popstore); 
         System.out.print(0+"\t"+0+"\t");
         for(int s=0; s<stats.length; s++) {
             System.out.printf("%.2f", stats[s]);
@@ -192,14 +289,12 @@ public class SteadyGALSBF {
         System.out.println("\ngen\teval\tavgf\tmedf\tvarf\tstdf\tmaxf\tminf\tavgd\tmedd\tvard\tstdd\tmaxd\tmind");
         
         //Step 2: Iterate the Steady-state GA for fiteval evaluations
-        int i = 0;
-        int gen = 0;
         while(i<fiteval){
             //Step 2a: select two individuals from the population for crossover,
             //using tournament selection. In this case, the problem is of
             //maximizing the fitness function (=nonlinearity), so the objective
             //flag is set to true
-            int[] candpos = GeneticTools.tournSelectionSS(popsize, populationSS, tournsize, genrand, true);
+            int[] candpos = GeneticTools.tournSelection(popsize, fitnesses, tournsize, genrand, true);
             
             //Step 2b: cross the two candidate parents, depending on the
             //crossover operator chosen
@@ -273,20 +368,14 @@ public class SteadyGALSBF {
             i++;
             gen++;
             
-            //Step 2e: Apply local search on the child
-            if(steepest) {
-                
-                child = LocalSearchTools.hillClimb(child.function, child.fitness, child.walsht, child.nvar);
-                
-            } else {
-                
-                child = LocalSearchTools.findBestNeighbor(child.function, child.fitness, child.walsht, child.nvar);             
-                
-            }
+            //Step 2e: Apply local search on the child with the chosen
+            //strategy, within the neighbour budget
+            child = LocalSearchTools.localSearch(child, lsop, steepest,
+                    lsbudget, samples, genrand, pool);
             
             i += (child.eval/nvar);
             
-            if((child.fitness > populationSS[candpos[0]].fitness) || (child.fitness > populationSS[candpos[1]].fitness)) {
+            if((child.fitness > fitnesses[candpos[0]]) || (child.fitness > fitnesses[candpos[1]])) {
                 
                 //the child's fitness value is better than at least that of one
                 //of its parents. Check if it is also better than the fitness of
@@ -299,7 +388,8 @@ public class SteadyGALSBF {
                     //best individual
                     int replpos = GeneticTools.selectForDeath(popsize, true,
                             bestpos, genrand);
-                    populationSS[replpos] = child;
+                    popstore.set(replpos, child);
+                    fitnesses[replpos] = child.fitness;
                     bestpos = replpos;
                     bestfit = child.fitness;
                     
@@ -310,7 +400,8 @@ public class SteadyGALSBF {
                     //*except* the best individual
                     int replpos = GeneticTools.selectForDeath(popsize, false,
                             bestpos, genrand);
-                    populationSS[replpos] = child;
+                    popstore.set(replpos, child);
+                    fitnesses[replpos] = child.fitness;
                         
                 }
                 
@@ -318,7 +409,7 @@ public class SteadyGALSBF {
             
             if(gen%freqprint == 0 && i>0) {
                 //Compute statistics
-                stats = computePopStats(populationSS); 
+                stats = computePopStats(popstore); 
                 System.out.print(gen+"\t"+i+"\t");
                 for(int s=0; s<stats.length; s++) {
                     System.out.printf("%.2f", stats[s]);
@@ -327,6 +418,25 @@ public class SteadyGALSBF {
                 System.out.println("");
             }
             
+            //Step 2f: periodically save a snapshot of the run, which is
+            //resumed from the next generation
+            if(writer != null && gen%ckptfreq == 0) {
+                boolean[][] tables = new boolean[popsize][];
+                int[][] spectra = new int[popsize][];
+                for(int p=0; p<popsize; p++) {
+                    SearchSolution member = new SearchSolution(nvar);
+                    popstore.get(p, member);
+                    tables[p] = member.function;
+                    spectra[p] = member.walsht;
+                }
+                writer.submit(new Checkpoint(tag, nvar, tables, fitnesses,
+                        spectra, population, bestpos, i, gen, genrand));
+            }
+            
+        }
+        
+        if(writer != null) {
+            writer.close();
         }
         
         //Print final info
@@ -334,7 +444,7 @@ public class SteadyGALSBF {
         System.out.println("\nfinal population info:");
         System.out.println("gen\teval\tavgf\tmedf\tvarf\tstdf\tmaxf\tminf\tavgd\tmedd\tvard\tstdd\tmaxd\tmind");
         //Compute statistics
-        stats = computePopStats(populationSS); 
+        stats = computePopStats(popstore); 
         System.out.print(0+"\t"+0+"\t");
         for(int s=0; s<stats.length; s++) {
             System.out.printf("%.2f", stats[s]);
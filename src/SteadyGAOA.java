@@ -4,6 +4,8 @@
  * Class implementing a steady state GA for the problem of Orthogonal Arrays
  */
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
 import boolfun.*;
 import genalg.*;
@@ -13,10 +15,10 @@ public class SteadyGAOA {
     public static void main(String[] args) {
         
         //Check number of command line arguments
-        if(args.length != 12) {
+        if(args.length != 12 && args.length != 15 && args.length != 17 && args.length != 18) {
             
             System.err.println("\nUsage: java genalg.SteadyGAOA nvar k t lambda p "
-                    + "popsize fiteval tournsize mutprob crossop shuffle seed");
+                    + "popsize fiteval tournsize mutprob crossop shuffle seed [ckptfile ckptfreq resume [cachesize counthits [dedup]]]");
             System.err.println("\nwhere:");
             System.err.println("- nvar is the number of variables of the boolean functions (N = 2^n)");
             System.err.println("- k is the number of columns of the OA");
@@ -30,7 +32,14 @@ public class SteadyGAOA {
             System.err.println("- crossop is the code for the crossover operator "
                     + "(0: one-point crossover, 1: balanced crossover with counters, 2: balanced crossover with zero-length maps, 3: balanced crossover with maps of 1s)");
             System.err.println("- shuffle is a boolean flag specifying whether to shuffle the parents positions to be copied in balanced crossover operators");
-            System.err.println("- seed is the initial seed for the random number generator, read as a long variable\n");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable");
+            System.err.println("- ckptfile is the file where the snapshots of the run are saved (optional, none: no snapshots)");
+            System.err.println("- ckptfreq is the checkpoint frequency (a snapshot is saved once every ckptfreq fitness evaluations)");
+            System.err.println("- resume is a boolean flag specifying whether to resume the run from the snapshot in ckptfile");
+            System.err.println("- cachesize is the capacity of the fitness cache (0: no cache)");
+            System.err.println("- counthits is a boolean flag specifying whether cache hits count as fitness evaluations "
+                    + "(if false, a hit is counted anyway after popsize children in a row not counted, and a run with snapshots cannot be resumed)");
+            System.err.println("- dedup is a boolean flag specifying whether to reject the children that are clones of a member of the population\n");
             
             System.exit(1);
             
@@ -49,6 +58,25 @@ public class SteadyGAOA {
         int crossop = Integer.parseInt(args[9]);
         boolean shuffle = Boolean.parseBoolean(args[10]);
         long seed = Long.parseLong(args[11]);
+        String ckptfile = null;
+        int ckptfreq = 0;
+        boolean resume = false;
+        if(args.length >= 15 && !args[12].equals("none")) {
+            ckptfile = args[12];
+            ckptfreq = Integer.parseInt(args[13]);
+            resume = Boolean.parseBoolean(args[14]);
+        }
+        FitnessCache cache = null;
+        if(args.length >= 17 && Integer.parseInt(args[15]) > 0) {
+            cache = new FitnessCache(Integer.parseInt(args[15]), Boolean.parseBoolean(args[16]));
+        }
+        boolean dedup = (args.length == 18) && Boolean.parseBoolean(args[17]);
+        
+        //The parameters of the run that affect its trajectory identify its
+        //snapshots
+        String tag = "SteadyGAOA "+String.join(" ", Arrays.copyOf(args, 12))
+                +" "+((cache != null) ? cache.getCapacity() : 0)+" "+((cache != null) && cache.isCountingHits())
+                +" "+dedup;
         
         boolean unbal;
         
@@ -63,23 +91,62 @@ public class SteadyGAOA {
         Random genrand = new Random(seed);
         
         int N = (int)Math.pow(2, nvar);    //length of the boolean functions truth table (== number of rows in the OA), 2^nvar
+        int ckptvars = Checkpoint.matrixVars(N, k);    //the matrices are saved as tables of 2^ckptvars entries
         
         //Step 1: generate initial population of boolean matrices of size Nxk.
         //Each column is a boolean function of nvar variables (unbalanced if we
         //are using one-point crossover, balanced otherwise).
+        //When resuming, the whole state is loaded from the snapshot instead
         boolean[][][] population;
-        if(unbal) {
-            population = GeneticTools.createUnbalOAPop(popsize, N, k, genrand);
+        double[] fitnesses;
+        int bestpos;
+        int start = 0;
+        if(resume) {
+            Checkpoint ckpt = null;
+            try {
+                ckpt = Checkpoint.read(ckptfile);
+            } catch(IOException e) {
+                System.err.println("Cannot resume: "+e.getMessage());
+                System.exit(1);
+            }
+            if(!ckpt.tag.equals(tag)) {
+                System.err.println("Cannot resume: the snapshot was saved by a run with different parameters");
+                System.exit(1);
+            }
+            if(cache != null && !cache.isCountingHits()) {
+                System.err.println("Cannot resume: the fitness cache is not saved in the snapshot, hence the hits must count as fitness evaluations");
+                System.exit(1);
+            }
+            population = new boolean[popsize][][];
+            for(int l=0; l<popsize; l++) {
+                population[l] = Checkpoint.unpackMatrix(ckpt.population[l], N, k);
+            }
+            fitnesses = ckpt.fitnesses;
+            bestpos = ckpt.bestpos;
+            genrand = ckpt.genrand;
+            start = (int)ckpt.evals;
         } else {
-            population = GeneticTools.createBalOAPop(popsize, N, k, genrand);
+            if(unbal) {
+                population = GeneticTools.createUnbalOAPop(popsize, N, k, genrand);
+            } else {
+                population = GeneticTools.createBalOAPop(popsize, N, k, genrand);
+            }
+            //The fitness is the same both for unbalanced and balanced matrices,
+            //since the balancedness of the columns is implicit in the definition of OA
+            fitnesses = FitnessFunctions.compFitnessOAPop(population, t, lambda, p);
+            
+            //Remember that this problem requires minimizing the fitness function
+            bestpos = GeneticTools.findMinFitIndivPos(fitnesses);
         }
-        //The fitness is the same both for unbalanced and balanced matrices,
-        //since the balancedness of the columns is implicit in the definition of OA
-        double[] fitnesses = FitnessFunctions.compFitnessOAPop(population, t, lambda, p);
-        
-        //Remember that this problem requires minimizing the fitness function
-        int bestpos = GeneticTools.findMinFitIndivPos(fitnesses);
         double bestfit = fitnesses[bestpos];
+        DuplicateFilter filter = null;
+        if(dedup) {
+            filter = new DuplicateFilter(population);
+        }
+        CheckpointWriter writer = null;
+        if(ckptfile != null) {
+            writer = new CheckpointWriter(ckptfile);
+        }
         
         //Print initial info
         System.out.println("GA Info:");
@@ -92,10 +159,13 @@ public class SteadyGAOA {
         System.out.println("- Crossover Operator: "+crossop);
         System.out.println("- Shuffle parents positions: "+shuffle);
         System.out.println("- Seed: "+seed);
+        if(resume) {
+            System.out.println("Resumed from "+ckptfile+" at evaluation "+start);
+        }
         
         System.out.println("Best fitness in initial population: "+bestfit);
         System.out.println("Best initial individual:");
-
+        
         for(int i=0; i<N; i++) {
             
             for(int j=0; j<k; j++) {
@@ -110,8 +180,12 @@ public class SteadyGAOA {
         
         System.out.println("");
         
+        int uncharged = 0;      //consecutive children not charged to the budget
+        int chargedclones = 0;
+        int chargedhits = 0;
+        
         //Step 2: Iterate the Steady-state GA for fiteval evaluations
-        for(int i=0; i<fiteval; i++){
+        for(int i=start; i<fiteval; i++){
             
             //Step 2a: select two individuals from the population for crossover,
             //using tournament selection. In this case, the problem is of
@@ -130,8 +204,39 @@ public class SteadyGAOA {
             //crossover operator used (one-point crossover: flip mutation, balanced crossover: swap mutation)
             MutationOperators.mutateOA(genrand, child, mutprob, unbal);
             
-            //Step 2d: Evaluate child's fitness and apply elitist replacement
-            double fitchild = FitnessFunctions.compFitnessOA(child, t, lambda, p);
+            //Reject the child without evaluating it if it is a clone of a
+            //member of the population. Rejected children do not consume the
+            //evaluation budget, unless popsize children in a row have not
+            //consumed it: then the clone is charged to the budget, without
+            //evaluation or replacement
+            long childhash = 0L;
+            boolean clone = false;
+            if(filter != null) {
+                childhash = filter.hash(child);
+                if(filter.isDuplicate(child, childhash, population)) {
+                    if(uncharged < popsize) {
+                        uncharged++;
+                        i--;
+                        continue;
+                    }
+                    clone = true;
+                    chargedclones++;
+                }
+            }
+            
+            //Step 2d: Evaluate child's fitness (looking it up in the cache, if
+            //any) and apply elitist replacement. A child whose distance is not
+            //lower than that of the worse parent is discarded, hence the
+            //evaluation stops as soon as it reaches that value
+            double cutoff = Math.max(fitnesses[candpos[0]], fitnesses[candpos[1]]);
+            double fitchild;
+            if(clone) {
+                fitchild = cutoff;
+            } else if(cache != null) {
+                fitchild = FitnessFunctions.compFitnessOACached(child, t, lambda, p, cutoff, cache);
+            } else {
+                fitchild = FitnessFunctions.compFitnessOA(child, t, lambda, p, cutoff);
+            }
             if((fitchild < fitnesses[candpos[0]]) || (fitchild < fitnesses[candpos[1]])) {
                 
                 //the child's fitness value is better than at least that of one
@@ -146,6 +251,9 @@ public class SteadyGAOA {
                     int replpos = GeneticTools.selectForDeath(popsize, true,
                             bestpos, genrand);
                     population[replpos] = child;
+                    if(filter != null) {
+                        filter.replace(replpos, childhash);
+                    }
                     fitnesses[replpos] = fitchild;
                     bestpos = replpos;
                     bestfit = fitchild;
@@ -158,12 +266,43 @@ public class SteadyGAOA {
                     int replpos = GeneticTools.selectForDeath(popsize, false,
                             bestpos, genrand);
                     population[replpos] = child;
+                    if(filter != null) {
+                        filter.replace(replpos, childhash);
+                    }
                     fitnesses[replpos] = fitchild;
-                        
+                    
                 }
                 
             }
             
+            //If cache hits are not counted, a cached child does not consume
+            //the evaluation budget, unless popsize children in a row have not
+            //consumed it (e.g. when the population has converged)
+            if(cache != null && !clone && cache.isFreeHit()) {
+                if(uncharged < popsize) {
+                    uncharged++;
+                    i--;
+                    continue;
+                }
+                chargedhits++;
+            }
+            uncharged = 0;
+            
+            //Step 2e: periodically save a snapshot of the run, which is
+            //resumed from the next evaluation
+            if(writer != null && (i+1)%ckptfreq == 0) {
+                boolean[][] tables = new boolean[popsize][];
+                for(int l=0; l<popsize; l++) {
+                    tables[l] = Checkpoint.packMatrix(population[l], ckptvars);
+                }
+                writer.submit(new Checkpoint(tag, ckptvars, tables, fitnesses,
+                        null, null, bestpos, i+1, i+1, genrand));
+            }
+            
+        }
+        
+        if(writer != null) {
+            writer.close();
         }
         
         System.out.println("Best fitness in final population: "+bestfit);
@@ -181,6 +320,15 @@ public class SteadyGAOA {
         }
         
         System.out.println("");
+        if(cache != null) {
+            System.out.println("Fitness cache hits: "+cache.getHits());
+            System.out.println("Fitness cache misses: "+cache.getMisses());
+            System.out.println("Cache hits charged to the budget after "+popsize+" uncharged children: "+chargedhits);
+        }
+        if(filter != null) {
+            System.out.println("Clones rejected: "+filter.getRejected());
+            System.out.println("Clones charged to the budget after "+popsize+" uncharged children: "+chargedclones);
+        }
         
     }
     
@@ -5,16 +5,19 @@
 
 import boolfun.*;
 import genalg.*;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 public class SteadyGAWPB {
     
     public static void main(String[] args) {
         
-        if(args.length != 10) {
+        if(args.length != 10 && args.length != 13 && args.length != 15 && args.length != 16 && args.length != 17) {
             
             System.err.println("\nUsage: java genalg.SteadyGAWPB nvar popsize "
-                    + "fiteval fitfun freqprint tournsize mutprob crossop shuffle seed coolingparam unbalanceProb frequency unbal");
+                    + "fiteval fitfun freqprint tournsize mutprob crossop shuffle unbal [ckptfile ckptfreq resume [cachesize counthits [dedup [threads]]]]");
             System.err.println("\nwhere:");
             System.err.println("- nvar is the number of variables of the boolean functions");
             System.err.println("- popsize is the size of the population");
@@ -26,7 +29,15 @@ public class SteadyGAWPB {
             System.err.println("- crossop is the code for the crossover operator "
                     + "(0: one-point crossover, 1: balanced crossover with counters, 2: balanced crossover with zero-length maps, 3: balanced crossover with maps of 1s\");)");
             System.err.println("- shuffle is a boolean flag specifying whether to shuffle the parents positions to be copied in balanced crossover operators");
-            System.err.println("- unbal is a boolean flag to specify whether unbalancedness penalty factor must be considered in the fitness function computation or not\n");
+            System.err.println("- unbal is a boolean flag to specify whether unbalancedness penalty factor must be considered in the fitness function computation or not");
+            System.err.println("- ckptfile is the file where the snapshots of the run are saved (optional, none: no snapshots)");
+            System.err.println("- ckptfreq is the checkpoint frequency (a snapshot is saved once every ckptfreq fitness evaluations)");
+            System.err.println("- resume is a boolean flag specifying whether to resume the run from the snapshot in ckptfile");
+            System.err.println("- cachesize is the capacity of the fitness cache (0: no cache)");
+            System.err.println("- counthits is a boolean flag specifying whether cache hits count as fitness evaluations "
+                    + "(if false, a hit is counted anyway after popsize children in a row not counted, and a run with snapshots cannot be resumed)");
+            System.err.println("- dedup is a boolean flag specifying whether to reject the children that are clones of a member of the population");
+            System.err.println("- threads is the number of threads computing the Walsh transforms of each function, worth it for nvar >= 16 (default 1, 0: all available processors)\n");
             
             System.exit(1);
             
@@ -43,6 +54,36 @@ public class SteadyGAWPB {
         int crossop = Integer.parseInt(args[7]);
         boolean shuffle = Boolean.parseBoolean(args[8]);
         boolean unbal = Boolean.parseBoolean(args[9]);
+        String ckptfile = null;
+        int ckptfreq = 0;
+        boolean resume = false;
+        if(args.length >= 13 && !args[10].equals("none")) {
+            ckptfile = args[10];
+            ckptfreq = Integer.parseInt(args[11]);
+            resume = Boolean.parseBoolean(args[12]);
+        }
+        FitnessCache cache = null;
+        if(args.length >= 15 && Integer.parseInt(args[13]) > 0) {
+            cache = new FitnessCache(Integer.parseInt(args[13]), Boolean.parseBoolean(args[14]));
+        }
+        boolean dedup = (args.length >= 16) && Boolean.parseBoolean(args[15]);
+        
+        //The restricted Walsh transforms are computed as full transforms of
+        //the restrictions, by the fork-join tasks of a pool for large n
+        int threads = 1;
+        if(args.length == 17) {
+            threads = Integer.parseInt(args[16]);
+        }
+        if(threads == 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        
+        //The parameters of the run that affect its trajectory identify its
+        //snapshots
+        String tag = "SteadyGAWPB "+String.join(" ", Arrays.copyOf(args, 10))
+                +" "+((cache != null) ? cache.getCapacity() : 0)+" "+((cache != null) && cache.isCountingHits())
+                +" "+dedup;
         
         //Initialize random number generator with the input seed
         Random genrand = new Random();
@@ -53,16 +94,55 @@ public class SteadyGAWPB {
         
         //Step 1: generate initial population of boolean functions of nvar
         //variables (random if we use one-point crossover, WPB if balanced crossover
-        //are used), evaluate their fitness, and find best and worse individual
+        //are used), evaluate their fitness, and find best and worse individual.
+        //When resuming, the whole state is loaded from the snapshot instead
         boolean[][] population;
-        if(unbal) {
-            population = GeneticTools.createUnbalPop(flength, popsize, genrand);
+        double[] fitnesses;
+        int bestpos;
+        int start = 1;
+        if(resume) {
+            Checkpoint ckpt = null;
+            try {
+                ckpt = Checkpoint.read(ckptfile);
+            } catch(IOException e) {
+                System.err.println("Cannot resume: "+e.getMessage());
+                System.exit(1);
+            }
+            if(!ckpt.tag.equals(tag)) {
+                System.err.println("Cannot resume: the snapshot was saved by a run with different parameters");
+                System.exit(1);
+            }
+            if(cache != null && !cache.isCountingHits()) {
+                System.err.println("Cannot resume: the fitness cache is not saved in the snapshot, hence the hits must count as fitness evaluations");
+                System.exit(1);
+            }
+            population = ckpt.population;
+            fitnesses = ckpt.fitnesses;
+            bestpos = ckpt.bestpos;
+            genrand = ckpt.genrand;
+            start = (int)ckpt.evals+1;
         } else {
-            population = GeneticTools.createWPBPop(flength, popsize, inmat, genrand);
+            if(unbal) {
+                population = GeneticTools.createUnbalPop(flength, popsize, genrand);
+            } else {
+                population = GeneticTools.createWPBPop(flength, popsize, inmat, genrand);
+            }
+            fitnesses = new double[popsize];
+            for(int l=0; l<popsize; l++) {
+                fitnesses[l] = FitnessFunctions.compFitnessWPBFunc(nvar, population[l], inmat, sizes, unbal, fitfunc,
+                        Double.NEGATIVE_INFINITY, pool);
+            }
+            bestpos = GeneticTools.findMaxFitIndivPos(fitnesses);
         }
-        double[] fitnesses = FitnessFunctions.compFitnessWPBFuncPop(population, nvar, inmat, sizes, unbal, fitfunc);
-        int bestpos = GeneticTools.findMaxFitIndivPos(fitnesses);
         double bestfit = fitnesses[bestpos];
+        DuplicateFilter filter = null;
+        if(dedup) {
+            filter = new DuplicateFilter(population);
+        }
+        CheckpointWriter writer = null;
+        if(ckptfile != null) {
+            writer = new CheckpointWriter(ckptfile);
+        }
         
         //Print initial information
         System.out.println("GA Info:");
@@ -88,6 +168,9 @@ public class SteadyGAWPB {
         System.out.println("- Mutation probability: "+mutprob);
         System.out.println("- Crossover Operator: "+crossop);
         System.out.println("- Shuffle parents positions: "+shuffle);
+        if(resume) {
+            System.out.println("Resumed from "+ckptfile+" at evaluation "+(start-1));
+        }
         
         //Print initial info
         double avgf = 0.0;
@@ -112,7 +195,7 @@ public class SteadyGAWPB {
             System.out.print(bestnls[i]+" ");
         }
         System.out.println("");
-
+        
         System.out.print("Unbalancedness: ");
         for(int i=0; i<bestunb.length; i++) {
             System.out.print(bestunb[i]+" ");
@@ -120,9 +203,13 @@ public class SteadyGAWPB {
         System.out.println("");
         
         System.out.println("Generation\tBest fit\tAvg fit");
-       
+        
+        int uncharged = 0;      //consecutive children not charged to the budget
+        int chargedclones = 0;
+        int chargedhits = 0;
+        
         //Step 2: Iterate the Steady-state GA for fiteval evaluations
-        for(int i=1; i<=fiteval; i++){
+        for(int i=start; i<=fiteval; i++){
             //Step 2a: select two individuals from the population for crossover,
             //using tournament selection. In this case, the problem is of
             //maximizing the fitness function (=nonlinearity), so the objective
@@ -134,8 +221,39 @@ public class SteadyGAWPB {
             boolean[] child = CrossoverOperators.crossoverWPB(population[candpos[0]], population[candpos[1]], inmat, crossop, shuffle, genrand, mutprob);
             
             
-            //Step 2d: Evaluate child's fitness and apply elitist replacement
-            double fitchild = FitnessFunctions.compFitnessWPBFunc(nvar, child, inmat, sizes, unbal, fitfunc);
+            //Reject the child without evaluating it if it is a clone of a
+            //member of the population. Rejected children do not consume the
+            //evaluation budget, unless popsize children in a row have not
+            //consumed it: then the clone is charged to the budget, without
+            //evaluation or replacement
+            long childhash = 0L;
+            boolean clone = false;
+            if(filter != null) {
+                childhash = filter.hash(child);
+                if(filter.isDuplicate(child, childhash, population)) {
+                    if(uncharged < popsize) {
+                        uncharged++;
+                        i--;
+                        continue;
+                    }
+                    clone = true;
+                    chargedclones++;
+                }
+            }
+            
+            //Step 2d: Evaluate child's fitness (looking it up in the cache, if
+            //any) and apply elitist replacement. A child whose fitness is not
+            //greater than that of the worse parent is discarded, hence the
+            //evaluation stops as soon as it is proved not to exceed that value
+            double cutoff = Math.min(fitnesses[candpos[0]], fitnesses[candpos[1]]);
+            double fitchild;
+            if(clone) {
+                fitchild = cutoff;
+            } else if(cache != null) {
+                fitchild = FitnessFunctions.compFitnessWPBFuncCached(nvar, child, inmat, sizes, unbal, fitfunc, cutoff, cache, pool);
+            } else {
+                fitchild = FitnessFunctions.compFitnessWPBFunc(nvar, child, inmat, sizes, unbal, fitfunc, cutoff, pool);
+            }
             if((fitchild > fitnesses[candpos[0]]) || (fitchild > fitnesses[candpos[1]])) {
                 
                 //the child's fitness value is better than at least that of one
@@ -150,6 +268,9 @@ public class SteadyGAWPB {
                     int replpos = GeneticTools.selectForDeath(popsize, true,
                             bestpos, genrand);
                     population[replpos] = child;
+                    if(filter != null) {
+                        filter.replace(replpos, childhash);
+                    }
                     fitnesses[replpos] = fitchild;
                     bestpos = replpos;
                     bestfit = fitchild;
@@ -162,12 +283,28 @@ public class SteadyGAWPB {
                     int replpos = GeneticTools.selectForDeath(popsize, false,
                             bestpos, genrand);
                     population[replpos] = child;
+                    if(filter != null) {
+                        filter.replace(replpos, childhash);
+                    }
                     fitnesses[replpos] = fitchild;
-                        
+                    
                 }
                 
             }
             
+            //If cache hits are not counted, a cached child does not consume
+            //the evaluation budget, unless popsize children in a row have not
+            //consumed it (e.g. when the population has converged)
+            if(cache != null && !clone && cache.isFreeHit()) {
+                if(uncharged < popsize) {
+                    uncharged++;
+                    i--;
+                    continue;
+                }
+                chargedhits++;
+            }
+            uncharged = 0;
+            
             if(i%freqprint == 0 && i>0) {
                 //Compute average fitness and average HW
                 avgf = 0.0;
@@ -177,12 +314,24 @@ public class SteadyGAWPB {
                 avgf /= fitnesses.length;
                 System.out.println(i+"\t"+bestfit+"\t"+avgf);
             }
+            
+            //Step 2e: periodically save a snapshot of the run, which is
+            //resumed from the next evaluation
+            if(writer != null && i%ckptfreq == 0) {
+                writer.submit(new Checkpoint(tag, nvar, population, fitnesses,
+                        null, null, bestpos, i, i, genrand));
+            }
         }
         
+        if(writer != null) {
+            writer.close();
+        }
+        pool.shutdown();
+        
         //Print final info
         //Compute average fitness and average HW
         avgf = 0.0;
-     
+        
         for(int l=0; l<fitnesses.length; l++) {
             avgf += fitnesses[l];            
         }
@@ -200,12 +349,21 @@ public class SteadyGAWPB {
             System.out.print(bestnls[i]+" ");
         }
         System.out.println("");
-
+        
         System.out.print("Unbalancedness: ");
         for(int i=0; i<bestunb.length; i++) {
             System.out.print(bestunb[i]+" ");
         }
         System.out.println("");
+        if(cache != null) {
+            System.out.println("Fitness cache hits: "+cache.getHits());
+            System.out.println("Fitness cache misses: "+cache.getMisses());
+            System.out.println("Cache hits charged to the budget after "+popsize+" uncharged children: "+chargedhits);
+        }
+        if(filter != null) {
+            System.out.println("Clones rejected: "+filter.getRejected());
+            System.out.println("Clones charged to the budget after "+popsize+" uncharged children: "+chargedclones);
+        }
         
     }
     
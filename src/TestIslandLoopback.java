@@ -0,0 +1,155 @@
+/**
+ * Class to test the distributed island model on a single machine. The test
+ * launches nislands IslandGABF processes connected in a ring over the loopback
+ * interface, each one with its own port and seed, and collects their final
+ * results. Optionally, the first island is killed after a given time, to check
+ * that the other islands keep running when a peer crashes.
+ *
+ * The outputs of the islands are written to a temporary directory. The test
+ * fails (exit code 1) if a surviving island does not terminate normally or
+ * receives no migrants, or if the island sending to the killed one reports
+ * no connection failures.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestIslandLoopback {
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        
+        if(args.length != 7 && args.length != 8) {
+            
+            System.err.println("Usage: java TestIslandLoopback nislands nvar popsize fiteval migfreq baseport seed [killafter]");
+            System.err.println("\nwhere killafter is the number of milliseconds after which island 0 is killed (default: never)");
+            System.exit(1);
+            
+        }
+        
+        int nislands = Integer.parseInt(args[0]);
+        String nvar = args[1];
+        String popsize = args[2];
+        String fiteval = args[3];
+        String migfreq = args[4];
+        int baseport = Integer.parseInt(args[5]);
+        long seed = Long.parseLong(args[6]);
+        long killafter = -1;
+        if(args.length == 8) {
+            killafter = Long.parseLong(args[7]);
+        }
+        if(nislands < 2) {
+            System.err.println("At least two islands are needed");
+            System.exit(1);
+        }
+        
+        File logdir = Files.createTempDirectory("islands").toFile();
+        System.out.println("Island outputs in "+logdir);
+        
+        String java = System.getProperty("java.home")+File.separator+"bin"+File.separator+"java";
+        String classpath = System.getProperty("java.class.path");
+        
+        //Launch the islands: island i sends its emigrants to island i+1
+        Process[] islands = new Process[nislands];
+        int errors = 0;
+        try {
+            
+            for(int i=0; i<nislands; i++) {
+                
+                String peer = "127.0.0.1:"+(baseport + (i+1)%nislands);
+                List<String> command = new ArrayList<String>();
+                command.add(java);
+                command.add("-cp");
+                command.add(classpath);
+                command.add("IslandGABF");
+                command.add(nvar);
+                command.add(popsize);
+                command.add(fiteval);
+                command.add(fiteval);       //print only the final results
+                command.add("2");           //tournament size
+                command.add("0.1");         //mutation probability
+                command.add("3");           //balanced crossover with maps of 1s
+                command.add("false");
+                command.add(Long.toString(seed+i));
+                command.add(Integer.toString(baseport+i));
+                command.add(peer);
+                command.add(migfreq);
+                command.add("2");           //migration size
+                
+                ProcessBuilder builder = new ProcessBuilder(command);
+                builder.redirectErrorStream(true);
+                builder.redirectOutput(new File(logdir, "island"+i+".out"));
+                islands[i] = builder.start();
+                System.out.println("Started island "+i+" on port "+(baseport+i)+" (peer: "+peer+")");
+                
+            }
+            
+            if(killafter >= 0) {
+                Thread.sleep(killafter);
+                islands[0].destroyForcibly();
+                System.out.println("Killed island 0");
+            }
+            
+            //Wait for all islands, print their final results and check them
+            for(int i=0; i<nislands; i++) {
+                
+                int exit = islands[i].waitFor();
+                System.out.println("\nIsland "+i+" (exit code "+exit+"):");
+                
+                boolean killed = (i == 0 && killafter >= 0);
+                long received = -1;
+                long failures = -1;
+                try(BufferedReader reader = new BufferedReader(new FileReader(new File(logdir, "island"+i+".out")))) {
+                    String line;
+                    while((line = reader.readLine()) != null) {
+                        if(line.startsWith("Best fitness in final") || line.startsWith("Migra")
+                                || line.startsWith("Connection") || line.startsWith("Received")
+                                || line.startsWith("Unbalanced")) {
+                            System.out.println(line);
+                        }
+                        if(line.startsWith("Migrants received: ")) {
+                            received = Long.parseLong(line.substring(line.indexOf(':')+1).trim());
+                        } else if(line.startsWith("Connection failures: ")) {
+                            failures = Long.parseLong(line.substring(line.indexOf(':')+1).trim());
+                        }
+                    }
+                }
+                
+                if(killed) {
+                    continue;
+                }
+                if(exit != 0) {
+                    System.out.println("ERROR: island "+i+" terminated with exit code "+exit);
+                    errors++;
+                }
+                if(received <= 0) {
+                    System.out.println("ERROR: island "+i+" received no migrants");
+                    errors++;
+                }
+                if(killafter >= 0 && i == nislands-1 && failures <= 0) {
+                    System.out.println("ERROR: island "+i+" reported no connection failures towards the killed island");
+                    errors++;
+                }
+                
+            }
+            
+        } finally {
+            for(int i=0; i<nislands; i++) {
+                if(islands[i] != null) {
+                    islands[i].destroyForcibly();
+                }
+            }
+        }
+        
+        System.out.println("\nErrors: "+errors);
+        if(errors > 0) {
+            System.exit(1);
+        }
+        
+    }
+    
+}
@@ -55,6 +55,47 @@ public class BinTools {
         return toRet;
     }   
     
+    
+    /**
+     * Packs a binary string in an array of 64-bit words. The i-th bit of the
+     * string is stored in bit (i mod 64) of the word i/64 (LSBF order), and
+     * the unused bits of the last word are set to 0.
+     * 
+     * @param   vect    a boolean array representing the binary string
+     * @return  words   the packed representation of the string
+     */
+    public static long[] packTable(boolean[] vect) {
+        
+        long[] words = new long[(vect.length+63) >>> 6];
+        
+        for(int i=0; i<vect.length; i++) {
+            if(vect[i])
+                words[i >>> 6] |= 1L << (i & 63);
+        }
+        
+        return words;
+        
+    }
+    
+    /**
+     * Unpacks a binary string stored in an array of 64-bit words by
+     * packTable().
+     * 
+     * @param   words   the packed representation of the string
+     * @param   length  the length of the binary string
+     * @return  vect    a boolean array representing the binary string
+     */
+    public static boolean[] unpackTable(long[] words, int length) {
+        
+        boolean[] vect = new boolean[length];
+        
+        for(int i=0; i<length; i++) {
+            vect[i] = ((words[i >>> 6] >>> (i & 63)) & 1L) != 0;
+        }
+        
+        return vect;
+        
+    }
 
     /**
      * Converts a binary string in a decimal number (BigInteger version).
@@ -6,8 +6,18 @@ package boolfun;
  * the boolean functions are represented in their polar form (0->1 and 1->-1)
  * with LSBF order (Least Significant Bit First).
  */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
 public class BoolTransf {
     
+    //Vectors shorter than this are transformed by calcFWT() in calcFWTPar()
+    private static final int PAR_THRESHOLD = 1 << 16;
+    //Butterflies of a stage applied by a single task in calcFWTPar()
+    private static final int PAR_BLOCK = 1 << 14;
+    
     /**
      * Computes the Walsh Transform of a boolean function using the Fast Walsh
      * Transform (FWT) algorithm, which requires O(NlogN) operations (N=2^n is
@@ -60,6 +70,152 @@ public class BoolTransf {
         
     }
     
+    /**
+     * Computes in place the Walsh Transforms of a batch of boolean functions
+     * with the same number of variables, in polar form and interleaved: the
+     * entry x of the function b is at position x*count+b of the batch. Each
+     * butterfly is applied to all the functions by an inner loop with unit
+     * stride, which the JIT compiler can vectorize, so that a stage traverses
+     * the batch once, instead of once per function as in calcFWT().
+     * 
+     * @param batch  the interleaved polar truth tables of the functions.
+     * @param count  the number of functions in the batch.
+     * @param length the length of the truth tables.
+     */
+    public static void calcFWTBatch(int[] batch, int count, int length) {
+        
+        for(int half=1; half<length; half<<=1) {
+            for(int i=0; i<length; i+=2*half) {
+                for(int j=i; j<i+half; j++) {
+                    
+                    //Butterfly between the entries j and j+half of all the
+                    //functions
+                    int p = j*count;
+                    int q = (j+half)*count;
+                    for(int b=0; b<count; b++) {
+                        int temp = batch[p+b];
+                        batch[p+b] += batch[q+b];
+                        batch[q+b] = temp - batch[q+b];
+                    }
+                    
+                }
+            }
+        }
+        
+    }
+    
+    /**
+     * Computes in place the Walsh Transform of a boolean function in polar
+     * form, as calcFWT(), with the fork-join tasks of a pool, and returns its
+     * spectral radius. The recursion is the same as in calcFWT(): the first
+     * stage mixes the two halves of the vector, which are then transformed
+     * independently by two tasks. The butterflies of a stage are split in
+     * blocks of PAR_BLOCK entries, processed in parallel, and the vectors
+     * shorter than PAR_THRESHOLD are transformed by calcFWT() itself, so that
+     * each task works on a part of the vector that fits the cache.
+     * 
+     * The coefficients are bounded by 2^n in absolute value, so the int
+     * entries are exact for all the vectors that fit an array.
+     * 
+     * @param vector an array of integers representing the boolean function,
+     *               whose length is a power of 2.
+     * @param pool   the fork-join pool running the tasks.
+     * @return       the spectral radius of the function.
+     */
+    public static int calcFWTPar(int[] vector, ForkJoinPool pool) {
+        
+        if(vector.length < PAR_THRESHOLD) {
+            return calcFWT(vector, 0, vector.length);
+        }
+        
+        return pool.invoke(new FWTTask(vector, 0, vector.length));
+        
+    }
+    
+    /**
+     * Fork-join task of calcFWTPar() on the entries [start,start+length) of
+     * the vector, returning their maximum absolute value once transformed.
+     */
+    private static class FWTTask extends RecursiveTask<Integer> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final int[] vector;
+        private final int start;
+        private final int length;
+        
+        FWTTask(int[] vector, int start, int length) {
+            this.vector = vector;
+            this.start = start;
+            this.length = length;
+        }
+        
+        @Override
+        protected Integer compute() {
+            
+            if(length < PAR_THRESHOLD) {
+                return calcFWT(vector, start, length);
+            }
+            
+            //Step 1: first stage (v0=v0+v1, v1=v0-v1), by blocks
+            int half = length/2;
+            new StageTask(vector, start, start+half, half).invoke();
+            
+            //Step 2: transform the two halves in parallel
+            FWTTask left = new FWTTask(vector, start, half);
+            left.fork();
+            int right = new FWTTask(vector, start+half, half).compute();
+            
+            return Math.max(left.join(), right);
+            
+        }
+        
+    }
+    
+    /**
+     * Fork-join task applying the butterflies between the entries i and
+     * i+half of the vector, for i in [from,to). The range is split in halves
+     * until it contains at most PAR_BLOCK entries.
+     */
+    private static class StageTask extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final int[] vector;
+        private final int from;
+        private final int to;
+        private final int half;
+        
+        StageTask(int[] vector, int from, int to, int half) {
+            this.vector = vector;
+            this.from = from;
+            this.to = to;
+            this.half = half;
+        }
+        
+        @Override
+        protected void compute() {
+            
+            if(to - from <= PAR_BLOCK) {
+                
+                for(int i=from; i<to; i++) {
+                    int temp = vector[i];
+                    vector[i] += vector[i+half];
+                    vector[i+half] = temp - vector[i+half];
+                }
+                
+            } else {
+                
+                int mid = (from + to) >>> 1;
+                invokeAll(new StageTask(vector, from, mid, half),
+                        new StageTask(vector, mid, to, half));
+                
+            }
+            
+        }
+        
+    }
+    
     /**
      * Computes the nonlinearity of a boolean function, given in input its
      * spectral radius and the number of variables.
@@ -76,6 +232,56 @@ public class BoolTransf {
 
     }
     
+    /**
+     * Computes a single coefficient of the Walsh transform of a boolean
+     * function directly, i.e. W(a) = 2^n - 2*wt(f + a.x), where the truth
+     * table f is packed in 64-bit words (see BinTools.packTable()). The linear
+     * function a.x is built one word at a time: its pattern over the 64 inputs
+     * of a word only depends on the 6 lowest bits of a, and it is complemented
+     * when the higher bits of a and of the word index have odd parity. Hence
+     * the coefficient costs O(2^n/64) XOR and popcount operations, which is
+     * cheaper than the full FWT when only a few coefficients are needed.
+     * 
+     * @param packed    the packed truth table of the function (LSBF order)
+     * @param nvar      the number of variables of the function
+     * @param a         the index of the coefficient
+     * @return          the Walsh coefficient W(a)
+     */
+    public static int calcWalshCoeff(long[] packed, int nvar, int a) {
+        
+        //Patterns of the linear functions x_j, for j=0..5, over 64 inputs
+        final long[] varpatterns = {0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL,
+            0xF0F0F0F0F0F0F0F0L, 0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L,
+            0xFFFFFFFF00000000L};
+        
+        int length = 1 << nvar;
+        long lowpattern = 0L;
+        for(int j=0; j<6; j++) {
+            if(((a >>> j) & 1) != 0) {
+                lowpattern ^= varpatterns[j];
+            }
+        }
+        
+        //Mask of the valid bits of a word (only relevant if nvar < 6)
+        long mask = -1L;
+        if(length < 64) {
+            mask = (1L << length) - 1;
+        }
+        
+        int ahigh = a >>> 6;
+        int dist = 0;
+        for(int w=0; w<packed.length; w++) {
+            long linear = lowpattern;
+            if((Integer.bitCount(ahigh & w) & 1) != 0) {
+                linear = ~linear;
+            }
+            dist += Long.bitCount((packed[w] ^ linear) & mask);
+        }
+        
+        return length - 2*dist;
+        
+    }
+    
     /**
      * Compute the Walsh transform of an n-variable boolean function over the
      * restricted set of inputs E_{n,k}, for all k in {2..n/2}. The method
@@ -6,6 +6,7 @@ package boolfun;
  * are sorted in LSBF (Least Significant Bit First) order, unless otherwise
  * specified.
  */
+import java.util.Arrays;
 import java.util.Vector;
 import java.util.Random;
 
@@ -553,4 +554,94 @@ public class CombTools {
         
     }
     
+    /**
+     * Fill a truth table with a random binary string of a given Hamming
+     * weight, drawn uniformly by a partial Fisher-Yates shuffle of an array of
+     * positions. Unlike genBalancedBinaryString() and genUnbalBentBinString(),
+     * it costs O(weight) after clearing the table and allocates nothing, so it
+     * is meant for sampling many strings. It draws a different random
+     * sequence, hence it does not replace them in the GAs.
+     * 
+     * @param genrand   Random number generator instance
+     * @param ttable    the truth table to fill
+     * @param weight    Hamming weight of the string
+     * @param positions a permutation of the positions 0..ttable.length-1 (e.g.
+     *                  the identity), shuffled in place
+     */
+    public static void fillRandomWeightString(Random genrand, boolean[] ttable,
+            int weight, int[] positions) {
+        
+        Arrays.fill(ttable, false);
+        
+        //Any permutation of the positions gives a uniform choice, so the
+        //array does not need to be reset between two calls
+        for(int i=0; i<weight; i++) {
+            int j = i + genrand.nextInt(positions.length - i);
+            int temp = positions[i];
+            positions[i] = positions[j];
+            positions[j] = temp;
+            ttable[positions[i]] = true;
+        }
+        
+    }
+    
+    /**
+     * Group the input vectors of n variables by Hamming weight, as integers.
+     * The result can be used as the array of positions of
+     * fillRandomWPBFunction().
+     * 
+     * @param n     number of variables
+     * @return      the array of the vectors of weight k, for k = 0..n
+     */
+    public static int[][] genWeightClasses(int n) {
+        
+        int[][] classes = new int[n+1][];
+        int[] sizes = allBinCoeffs(n);
+        int[] filled = new int[n+1];
+        for(int k=0; k<=n; k++) {
+            classes[k] = new int[sizes[k]];
+        }
+        for(int x=0; x<(1 << n); x++) {
+            int k = Integer.bitCount(x);
+            classes[k][filled[k]] = x;
+            filled[k]++;
+        }
+        
+        return classes;
+        
+    }
+    
+    /**
+     * Fill a truth table with a random WPB function, with f(0)=0 and f(1)=1,
+     * as genRandomWPBFunction() does but without allocations: the function is
+     * balanced on each set of vectors of equal weight by fillRandomWeightString().
+     * 
+     * @param gen       random number generator
+     * @param function  the truth table to fill (2^n entries)
+     * @param classes   the vectors grouped by weight (see genWeightClasses()),
+     *                  shuffled in place
+     */
+    public static void fillRandomWPBFunction(Random gen, boolean[] function,
+            int[][] classes) {
+        
+        for(int k=0; k<classes.length; k++) {
+            int[] vectors = classes[k];
+            for(int i=0; i<vectors.length/2; i++) {
+                int j = i + gen.nextInt(vectors.length - i);
+                int temp = vectors[i];
+                vectors[i] = vectors[j];
+                vectors[j] = temp;
+                function[vectors[i]] = true;
+            }
+            for(int i=vectors.length/2; i<vectors.length; i++) {
+                function[vectors[i]] = false;
+            }
+        }
+        
+        //Set f(0)=0 and f(1) = 1
+        function[0] = false;
+        function[function.length-1] = true;
+        
+    }
+    
 }
@@ -0,0 +1,240 @@
+package boolfun;
+
+/**
+ * Out-of-core Walsh transform of a boolean function too large for the heap
+ * (e.g. n=30, whose transform takes 4 GiB). The truth table is read from a
+ * file, packed 8 entries per byte in LSBF order (entry x is the bit x%8 of
+ * the byte x/8), and the transform is written to a file of 2^n little-endian
+ * 32-bit integers, both accessed as memory-mapped buffers. The heap holds only
+ * a window of 2^window entries.
+ *
+ * The stages of the FWT are grouped in passes over the transform file:
+ * - the first pass reads the truth table by windows of 2^window consecutive
+ *   entries, and applies to each of them the stages that mix entries of the
+ *   same window (calcFWT());
+ * - each of the following passes applies a group of g of the remaining
+ *   stages, which mix entries 2^s apart for s in [s0,s0+g): the window is
+ *   filled with 2^g rows, each a run of 2^(window-g) consecutive entries
+ *   2^s0 apart, so that the file is read and written by long sequential
+ *   runs, and the stages are the butterflies between the rows
+ *   (BoolTransf.calcFWTBatch(), the rows playing the role of the entries and
+ *   the columns that of the functions).
+ * With g at most window/2, a function of n <= 3*window/2 variables takes two
+ * passes. The spectral radius and the bent-style fitness of
+ * FitnessFunctions.compFitnessBent() are computed during the last pass.
+ */
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedFWT {
+    
+    private static final int REGION_BITS = 28;     //entries of a mapped region (1 GiB)
+    
+    private final int nvar;
+    private final long length;
+    private final int window;
+    private final int[] buffer;
+    private final IntBuffer[] regions;
+    private final MappedByteBuffer[] mapped;
+    private int sprad;
+    private double devsum;
+    
+    /**
+     * Map the transform file of a function of nvar variables, creating it if
+     * it does not exist.
+     *
+     * @param spectrumfile  the path of the transform file
+     * @param nvar          number of variables of the function (at most 30)
+     * @param window        base 2 logarithm of the number of entries of the
+     *                      window in the heap (2 to 28)
+     * @throws IOException if the file cannot be mapped
+     */
+    public MappedFWT(Path spectrumfile, int nvar, int window) throws IOException {
+        
+        if(nvar < 1 || nvar > 30) {
+            throw new IllegalArgumentException("The number of variables must be between 1 and 30");
+        }
+        if(window < 2 || window > REGION_BITS) {
+            throw new IllegalArgumentException("The window must be between 2 and "+REGION_BITS);
+        }
+        
+        this.nvar = nvar;
+        length = 1L << nvar;
+        this.window = Math.min(window, nvar);
+        buffer = new int[1 << this.window];
+        
+        int nregions = (int)((length + (1L << REGION_BITS) - 1) >>> REGION_BITS);
+        regions = new IntBuffer[nregions];
+        mapped = new MappedByteBuffer[nregions];
+        try(FileChannel channel = FileChannel.open(spectrumfile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for(int r=0; r<nregions; r++) {
+                long entries = Math.min(1L << REGION_BITS, length - ((long)r << REGION_BITS));
+                mapped[r] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        ((long)r << REGION_BITS)*4, entries*4);
+                regions[r] = mapped[r].order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+        }
+        
+    }
+    
+    /**
+     * Compute the Walsh transform of the function in a truth table file, and
+     * write it to the transform file.
+     *
+     * @param tablefile the path of the packed truth table
+     * @param unbal     flag for specifying if unbalancedness must be
+     *                  considered in the bent-style fitness (W(0) included)
+     * @throws IOException if the truth table cannot be read
+     */
+    public void transform(Path tablefile, boolean unbal) throws IOException {
+        
+        sprad = 0;
+        devsum = 0.0;
+        int wlength = 1 << window;
+        boolean last = (window == nvar);
+        
+        //Step 1: windows of consecutive entries, from the truth table
+        try(FileChannel channel = FileChannel.open(tablefile, StandardOpenOption.READ)) {
+            
+            long bytes = (length + 7) >>> 3;
+            if(channel.size() < bytes) {
+                throw new IOException(tablefile+" is shorter than a truth table of "+nvar+" variables");
+            }
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            
+            for(long start=0; start<length; start+=wlength) {
+                for(int i=0; i<wlength; i++) {
+                    long x = start+i;
+                    int bit = (table.get((int)(x >>> 3)) >>> (int)(x & 7)) & 1;
+                    buffer[i] = 1 - 2*bit;
+                }
+                BoolTransf.calcFWT(buffer, 0, wlength);
+                store(start, 0, wlength, last, unbal);
+            }
+            
+        }
+        
+        //Step 2: groups of the stages across the windows
+        for(int s=window; s<nvar; ) {
+            
+            int g = Math.min(nvar - s, Math.max(1, window/2));
+            int rows = 1 << g;
+            int run = wlength / rows;
+            last = (s + g == nvar);
+            
+            //Each block of 2^(s+g) entries holds 2^s/run groups of rows
+            for(long block=0; block<length; block+=1L << (s+g)) {
+                for(long col=0; col<(1L << s); col+=run) {
+                    
+                    for(int r=0; r<rows; r++) {
+                        load(block + ((long)r << s) + col, r*run, run);
+                    }
+                    BoolTransf.calcFWTBatch(buffer, run, rows);
+                    for(int r=0; r<rows; r++) {
+                        store(block + ((long)r << s) + col, r*run, run, last, unbal);
+                    }
+                    
+                }
+            }
+            
+            s += g;
+            
+        }
+        
+        for(int r=0; r<mapped.length; r++) {
+            mapped[r].force();
+        }
+        
+    }
+    
+    /**
+     * Copy a run of entries of the transform file to the window.
+     */
+    private void load(long index, int offset, int count) {
+        
+        IntBuffer region = regions[(int)(index >>> REGION_BITS)];
+        region.position((int)(index & ((1L << REGION_BITS) - 1)));
+        region.get(buffer, offset, count);
+        
+    }
+    
+    /**
+     * Copy a run of entries of the window to the transform file, updating the
+     * statistics if they are final.
+     */
+    private void store(long index, int offset, int count, boolean last,
+            boolean unbal) {
+        
+        IntBuffer region = regions[(int)(index >>> REGION_BITS)];
+        region.position((int)(index & ((1L << REGION_BITS) - 1)));
+        region.put(buffer, offset, count);
+        
+        if(last) {
+            double bentcoeff = Math.pow(2, nvar/2);
+            for(int i=0; i<count; i++) {
+                int abs = Math.abs(buffer[offset+i]);
+                if(abs > sprad) {
+                    sprad = abs;
+                }
+                if(unbal || index+i != 0) {
+                    devsum += (bentcoeff-abs)*(bentcoeff-abs);
+                }
+            }
+        }
+        
+    }
+    
+    /**
+     * Return a coefficient of the transform in the file.
+     *
+     * @param a     the index of the coefficient
+     * @return      the coefficient W(a)
+     */
+    public int getCoefficient(long a) {
+        
+        return regions[(int)(a >>> REGION_BITS)].get((int)(a & ((1L << REGION_BITS) - 1)));
+        
+    }
+    
+    /**
+     * Return the spectral radius of the function transformed last.
+     *
+     * @return  the maximum absolute value of the transform
+     */
+    public int getSpectralRadius() {
+        
+        return sprad;
+        
+    }
+    
+    /**
+     * Return the nonlinearity of the function transformed last.
+     *
+     * @return  the nonlinearity
+     */
+    public int getNonlinearity() {
+        
+        return BoolTransf.calcNL(sprad, nvar);
+        
+    }
+    
+    /**
+     * Return the bent-style fitness sqrt(sum_w (2^(nvar/2)-|Wf(w)|)^2) of the
+     * function transformed last, as FitnessFunctions.compFitnessBent().
+     *
+     * @return  the fitness
+     */
+    public double getBentFitness() {
+        
+        return Math.sqrt(devsum);
+        
+    }
+    
+}
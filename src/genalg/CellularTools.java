@@ -0,0 +1,171 @@
+package genalg;
+
+/**
+ * Class containing support methods for cellular GAs, where the individuals are
+ * placed on a two-dimensional toroidal grid and selection is restricted to a
+ * local neighbourhood of each cell. Cells are numbered in row-major order,
+ * i.e. the cell in row r and column c has index r*cols+c.
+ */
+
+import java.util.Random;
+
+public class CellularTools {
+
+    /**
+     * Build the neighbourhoods of all cells of a toroidal grid. Each
+     * neighbourhood contains the cell itself in the first position, followed
+     * by its von Neumann neighbours (north, south, west, east) and, if the
+     * Moore neighbourhood is required, by its four diagonal neighbours.
+     *
+     * @param rows      number of rows of the grid
+     * @param cols      number of columns of the grid
+     * @param moore     flag specifying whether to use the Moore neighbourhood
+     *                  (true, 9 cells) or the von Neumann neighbourhood (false, 5 cells)
+     * @return          a matrix whose i-th row contains the indices of the
+     *                  cells in the neighbourhood of cell i
+     */
+    public static int[][] buildNeighborhoods(int rows, int cols, boolean moore) {
+
+        int[] dr;
+        int[] dc;
+        if(moore) {
+            dr = new int[]{0, -1, 1, 0, 0, -1, -1, 1, 1};
+            dc = new int[]{0, 0, 0, -1, 1, -1, 1, -1, 1};
+        } else {
+            dr = new int[]{0, -1, 1, 0, 0};
+            dc = new int[]{0, 0, 0, -1, 1};
+        }
+
+        int[][] neighs = new int[rows*cols][dr.length];
+
+        for(int r=0; r<rows; r++) {
+
+            for(int c=0; c<cols; c++) {
+
+                //Wrap around the borders of the grid (torus)
+                for(int k=0; k<dr.length; k++) {
+                    int nr = (r + dr[k] + rows) % rows;
+                    int nc = (c + dc[k] + cols) % cols;
+                    neighs[r*cols+c][k] = nr*cols+nc;
+                }
+
+            }
+
+        }
+
+        return neighs;
+
+    }
+
+    /**
+     * Partition the cells of a toroidal grid in update classes. In the
+     * synchronous model, there is a single class containing all cells, and the
+     * children of all cells are bred from the same grid. In the checkerboard
+     * asynchronous model, the cells of a class never appear in each other's
+     * neighbourhoods, so all cells of a class can breed and be replaced
+     * concurrently, while the classes are updated one after the other. The
+     * von Neumann neighbourhood requires two classes (the colours of a
+     * checkerboard), the Moore neighbourhood requires four (the positions
+     * in a 2x2 block). In both cases, the number of rows and columns of the
+     * grid must be even.
+     *
+     * @param rows          number of rows of the grid
+     * @param cols          number of columns of the grid
+     * @param moore         flag specifying whether the Moore neighbourhood is used
+     * @param synchronous   flag specifying whether to use the synchronous
+     *                      (true) or checkerboard asynchronous (false) model
+     * @return              a matrix whose rows are the update classes, each
+     *                      one containing the indices of its cells
+     */
+    public static int[][] buildUpdateClasses(int rows, int cols, boolean moore,
+            boolean synchronous) {
+
+        if(synchronous) {
+
+            int[][] classes = new int[1][rows*cols];
+            for(int i=0; i<rows*cols; i++) {
+                classes[0][i] = i;
+            }
+
+            return classes;
+
+        }
+
+        if((rows % 2 != 0) || (cols % 2 != 0)) {
+            throw new IllegalArgumentException("The checkerboard update "
+                    + "requires an even number of rows and columns");
+        }
+
+        int nclasses;
+        if(moore) {
+            nclasses = 4;
+        } else {
+            nclasses = 2;
+        }
+
+        int[][] classes = new int[nclasses][rows*cols/nclasses];
+        int[] sizes = new int[nclasses];
+
+        for(int r=0; r<rows; r++) {
+
+            for(int c=0; c<cols; c++) {
+
+                int cl;
+                if(moore) {
+                    cl = 2*(r%2) + (c%2);
+                } else {
+                    cl = (r+c) % 2;
+                }
+                classes[cl][sizes[cl]] = r*cols+c;
+                sizes[cl]++;
+
+            }
+
+        }
+
+        return classes;
+
+    }
+
+    /**
+     * Tournament selection operator restricted to a neighbourhood. The
+     * candidates are drawn at random from the cells of the neighbourhood, and
+     * the two best of them are returned.
+     *
+     * @param neigh         indices of the cells in the neighbourhood
+     * @param fitnesses     array of fitness values of the whole grid
+     * @param tsize         tournament size
+     * @param genrand       a Random instance representing a pseudorandom generator
+     * @param objective     flag specifying whether the objective of the problem
+     *                      is to minimize (false) or maximize (true) the fitness function
+     * @return              the indices of the two winner cells in the grid
+     */
+    public static int[] localTournSelection(int[] neigh, double[] fitnesses,
+            int tsize, Random genrand, boolean objective) {
+
+        int[] candpos = new int[tsize];
+        double[] candfit = new double[tsize];
+
+        //Draw tsize cells at random from the neighbourhood
+        for(int i=0; i<tsize; i++) {
+
+            candpos[i] = neigh[genrand.nextInt(neigh.length)];
+            candfit[i] = fitnesses[candpos[i]];
+
+        }
+
+        //Determine the two winner parents among the candidates
+        int[] winpos;
+        if(objective) {
+            winpos = GeneticTools.findMaxFit2IndivPos(candfit);
+        } else {
+            winpos = GeneticTools.findMinFit2IndivPos(candfit);
+        }
+
+        int[] parents = {candpos[winpos[0]], candpos[winpos[1]]};
+
+        return parents;
+
+    }
+
+}
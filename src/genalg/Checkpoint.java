@@ -0,0 +1,336 @@
+package genalg;
+
+/**
+ * Class for the snapshot of the state of a GA run, used to checkpoint long
+ * runs and to resume them after an interruption. The snapshot contains the
+ * population (truth tables packed in 64-bit words), the fitness values, the
+ * Walsh spectra of the individuals when they are cached (SearchSolution), the
+ * position of the best individual, the evaluation and generation counters and
+ * the full state of the random number generator, so that a resumed run
+ * continues exactly as the original one.
+ *
+ * The binary format is the following (big-endian):
+ * [magic][version][length of tag][tag bytes][nvar][popsize][evals][gen]
+ * [bestpos][length of RNG state][RNG state bytes][packed population]
+ * [fitnesses][spectra flag][spectra][mating pool size][packed mating pool]
+ * where the tag is a string identifying the configuration of the run (e.g. the
+ * command-line parameters), used to refuse resuming with different parameters.
+ *
+ * Populations of binary matrices (e.g. the orthogonal arrays of SteadyGAOA)
+ * are stored with the same format: each matrix is read in row-major order, as
+ * by FitnessCache.fingerprint(), into a table whose length is the smallest
+ * power of 2 not lower than its number of entries, padded with zeros (see
+ * packMatrix() and unpackMatrix()).
+ */
+
+import boolfun.BinTools;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+public class Checkpoint {
+    
+    private static final int MAGIC = 0x47414350;    //"GACP"
+    private static final int VERSION = 1;
+    
+    public String tag;
+    public int nvar;
+    public boolean[][] population;
+    public double[] fitnesses;
+    public int[][] spectra;
+    public boolean[][] matingpool;
+    public int bestpos;
+    public long evals;
+    public long gen;
+    public Random genrand;
+    
+    /**
+     * Create a snapshot of the state of a run. The arrays are not copied, so
+     * the snapshot must be encoded before the GA modifies them again.
+     *
+     * @param tag           string identifying the configuration of the run
+     * @param nvar          number of variables of the boolean functions
+     * @param population    truth tables of the population
+     * @param fitnesses     fitness values of the population
+     * @param spectra       Walsh spectra of the population (null if not cached)
+     * @param matingpool    truth tables used for crossover, when they differ
+     *                      from the population (null otherwise)
+     * @param bestpos       position of the best individual
+     * @param evals         number of fitness evaluations performed
+     * @param gen           number of generations (iterations) performed
+     * @param genrand       the random number generator of the run
+     */
+    public Checkpoint(String tag, int nvar, boolean[][] population,
+            double[] fitnesses, int[][] spectra, boolean[][] matingpool,
+            int bestpos, long evals, long gen, Random genrand) {
+        
+        this.tag = tag;
+        this.nvar = nvar;
+        this.population = population;
+        this.fitnesses = fitnesses;
+        this.spectra = spectra;
+        this.matingpool = matingpool;
+        this.bestpos = bestpos;
+        this.evals = evals;
+        this.gen = gen;
+        this.genrand = genrand;
+        
+    }
+    
+    /**
+     * Encode the snapshot in the binary format. This method is meant to be
+     * called by the GA thread, since it copies the whole state in the
+     * returned buffer, which can then be written in the background.
+     *
+     * @return  a buffer containing the encoded snapshot, ready to be read
+     */
+    public ByteBuffer encode() {
+        
+        byte[] tagbytes = tag.getBytes(StandardCharsets.UTF_8);
+        byte[] rngstate = saveRandom(genrand);
+        int tlength = 1 << nvar;
+        int words = (tlength+63) >>> 6;
+        int poolsize = 0;
+        if(matingpool != null) {
+            poolsize = matingpool.length;
+        }
+        
+        //Compute the size of the snapshot
+        long size = 4L + 4 + 4 + tagbytes.length + 4 + 4 + 8 + 8 + 4 + 4 + rngstate.length;
+        size += 8L*words*population.length + 8L*fitnesses.length + 4;
+        if(spectra != null) {
+            size += 4L*tlength*population.length;
+        }
+        size += 4 + 8L*words*poolsize;
+        if(size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Snapshot too large: "+size+" bytes");
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate((int)size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(tagbytes.length);
+        buffer.put(tagbytes);
+        buffer.putInt(nvar);
+        buffer.putInt(population.length);
+        buffer.putLong(evals);
+        buffer.putLong(gen);
+        buffer.putInt(bestpos);
+        buffer.putInt(rngstate.length);
+        buffer.put(rngstate);
+        
+        for(int i=0; i<population.length; i++) {
+            putTable(buffer, population[i]);
+        }
+        for(int i=0; i<fitnesses.length; i++) {
+            buffer.putDouble(fitnesses[i]);
+        }
+        
+        if(spectra != null) {
+            buffer.putInt(1);
+            for(int i=0; i<spectra.length; i++) {
+                buffer.asIntBuffer().put(spectra[i]);
+                buffer.position(buffer.position() + 4*tlength);
+            }
+        } else {
+            buffer.putInt(0);
+        }
+        
+        buffer.putInt(poolsize);
+        for(int i=0; i<poolsize; i++) {
+            putTable(buffer, matingpool[i]);
+        }
+        
+        buffer.flip();
+        
+        return buffer;
+        
+    }
+    
+    /**
+     * Read a snapshot from a file. The file is memory-mapped, so that the
+     * packed tables and the spectra are copied directly from the page cache.
+     *
+     * @param path  the path of the snapshot file
+     * @return      the decoded snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static Checkpoint read(String path) throws IOException {
+        
+        MappedByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        
+        try {
+            
+            if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(path+" is not a GA snapshot");
+            }
+            
+            byte[] tagbytes = new byte[buffer.getInt()];
+            buffer.get(tagbytes);
+            String tag = new String(tagbytes, StandardCharsets.UTF_8);
+            int nvar = buffer.getInt();
+            int popsize = buffer.getInt();
+            long evals = buffer.getLong();
+            long gen = buffer.getLong();
+            int bestpos = buffer.getInt();
+            byte[] rngstate = new byte[buffer.getInt()];
+            buffer.get(rngstate);
+            int tlength = 1 << nvar;
+            
+            boolean[][] population = new boolean[popsize][];
+            for(int i=0; i<popsize; i++) {
+                population[i] = getTable(buffer, tlength);
+            }
+            double[] fitnesses = new double[popsize];
+            buffer.asDoubleBuffer().get(fitnesses);
+            buffer.position(buffer.position() + 8*popsize);
+            
+            int[][] spectra = null;
+            if(buffer.getInt() != 0) {
+                spectra = new int[popsize][tlength];
+                for(int i=0; i<popsize; i++) {
+                    buffer.asIntBuffer().get(spectra[i]);
+                    buffer.position(buffer.position() + 4*tlength);
+                }
+            }
+            
+            boolean[][] matingpool = null;
+            int poolsize = buffer.getInt();
+            if(poolsize > 0) {
+                matingpool = new boolean[poolsize][];
+                for(int i=0; i<poolsize; i++) {
+                    matingpool[i] = getTable(buffer, tlength);
+                }
+            }
+            
+            return new Checkpoint(tag, nvar, population, fitnesses, spectra,
+                    matingpool, bestpos, evals, gen, loadRandom(rngstate));
+            
+        } catch(RuntimeException e) {
+            
+            //Truncated or corrupted file (e.g. negative lengths)
+            throw new IOException(path+" is not a valid GA snapshot", e);
+            
+        }
+        
+    }
+    
+    /**
+     * Return the number of variables of the tables holding binary matrices of
+     * a given size in a snapshot.
+     *
+     * @param rows  the number of rows of the matrices
+     * @param cols  the number of columns of the matrices
+     * @return      the base 2 logarithm of the length of the tables
+     */
+    public static int matrixVars(int rows, int cols) {
+        
+        return 64 - Long.numberOfLeadingZeros((long)rows*cols - 1);
+        
+    }
+    
+    /**
+     * Read a binary matrix in row-major order into a table of 2^nvar entries,
+     * padded with zeros.
+     *
+     * @param matrix    the binary matrix
+     * @param nvar      the number of variables of the table, as returned by
+     *                  matrixVars()
+     * @return          the table
+     */
+    public static boolean[] packMatrix(boolean[][] matrix, int nvar) {
+        
+        boolean[] table = new boolean[1 << nvar];
+        int cols = matrix[0].length;
+        for(int i=0; i<matrix.length; i++) {
+            System.arraycopy(matrix[i], 0, table, i*cols, cols);
+        }
+        
+        return table;
+        
+    }
+    
+    /**
+     * Rebuild a binary matrix from a table written by packMatrix().
+     *
+     * @param table     the table
+     * @param rows      the number of rows of the matrix
+     * @param cols      the number of columns of the matrix
+     * @return          the binary matrix
+     */
+    public static boolean[][] unpackMatrix(boolean[] table, int rows, int cols) {
+        
+        boolean[][] matrix = new boolean[rows][cols];
+        for(int i=0; i<rows; i++) {
+            System.arraycopy(table, i*cols, matrix[i], 0, cols);
+        }
+        
+        return matrix;
+        
+    }
+    
+    private static void putTable(ByteBuffer buffer, boolean[] table) {
+        
+        long[] words = BinTools.packTable(table);
+        buffer.asLongBuffer().put(words);
+        buffer.position(buffer.position() + 8*words.length);
+        
+    }
+    
+    private static boolean[] getTable(ByteBuffer buffer, int tlength) {
+        
+        long[] words = new long[(tlength+63) >>> 6];
+        LongBuffer view = buffer.asLongBuffer();
+        view.get(words);
+        buffer.position(buffer.position() + 8*words.length);
+        
+        return BinTools.unpackTable(words, tlength);
+        
+    }
+    
+    /**
+     * Serialize the full state of a random number generator (seed and cached
+     * Gaussian value).
+     */
+    private static byte[] saveRandom(Random genrand) {
+        
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(genrand);
+            out.close();
+            return bytes.toByteArray();
+        } catch(IOException e) {
+            //Cannot happen when writing to memory
+            throw new IllegalStateException(e);
+        }
+        
+    }
+    
+    private static Random loadRandom(byte[] state) throws IOException {
+        
+        try {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(state));
+            Random genrand = (Random)in.readObject();
+            in.close();
+            return genrand;
+        } catch(ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Invalid random generator state", e);
+        }
+        
+    }
+    
+}
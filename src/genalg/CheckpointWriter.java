@@ -0,0 +1,110 @@
+package genalg;
+
+/**
+ * Class writing the snapshots of a GA run in the background. The GA thread
+ * encodes a Checkpoint (which copies the state) and hands the buffer to the
+ * writer, which saves it on a background thread. Each snapshot is first
+ * written to a temporary file in the same directory, forced to disk and then
+ * atomically renamed over the previous one, so that an interruption at any
+ * time leaves either the old or the new snapshot, never a partial one. If the
+ * previous snapshot is still being written, the new one waits for it.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class CheckpointWriter {
+    
+    private final Path path;
+    private final Path tmppath;
+    private final ExecutorService executor;
+    private Future<?> pending;
+    
+    /**
+     * Create a writer for the snapshots of a run.
+     *
+     * @param path  the path of the snapshot file
+     */
+    public CheckpointWriter(String path) {
+        
+        this.path = Paths.get(path).toAbsolutePath();
+        this.tmppath = this.path.resolveSibling(this.path.getFileName()+".tmp");
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "checkpoint-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        
+    }
+    
+    /**
+     * Encode a snapshot and schedule it to be written in the background.
+     *
+     * @param checkpoint    the snapshot to be written
+     */
+    public void submit(Checkpoint checkpoint) {
+        
+        final ByteBuffer buffer = checkpoint.encode();
+        waitPending();
+        pending = executor.submit(() -> {
+            write(buffer);
+            return null;
+        });
+        
+    }
+    
+    /**
+     * Wait for the last snapshot to be written and stop the background thread.
+     */
+    public void close() {
+        
+        waitPending();
+        executor.shutdown();
+        
+    }
+    
+    private void write(ByteBuffer buffer) throws IOException {
+        
+        try(FileChannel channel = FileChannel.open(tmppath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmppath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        
+    }
+    
+    /**
+     * Wait for the previous snapshot to be written. A failed write is reported
+     * but does not stop the run, since the previous snapshot is still valid.
+     */
+    private void waitPending() {
+        
+        if(pending == null) {
+            return;
+        }
+        
+        try {
+            pending.get();
+        } catch(ExecutionException e) {
+            System.err.println("Cannot write snapshot "+path+": "+e.getCause());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pending = null;
+        
+    }
+    
+}
@@ -485,6 +485,80 @@ public class CrossoverOperators {
                 
     }
     
+    /**
+     * Wrapper method for crossing over two boolean functions, represented by
+     * their truth tables. For one-point crossover, one of the two children is
+     * returned at random.
+     *
+     * @param parent1   Binary representation of the first parent.
+     * @param parent2   Binary representation of the second parent.
+     * @param weight    Hamming weight of the parents and the child (ignored
+     *                  by one-point crossover)
+     * @param crossop   integer identifier for the crossover operator to be used
+     * @param shuffle   Flag for shuffling positions of the child.
+     * @param genrand   A Random instance representing a pseudorandom generator.
+     * @return          A boolean array representing the child produced
+     *                  by crossover.
+     */
+    public static boolean[] crossoverBF(boolean[] parent1, boolean[] parent2,
+            int weight, int crossop, boolean shuffle, Random genrand) {
+        
+        boolean[] child = new boolean[parent1.length];
+        
+        switch(crossop) {
+            
+            case 0: {
+                
+                //Apply classic one-point crossover. Since this operator
+                //returns two children, select randomly one of them.
+                boolean[][] children = onePointCrossover(genrand, parent1, parent2);
+                
+                if(genrand.nextBoolean()) {
+                    child = children[1];
+                } else {
+                    child = children[0];
+                }
+                
+                break;
+                
+            }
+            
+            case 1: {
+                
+                //Apply balanced crossover operator with counters.
+                child = balancedCounterCrossWeighted(genrand, parent1, parent2,
+                        weight, shuffle);
+                
+                break;
+                
+            }
+            
+            case 2: {
+                
+                //Apply balanced crossover operator with zeros-run length encoding
+                child = balancedZeroLengthsCrossWeighted(genrand, parent1,
+                        parent2, weight, shuffle);
+                
+                break;
+                
+            }
+            
+            case 3: {
+                
+                //Apply balanced crossover operator with map of 1s encoding
+                child = uniformOneMapCrossShuffle(genrand, parent1, parent2,
+                        shuffle);
+                
+                break;
+                
+            }
+            
+        }
+        
+        return child;
+        
+    }
+    
     /**
      * Method used to transpose a matrix. This is used when a new OA offspring is
      * constructed by crossover, since in this case the columns are crossed.
@@ -0,0 +1,258 @@
+package genalg;
+
+/**
+ * Class keeping track of the genomes in a population, in order to reject the
+ * children that are exact copies (clones) of a member before evaluating them.
+ * Each genome is identified by its Zobrist hash, i.e. the XOR of random 64-bit
+ * keys associated to the positions of its 1s, which costs a single pass over
+ * the genome, much less than a Walsh transform or an OA distance.
+ * The hashes of the population are stored in a primitive open addressing hash
+ * set with counters (the initial population may contain clones), and a
+ * positive lookup is confirmed by comparing the genomes, so that a collision
+ * of hashes never rejects a new genome.
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class DuplicateFilter {
+    
+    private static final long KEYSEED = 0x5DEECE66DL;   //fixed seed of the Zobrist keys
+    
+    private final long[] zkeys;
+    private final long[] hashes;     //hash of the member in each position
+    private final long[] setkeys;
+    private final int[] setcounts;
+    private final int mask;
+    private long rejected;
+    
+    /**
+     * Create a filter for a population of binary strings.
+     *
+     * @param population    the population of binary strings
+     */
+    public DuplicateFilter(boolean[][] population) {
+        
+        this(population.length, population[0].length);
+        for(int i=0; i<population.length; i++) {
+            hashes[i] = hash(population[i]);
+            addHash(hashes[i]);
+        }
+        
+    }
+    
+    /**
+     * Create a filter for a population of binary matrices.
+     *
+     * @param population    the population of binary matrices
+     */
+    public DuplicateFilter(boolean[][][] population) {
+        
+        this(population.length, population[0].length*population[0][0].length);
+        for(int i=0; i<population.length; i++) {
+            hashes[i] = hash(population[i]);
+            addHash(hashes[i]);
+        }
+        
+    }
+    
+    private DuplicateFilter(int popsize, int length) {
+        
+        //The keys are drawn from a separate generator, so that the filter
+        //does not change the random sequence of the GA
+        Random keyrand = new Random(KEYSEED);
+        zkeys = new long[length];
+        for(int i=0; i<length; i++) {
+            zkeys[i] = keyrand.nextLong();
+        }
+        
+        hashes = new long[popsize];
+        int buckets = Integer.highestOneBit(popsize) << 2;
+        setkeys = new long[buckets];
+        setcounts = new int[buckets];
+        mask = buckets - 1;
+        
+    }
+    
+    /**
+     * Compute the Zobrist hash of a binary string.
+     *
+     * @param genome    the binary string
+     * @return          the XOR of the keys of the positions set to 1
+     */
+    public long hash(boolean[] genome) {
+        
+        long h = 0L;
+        for(int i=0; i<genome.length; i++) {
+            if(genome[i]) {
+                h ^= zkeys[i];
+            }
+        }
+        
+        return h;
+        
+    }
+    
+    /**
+     * Compute the Zobrist hash of a binary matrix, read in row-major order.
+     *
+     * @param genome    the binary matrix
+     * @return          the XOR of the keys of the entries set to 1
+     */
+    public long hash(boolean[][] genome) {
+        
+        long h = 0L;
+        int cols = genome[0].length;
+        for(int i=0; i<genome.length; i++) {
+            for(int j=0; j<cols; j++) {
+                if(genome[i][j]) {
+                    h ^= zkeys[i*cols+j];
+                }
+            }
+        }
+        
+        return h;
+        
+    }
+    
+    /**
+     * Check whether a binary string is a clone of a member of the population.
+     * If so, the rejection is counted.
+     *
+     * @param genome        the binary string
+     * @param h             its hash
+     * @param population    the population
+     * @return              true if the string is equal to a member
+     */
+    public boolean isDuplicate(boolean[] genome, long h, boolean[][] population) {
+        
+        if(!containsHash(h)) {
+            return false;
+        }
+        
+        for(int i=0; i<hashes.length; i++) {
+            if(hashes[i] == h && Arrays.equals(population[i], genome)) {
+                rejected++;
+                return true;
+            }
+        }
+        
+        return false;
+        
+    }
+    
+    /**
+     * Check whether a binary matrix is a clone of a member of the population.
+     * If so, the rejection is counted.
+     *
+     * @param genome        the binary matrix
+     * @param h             its hash
+     * @param population    the population
+     * @return              true if the matrix is equal to a member
+     */
+    public boolean isDuplicate(boolean[][] genome, long h, boolean[][][] population) {
+        
+        if(!containsHash(h)) {
+            return false;
+        }
+        
+        for(int i=0; i<hashes.length; i++) {
+            if(hashes[i] == h && Arrays.deepEquals(population[i], genome)) {
+                rejected++;
+                return true;
+            }
+        }
+        
+        return false;
+        
+    }
+    
+    /**
+     * Record the replacement of a member of the population.
+     *
+     * @param pos   position of the replaced member
+     * @param h     hash of the new member
+     */
+    public void replace(int pos, long h) {
+        
+        removeHash(hashes[pos]);
+        hashes[pos] = h;
+        addHash(h);
+        
+    }
+    
+    /**
+     * Return the number of children rejected as clones.
+     *
+     * @return  the number of rejected children
+     */
+    public long getRejected() {
+        
+        return rejected;
+        
+    }
+    
+    private int bucket(long h) {
+        
+        return (int)(h ^ (h >>> 32)) & mask;
+        
+    }
+    
+    private boolean containsHash(long h) {
+        
+        int b = bucket(h);
+        while(setcounts[b] != 0) {
+            if(setkeys[b] == h) {
+                return true;
+            }
+            b = (b+1) & mask;
+        }
+        
+        return false;
+        
+    }
+    
+    private void addHash(long h) {
+        
+        int b = bucket(h);
+        while(setcounts[b] != 0) {
+            if(setkeys[b] == h) {
+                setcounts[b]++;
+                return;
+            }
+            b = (b+1) & mask;
+        }
+        setkeys[b] = h;
+        setcounts[b] = 1;
+        
+    }
+    
+    private void removeHash(long h) {
+        
+        int b = bucket(h);
+        while(setkeys[b] != h || setcounts[b] == 0) {
+            b = (b+1) & mask;
+        }
+        
+        setcounts[b]--;
+        if(setcounts[b] > 0) {
+            return;
+        }
+        
+        //Shift back the following entries of the probe sequence
+        int hole = b;
+        b = (b+1) & mask;
+        while(setcounts[b] != 0) {
+            int home = bucket(setkeys[b]);
+            if(((b - home) & mask) >= ((b - hole) & mask)) {
+                setkeys[hole] = setkeys[b];
+                setcounts[hole] = setcounts[b];
+                setcounts[b] = 0;
+                hole = b;
+            }
+            b = (b+1) & mask;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,294 @@
+package genalg;
+
+/**
+ * Class implementing a bounded cache of fitness values, used to avoid
+ * evaluating again genomes that were already evaluated during a run (which
+ * happens frequently when the population has converged). Genomes are
+ * identified by a 128-bit fingerprint of their packed representation, so the
+ * cache stores no genome and its memory is fixed at creation time.
+ *
+ * The entries are kept in primitive arrays and located through an open
+ * addressing index with linear probing. When the cache is full, the entry to
+ * be replaced is chosen with the CLOCK policy (an approximation of LRU): each
+ * entry has a reference bit set on every hit, and the clock hand evicts the
+ * first entry whose bit is not set, clearing the bits it passes over.
+ */
+
+public class FitnessCache {
+    
+    private static final long K1 = 0x9E3779B97F4A7C15L;
+    private static final long K2 = 0xC2B2AE3D27D4EB4FL;
+    
+    private final int capacity;
+    private final long[] keyhi;
+    private final long[] keylo;
+    private final double[] values;
+    private final boolean[] referenced;
+    private final int[] index;          //slot+1 of the entry in each bucket, 0 if empty
+    private final int mask;
+    private int used;
+    private int hand;
+    
+    private final boolean counthits;
+    private long hits;
+    private long misses;
+    private boolean lasthit;
+    
+    /**
+     * Create an empty cache.
+     *
+     * @param capacity      maximum number of fitness values stored
+     * @param counthits     flag specifying whether cache hits must be counted
+     *                      as fitness evaluations in the budget of the run
+     */
+    public FitnessCache(int capacity, boolean counthits) {
+        
+        if(capacity < 1) {
+            throw new IllegalArgumentException("The cache capacity must be positive");
+        }
+        
+        this.capacity = capacity;
+        this.counthits = counthits;
+        keyhi = new long[capacity];
+        keylo = new long[capacity];
+        values = new double[capacity];
+        referenced = new boolean[capacity];
+        
+        //The index has at least twice the buckets of the entries, so that
+        //the probe sequences stay short
+        int buckets = Integer.highestOneBit(capacity) << 2;
+        index = new int[buckets];
+        mask = buckets - 1;
+        
+    }
+    
+    /**
+     * Look up a fitness value by the fingerprint of its genome.
+     *
+     * @param hi    the high 64 bits of the fingerprint
+     * @param lo    the low 64 bits of the fingerprint
+     * @return      the cached fitness value, or NaN if it is not cached
+     */
+    public double get(long hi, long lo) {
+        
+        int slot = find(hi, lo);
+        if(slot < 0) {
+            misses++;
+            lasthit = false;
+            return Double.NaN;
+        }
+        
+        referenced[slot] = true;
+        hits++;
+        lasthit = true;
+        
+        return values[slot];
+        
+    }
+    
+    /**
+     * Store a fitness value by the fingerprint of its genome, evicting an
+     * entry with the CLOCK policy if the cache is full.
+     *
+     * @param hi        the high 64 bits of the fingerprint
+     * @param lo        the low 64 bits of the fingerprint
+     * @param fitness   the fitness value
+     */
+    public void put(long hi, long lo, double fitness) {
+        
+        int slot = find(hi, lo);
+        if(slot >= 0) {
+            values[slot] = fitness;
+            return;
+        }
+        
+        if(used < capacity) {
+            
+            slot = used;
+            used++;
+            
+        } else {
+            
+            //Advance the clock hand up to the first entry not referenced
+            //since the last pass, and remove it from the index
+            while(referenced[hand]) {
+                referenced[hand] = false;
+                hand = (hand+1) % capacity;
+            }
+            slot = hand;
+            hand = (hand+1) % capacity;
+            removeFromIndex(slot);
+            
+        }
+        
+        keyhi[slot] = hi;
+        keylo[slot] = lo;
+        values[slot] = fitness;
+        referenced[slot] = false;
+        
+        int b = bucket(lo);
+        while(index[b] != 0) {
+            b = (b+1) & mask;
+        }
+        index[b] = slot+1;
+        
+    }
+    
+    private int find(long hi, long lo) {
+        
+        int b = bucket(lo);
+        while(index[b] != 0) {
+            int slot = index[b]-1;
+            if(keylo[slot] == lo && keyhi[slot] == hi) {
+                return slot;
+            }
+            b = (b+1) & mask;
+        }
+        
+        return -1;
+        
+    }
+    
+    /**
+     * Remove an entry from the index, shifting back the following entries of
+     * its probe sequence so that no lookup is interrupted by the hole.
+     */
+    private void removeFromIndex(int slot) {
+        
+        int b = bucket(keylo[slot]);
+        while(index[b] != slot+1) {
+            b = (b+1) & mask;
+        }
+        
+        int hole = b;
+        b = (b+1) & mask;
+        while(index[b] != 0) {
+            int home = bucket(keylo[index[b]-1]);
+            //The entry in b can fill the hole if its home bucket does not lie
+            //cyclically in (hole, b]
+            if(((b - home) & mask) >= ((b - hole) & mask)) {
+                index[hole] = index[b];
+                hole = b;
+            }
+            b = (b+1) & mask;
+        }
+        index[hole] = 0;
+        
+    }
+    
+    private int bucket(long lo) {
+        
+        return (int)(lo ^ (lo >>> 32)) & mask;
+        
+    }
+    
+    /**
+     * Compute the 128-bit fingerprint of a binary string, packing its bits in
+     * 64-bit words and mixing them with two independent hash functions.
+     *
+     * @param vect  the binary string
+     * @return      the high and low 64 bits of the fingerprint
+     */
+    public static long[] fingerprint(boolean[] vect) {
+        
+        long h1 = vect.length;
+        long h2 = ~(long)vect.length;
+        long word = 0L;
+        
+        for(int i=0; i<vect.length; i++) {
+            if(vect[i]) {
+                word |= 1L << (i & 63);
+            }
+            if((i & 63) == 63 || i == vect.length-1) {
+                h1 = mix(h1 ^ (word * K1));
+                h2 = mix(h2 + (word ^ K2)) * K1;
+                word = 0L;
+            }
+        }
+        
+        long[] key = {h1, mix(h2)};
+        
+        return key;
+        
+    }
+    
+    /**
+     * Compute the 128-bit fingerprint of a binary matrix, read in row-major
+     * order.
+     *
+     * @param matrix    the binary matrix
+     * @return          the high and low 64 bits of the fingerprint
+     */
+    public static long[] fingerprint(boolean[][] matrix) {
+        
+        int cols = matrix[0].length;
+        int length = matrix.length*cols;
+        long h1 = length ^ ((long)cols << 32);
+        long h2 = ~h1;
+        long word = 0L;
+        
+        for(int i=0; i<length; i++) {
+            if(matrix[i/cols][i%cols]) {
+                word |= 1L << (i & 63);
+            }
+            if((i & 63) == 63 || i == length-1) {
+                h1 = mix(h1 ^ (word * K1));
+                h2 = mix(h2 + (word ^ K2)) * K1;
+                word = 0L;
+            }
+        }
+        
+        long[] key = {h1, mix(h2)};
+        
+        return key;
+        
+    }
+    
+    /**
+     * Finalizer of the 64-bit MurmurHash3 function.
+     */
+    private static long mix(long h) {
+        
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        
+        return h;
+        
+    }
+    
+    /**
+     * Check whether the last lookup was a hit that must not be counted as a
+     * fitness evaluation.
+     *
+     * @return  true if the last lookup was a hit and hits are not counted
+     */
+    public boolean isFreeHit() {
+        
+        return lasthit && !counthits;
+        
+    }
+    
+    public long getHits() {
+        return hits;
+    }
+    
+    public long getMisses() {
+        return misses;
+    }
+    
+    public int size() {
+        return used;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public boolean isCountingHits() {
+        return counthits;
+    }
+    
+}
@@ -7,6 +7,10 @@ package genalg;
 import boolfun.*;
 import oa.*;
 import lon.*;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntToDoubleFunction;
 
 public class FitnessFunctions {
     
@@ -57,6 +61,32 @@ public class FitnessFunctions {
         
     }
     
+    /**
+     * Same as compFitnessBF(), but the Walsh transform of the function is
+     * computed by the fork-join tasks of a pool (see BoolTransf.calcFWTPar()),
+     * which lowers the time of a single evaluation for large nvar (16 and up).
+     * 
+     * @param function  A boolean function, represented by its truth table
+     * @param nvar      number of variables of the boolean function
+     * @param unbal     flag for specifying if unbalancedness must be considered
+     * @param pool      fork-join pool running the transform
+     * @return          the value of nonlinearity of the boolean function
+     */
+    public static double compFitnessBF(boolean[] function, int nvar, boolean unbal,
+            ForkJoinPool pool) {
+        
+        int[] poltable = BinTools.bin2Pol(function);
+        int sprad = BoolTransf.calcFWTPar(poltable, pool);
+        int nl = BoolTransf.calcNL(sprad, nvar);
+        
+        if(unbal) {
+            return nl - Math.abs(poltable[0]);
+        }
+        
+        return nl;
+        
+    }
+    
     /**
      * Compute the fitness of a boolean function. The fitness equals the value
      * of nonlinearity of the function, computed through the Walsh transform,
@@ -161,6 +191,28 @@ public class FitnessFunctions {
         
     }
     
+    /**
+     * Compute the fitness of a boolean function. Same as compFitnessBFGlob(),
+     * but the spectral radius is read from the spectrum carried by the
+     * solution (see SearchSolution.initSpectrum()) instead of scanning the
+     * Walsh transform.
+     * 
+     * @param sol       the solution, with its spectrum initialized
+     * @param unbal     flag for specifying if unbalancedness must be considered
+     * @return          the value of nonlinearity of the boolean function
+     */
+    public static double compFitnessBFSpectrum(SearchSolution sol, boolean unbal) {
+        
+        int nl = BoolTransf.calcNL(sol.getSpectralRadius(), sol.nvar);
+        
+        if(unbal) {
+            return nl - Math.abs(sol.walsht[0]);
+        }
+        
+        return nl;
+        
+    }
+    
     /**
      * Compute the fitness of a boolean function for the bent function problem.
      * fit(f)=sqrt(sum_(w \in F) (2^(nvar/2)-|Wf(w)|)^2)
@@ -253,6 +305,27 @@ public class FitnessFunctions {
     public static double compFitnessOA(boolean[][] matrix, int t, 
             int lambda, int p) {
         
+        return compFitnessOA(matrix, t, lambda, p, Double.POSITIVE_INFINITY);
+        
+    }
+    
+    /**
+     * Same as compFitnessOA(), but the distance of the matrix is computed only
+     * until it reaches a cutoff. In the steady-state GA the cutoff is the
+     * fitness of the worse parent, since a child with a distance not lower
+     * than that is discarded anyway.
+     * 
+     * @param matrix    boolean matrix whose fitness must be computed 
+     * @param t         strength of the OA
+     * @param lambda    index of the OA
+     * @param p         exponent in the L^p norm
+     * @param cutoff    the fitness value at which the computation stops
+     * @return          the distance of the matrix if it is lower than the
+     *                  cutoff, otherwise a partial distance >= cutoff
+     */
+    public static double compFitnessOA(boolean[][] matrix, int t, 
+            int lambda, int p, double cutoff) {
+        
         double fitness = 0.0;
         
         int N = matrix.length;      //matrix rows
@@ -280,7 +353,7 @@ public class FitnessFunctions {
         }
         
         //Step 2: compute the distance of the matrix from being an OA(N,k,2,t)
-        double matdist = OrthogonalArrayTools.calcDistMatrix(nmatrix, 2, t, lambda, p);
+        double matdist = OrthogonalArrayTools.calcDistMatrix(nmatrix, 2, t, lambda, p, cutoff);
         fitness = matdist;
         
         return fitness;
@@ -306,6 +379,66 @@ public class FitnessFunctions {
     public static double compFitnessWPBFunc(int n, boolean[] function, 
             boolean[][][] inmat, int[] sizes, boolean unbflag, boolean fitfun) {
         
+        return compFitnessWPBFunc(n, function, inmat, sizes, unbflag, fitfun,
+                Double.NEGATIVE_INFINITY);
+        
+    }
+    
+    /**
+     * Same as compFitnessWPBFunc(), but the restricted Walsh transforms are
+     * computed only until the fitness is proved not to exceed a cutoff. Both
+     * the minimum and the sum of the nonlinearities can only decrease while
+     * the Walsh coefficients are scanned (the maximum absolute values only
+     * grow), hence the computation stops at the first coefficient for which
+     * the fitness of the coefficients examined so far is <= cutoff.
+     * 
+     * @param n         number of variables
+     * @param function  truth table of the boolean function
+     * @param inmat     the three dimensional boolean inmat containing all
+                        input vectors in weightwise order
+     * @param sizes     sizes of the sets E_{n,k}
+     * @param unbflag   flag used to specify whether the unbalancedness penalty
+     *                  should be incorporated (true) or not (false)
+     * @param fitfun    specifies which fitness function to use for nonlinearity
+     *                  (false: sum, true: min)
+     * @param cutoff    the fitness value at which the computation stops
+     * @return          the fitness of the function if it is greater than the
+     *                  cutoff, otherwise a partial value <= cutoff
+     */
+    public static double compFitnessWPBFunc(int n, boolean[] function, 
+            boolean[][][] inmat, int[] sizes, boolean unbflag, boolean fitfun,
+            double cutoff) {
+        
+        return compFitnessWPBFunc(n, function, inmat, sizes, unbflag, fitfun,
+                cutoff, null);
+        
+    }
+    
+    /**
+     * Same as compFitnessWPBFunc() with a cutoff, but if a pool is given the
+     * restricted Walsh transforms are computed as full Walsh transforms by
+     * its fork-join tasks (see compResNlFitnessPar()), which is much faster
+     * for large n.
+     * 
+     * @param n         number of variables
+     * @param function  truth table of the boolean function
+     * @param inmat     the three dimensional boolean inmat containing all
+                        input vectors in weightwise order
+     * @param sizes     sizes of the sets E_{n,k}
+     * @param unbflag   flag used to specify whether the unbalancedness penalty
+     *                  should be incorporated (true) or not (false)
+     * @param fitfun    specifies which fitness function to use for nonlinearity
+     *                  (false: sum, true: min)
+     * @param cutoff    the fitness value at which the computation stops
+     * @param pool      fork-join pool running the transforms (null: the
+     *                  coefficients are computed one by one)
+     * @return          the fitness of the function if it is greater than the
+     *                  cutoff, otherwise a partial value <= cutoff
+     */
+    public static double compFitnessWPBFunc(int n, boolean[] function, 
+            boolean[][][] inmat, int[] sizes, boolean unbflag, boolean fitfun,
+            double cutoff, ForkJoinPool pool) {
+        
         double fit = 0.0;
         
         if(unbflag) {
@@ -319,30 +452,10 @@ public class FitnessFunctions {
             
             //If the function is WPB, then compute the restricted Walsh transforms
             //for weights 2 ... n/2 and add the sum of nonlinearities
-            if(pen==0) {
-                
-                int[][] reswt = BoolTransf.resWalshTransforms(function, n, inmat);
-                int[] nls = BoolTransf.compResNl(n, reswt, sizes);
-                
-                if(fitfun) {
-                    
-                    //Compute minimum nonlinearity
-                    fit = nls[0];
-                    for(int k=1; k<nls.length; k++) {
-                        if(nls[k]<fit) {
-                            fit = nls[k];
-                        }
-                    }
-                    
-                } else {
-                    
-                    //Compute sum of nonlinearities
-                    for(int k=0; k<nls.length; k++) {
-                        fit += nls[k];
-                    }
-                
-                }
-                
+            if(pen==0 && pool != null) {
+                fit = compResNlFitnessPar(n, function, inmat, sizes, fitfun, cutoff, pool);
+            } else if(pen==0) {
+                fit = compResNlFitness(n, function, inmat, sizes, fitfun, cutoff);
             } else {
                 fit = -pen;
             }
@@ -352,26 +465,64 @@ public class FitnessFunctions {
             //If we don't care about the penalty factor, it means we always
             //have a WPB function, hence compute the restricted Walsh transforms
             //for weights 2 ... n/2 and add the sum of nonlinearities
-            int[][] reswt = BoolTransf.resWalshTransforms(function, n, inmat);
-            int[] nls = BoolTransf.compResNl(n, reswt, sizes);
-            if(fitfun) {
+            if(pool != null) {
+                fit = compResNlFitnessPar(n, function, inmat, sizes, fitfun, cutoff, pool);
+            } else {
+                fit = compResNlFitness(n, function, inmat, sizes, fitfun, cutoff);
+            }
+            
+        }
+        
+        return fit;
+        
+    }
+    
+    /**
+     * Compute the restricted Walsh transforms of a function coefficient by
+     * coefficient, keeping only the maximum absolute value for each weight,
+     * and return the minimum (or the sum) of the restricted nonlinearities.
+     * The computation stops as soon as that value is <= cutoff.
+     */
+    private static double compResNlFitness(int n, boolean[] function,
+            boolean[][][] inmat, int[] sizes, boolean fitfun, double cutoff) {
+        
+        int[] maxabs = new int[(n/2)-1];
+        double fit = resNlFitness(n, maxabs, sizes, fitfun);
+        
+        for(int a = 0; a<function.length; a++) {
+            
+            boolean[] bina = BinTools.dec2BinMod(a, n);
+            boolean changed = false;
+            
+            for(int k=2; k<=(n/2); k++) {
+                
+                int coeff = 0;
+                for(int x=0; x<inmat[k-2].length; x++) {
                     
-                    //Compute minimum nonlinearity
-                    fit = nls[0];
-                    for(int k=1; k<nls.length; k++) {
-                        if(nls[k]<fit) {
-                            fit = nls[k];
-                        }
+                    //Evaluate the term (-1)^{f(x) XOR a.x}
+                    boolean fx = function[BinTools.bin2Dec(inmat[k-2][x])];
+                    boolean dotp = BinTools.scalarProduct(bina, inmat[k-2][x]);
+                    if(fx ^ dotp) {
+                        coeff--;
+                    } else {
+                        coeff++;
                     }
                     
-                } else {
-                    
-                    //Compute sum of nonlinearities
-                    for(int k=0; k<nls.length; k++) {
-                        fit += nls[k];
-                    }
+                }
                 
+                if(Math.abs(coeff) > maxabs[k-2]) {
+                    maxabs[k-2] = Math.abs(coeff);
+                    changed = true;
                 }
+                
+            }
+            
+            if(changed) {
+                fit = resNlFitness(n, maxabs, sizes, fitfun);
+                if(fit <= cutoff) {
+                    return fit;
+                }
+            }
             
         }
         
@@ -379,6 +530,380 @@ public class FitnessFunctions {
         
     }
     
+    /**
+     * Same as compResNlFitness(), but the restricted Walsh transform W_f_k is
+     * computed as the Walsh transform of the polar truth table of f where the
+     * inputs of weight other than k are set to 0, by BoolTransf.calcFWTPar().
+     * Each weight thus takes O(n*2^n) operations instead of O(2^n*|E_{n,k}|).
+     * The computation stops after the first weight for which the fitness of
+     * the weights examined so far is <= cutoff.
+     */
+    private static double compResNlFitnessPar(int n, boolean[] function,
+            boolean[][][] inmat, int[] sizes, boolean fitfun, double cutoff,
+            ForkJoinPool pool) {
+        
+        int[] maxabs = new int[(n/2)-1];
+        int[] vector = new int[function.length];
+        double fit = resNlFitness(n, maxabs, sizes, fitfun);
+        
+        for(int k=2; k<=(n/2); k++) {
+            
+            Arrays.fill(vector, 0);
+            for(int x=0; x<inmat[k-2].length; x++) {
+                int pos = BinTools.bin2Dec(inmat[k-2][x]);
+                vector[pos] = function[pos] ? -1 : 1;
+            }
+            maxabs[k-2] = BoolTransf.calcFWTPar(vector, pool);
+            
+            fit = resNlFitness(n, maxabs, sizes, fitfun);
+            if(fit <= cutoff) {
+                return fit;
+            }
+            
+        }
+        
+        return fit;
+        
+    }
+    
+    /**
+     * Minimum (fitfun true) or sum (fitfun false) of the restricted
+     * nonlinearities, given the maximum absolute values of the restricted
+     * Walsh transforms (as in BoolTransf.compResNl()).
+     */
+    private static double resNlFitness(int n, int[] maxabs, int[] sizes,
+            boolean fitfun) {
+        
+        double fit = 0.0;
+        for(int k=2; k<=(n/2); k++) {
+            
+            int nl = (sizes[k] / 2) - (maxabs[k-2] / 2);
+            if(fitfun) {
+                if(k == 2 || nl < fit) {
+                    fit = nl;
+                }
+            } else {
+                fit += nl;
+            }
+            
+        }
+        
+        return fit;
+        
+    }
+    
+    /**
+     * Cached version of compFitnessBF(). The fitness is looked up in the cache
+     * by the fingerprint of the truth table, and computed (and stored) only if
+     * the function was not evaluated before.
+     * 
+     * @param function  A boolean function, represented by its truth table
+     * @param nvar      number of variables of the boolean function
+     * @param unbal     flag for specifying if unbalancedness must be considered
+     * @param cache     the fitness cache of the run
+     * @return          the value of nonlinearity of the boolean function
+     */
+    public static double compFitnessBFCached(boolean[] function, int nvar,
+            boolean unbal, FitnessCache cache) {
+        
+        return compFitnessBFCached(function, nvar, unbal, cache, null);
+        
+    }
+    
+    /**
+     * Same as compFitnessBFCached(), but the functions not found in the cache
+     * are evaluated by compFitnessBF() with a fork-join pool, if given.
+     * 
+     * @param function  A boolean function, represented by its truth table
+     * @param nvar      number of variables of the boolean function
+     * @param unbal     flag for specifying if unbalancedness must be considered
+     * @param cache     the fitness cache of the run
+     * @param pool      fork-join pool running the transform (null: sequential)
+     * @return          the value of nonlinearity of the boolean function
+     */
+    public static double compFitnessBFCached(boolean[] function, int nvar,
+            boolean unbal, FitnessCache cache, ForkJoinPool pool) {
+        
+        long[] key = FitnessCache.fingerprint(function);
+        double fitness = cache.get(key[0], key[1]);
+        
+        if(Double.isNaN(fitness)) {
+            if(pool != null) {
+                fitness = compFitnessBF(function, nvar, unbal, pool);
+            } else {
+                fitness = compFitnessBF(function, nvar, unbal);
+            }
+            cache.put(key[0], key[1], fitness);
+        }
+        
+        return fitness;
+        
+    }
+    
+    /**
+     * Cached version of compFitnessOA(). The fitness is looked up in the cache
+     * by the fingerprint of the matrix, and computed (and stored) only if the
+     * matrix was not evaluated before.
+     * 
+     * @param matrix    boolean matrix whose fitness must be computed 
+     * @param t         strength of the OA
+     * @param lambda    index of the OA
+     * @param p         exponent in the L^p norm
+     * @param cache     the fitness cache of the run
+     * @return          the distance of the matrix from being an OA
+     */
+    public static double compFitnessOACached(boolean[][] matrix, int t, 
+            int lambda, int p, FitnessCache cache) {
+        
+        return compFitnessOACached(matrix, t, lambda, p, Double.POSITIVE_INFINITY,
+                cache);
+        
+    }
+    
+    /**
+     * Cached version of compFitnessOA() with a cutoff. A partial distance
+     * (i.e., not lower than the cutoff) is not an exact fitness, hence it is
+     * not stored in the cache.
+     * 
+     * @param matrix    boolean matrix whose fitness must be computed 
+     * @param t         strength of the OA
+     * @param lambda    index of the OA
+     * @param p         exponent in the L^p norm
+     * @param cutoff    the fitness value at which the computation stops
+     * @param cache     the fitness cache of the run
+     * @return          the distance of the matrix if it is lower than the
+     *                  cutoff, otherwise a value >= cutoff
+     */
+    public static double compFitnessOACached(boolean[][] matrix, int t, 
+            int lambda, int p, double cutoff, FitnessCache cache) {
+        
+        long[] key = FitnessCache.fingerprint(matrix);
+        double fitness = cache.get(key[0], key[1]);
+        
+        if(Double.isNaN(fitness)) {
+            fitness = compFitnessOA(matrix, t, lambda, p, cutoff);
+            if(fitness < cutoff) {
+                cache.put(key[0], key[1], fitness);
+            }
+        }
+        
+        return fitness;
+        
+    }
+    
+    /**
+     * Cached version of compFitnessWPBFunc(). The fitness is looked up in the
+     * cache by the fingerprint of the truth table, and computed (and stored)
+     * only if the function was not evaluated before.
+     * 
+     * @param n         number of variables
+     * @param function  truth table of the boolean function
+     * @param inmat     the three dimensional boolean inmat containing all
+                        input vectors in weightwise order
+     * @param sizes     sizes of the sets E_{n,k}
+     * @param unbflag   flag used to specify whether the unbalancedness penalty
+     *                  should be incorporated (true) or not (false)
+     * @param fitfun    specifies which fitness function to use for nonlinearity
+     *                  (false: sum, true: min)
+     * @param cache     the fitness cache of the run
+     * @return          the fitness of the function
+     */
+    public static double compFitnessWPBFuncCached(int n, boolean[] function, 
+            boolean[][][] inmat, int[] sizes, boolean unbflag, boolean fitfun,
+            FitnessCache cache) {
+        
+        return compFitnessWPBFuncCached(n, function, inmat, sizes, unbflag,
+                fitfun, Double.NEGATIVE_INFINITY, cache);
+        
+    }
+    
+    /**
+     * Cached version of compFitnessWPBFunc() with a cutoff. A partial value
+     * (i.e., not greater than the cutoff) is not an exact fitness, hence it is
+     * not stored in the cache.
+     * 
+     * @param n         number of variables
+     * @param function  truth table of the boolean function
+     * @param inmat     the three dimensional boolean inmat containing all
+                        input vectors in weightwise order
+     * @param sizes     sizes of the sets E_{n,k}
+     * @param unbflag   flag used to specify whether the unbalancedness penalty
+     *                  should be incorporated (true) or not (false)
+     * @param fitfun    specifies which fitness function to use for nonlinearity
+     *                  (false: sum, true: min)
+     * @param cutoff    the fitness value at which the computation stops
+     * @param cache     the fitness cache of the run
+     * @return          the fitness of the function if it is greater than the
+     *                  cutoff, otherwise a value <= cutoff
+     */
+    public static double compFitnessWPBFuncCached(int n, boolean[] function, 
+            boolean[][][] inmat, int[] sizes, boolean unbflag, boolean fitfun,
+            double cutoff, FitnessCache cache) {
+        
+        return compFitnessWPBFuncCached(n, function, inmat, sizes, unbflag,
+                fitfun, cutoff, cache, null);
+        
+    }
+    
+    /**
+     * Same as compFitnessWPBFuncCached() with a cutoff, but the functions not
+     * found in the cache are evaluated by compFitnessWPBFunc() with a
+     * fork-join pool, if given.
+     * 
+     * @param n         number of variables
+     * @param function  truth table of the boolean function
+     * @param inmat     the three dimensional boolean inmat containing all
+                        input vectors in weightwise order
+     * @param sizes     sizes of the sets E_{n,k}
+     * @param unbflag   flag used to specify whether the unbalancedness penalty
+     *                  should be incorporated (true) or not (false)
+     * @param fitfun    specifies which fitness function to use for nonlinearity
+     *                  (false: sum, true: min)
+     * @param cutoff    the fitness value at which the computation stops
+     * @param cache     the fitness cache of the run
+     * @param pool      fork-join pool running the transforms (null: sequential)
+     * @return          the fitness of the function if it is greater than the
+     *                  cutoff, otherwise a value <= cutoff
+     */
+    public static double compFitnessWPBFuncCached(int n, boolean[] function, 
+            boolean[][][] inmat, int[] sizes, boolean unbflag, boolean fitfun,
+            double cutoff, FitnessCache cache, ForkJoinPool pool) {
+        
+        long[] key = FitnessCache.fingerprint(function);
+        double fitness = cache.get(key[0], key[1]);
+        
+        if(Double.isNaN(fitness)) {
+            fitness = compFitnessWPBFunc(n, function, inmat, sizes, unbflag,
+                    fitfun, cutoff, pool);
+            if(fitness > cutoff) {
+                cache.put(key[0], key[1], fitness);
+            }
+        }
+        
+        return fitness;
+        
+    }
+    
+    /**
+     * Check whether the fitness of a child provably does not exceed a
+     * threshold, without computing its Walsh transform. If the child differs
+     * from a parent in d positions, each Walsh coefficient changes by at most
+     * 2d, hence the nonlinearity of the child is at most NL(parent)+d. When
+     * the fitness also subtracts the unbalancedness |W(0)|, which can
+     * decrease by at most 2d, the bound becomes fit(parent)+3d. The Hamming
+     * distance is only counted until the bound exceeds the threshold.
+     * 
+     * @param child         truth table of the child
+     * @param parent        truth table of the parent
+     * @param parentfit     fitness of the parent
+     * @param threshold     the fitness value to be compared with the bound
+     * @param unbal         flag specifying whether the fitness function
+     *                      subtracts the unbalancedness (the same flag used
+     *                      in compFitnessBF() for both parent and child)
+     * @return              true if the fitness of the child is at most threshold
+     */
+    public static boolean isBoundedBF(boolean[] child, boolean[] parent,
+            double parentfit, double threshold, boolean unbal) {
+        
+        int slope = 1;
+        if(unbal) {
+            slope = 3;
+        }
+        
+        //Maximum distance for which the bound is still below the threshold
+        double maxdist = (threshold - parentfit) / slope;
+        if(maxdist < 0) {
+            return false;
+        }
+        
+        int dist = 0;
+        for(int i=0; i<child.length; i++) {
+            if(child[i] != parent[i]) {
+                dist++;
+                if(dist > maxdist) {
+                    return false;
+                }
+            }
+        }
+        
+        return true;
+        
+    }
+    
+    /**
+     * Same as compFitnessBF(), but also returns the indices of the Walsh
+     * coefficients with the largest absolute values, which are the natural
+     * targets to probe the children of the function (see isBoundedBFProbe()).
+     * 
+     * @param function  A boolean function, represented by its truth table
+     * @param nvar      number of variables of the boolean function
+     * @param unbal     flag for specifying if unbalancedness must be considered
+     * @param targets   array filled with the indices of the largest
+     *                  coefficients, in decreasing order of absolute value
+     * @return          the value of nonlinearity of the boolean function
+     */
+    public static double compFitnessBFTargets(boolean[] function, int nvar,
+            boolean unbal, int[] targets) {
+        
+        int[] poltable = BinTools.bin2Pol(function);
+        int sprad = BoolTransf.calcFWT(poltable, 0, function.length);
+        int nl = BoolTransf.calcNL(sprad, nvar);
+        
+        //Keep the indices of the largest coefficients by insertion, since
+        //only a few targets are needed
+        int found = 0;
+        for(int a=0; a<poltable.length; a++) {
+            int abs = Math.abs(poltable[a]);
+            if(found < targets.length || abs > Math.abs(poltable[targets[found-1]])) {
+                int pos = Math.min(found, targets.length-1);
+                while(pos > 0 && Math.abs(poltable[targets[pos-1]]) < abs) {
+                    targets[pos] = targets[pos-1];
+                    pos--;
+                }
+                targets[pos] = a;
+                if(found < targets.length) {
+                    found++;
+                }
+            }
+        }
+        
+        if(unbal) {
+            return nl - Math.abs(poltable[0]);
+        } else {
+            return nl;
+        }
+        
+    }
+    
+    /**
+     * Check whether the nonlinearity of a child provably does not exceed a
+     * threshold, by computing directly a few of its Walsh coefficients (usually
+     * those where the parents have the largest absolute values). Since the
+     * nonlinearity is 2^(n-1) - max|W(a)|/2, a single coefficient that is
+     * large enough proves the bound, and the full FWT can be skipped. The
+     * bound holds both for the nonlinearity and for the nonlinearity minus
+     * the unbalancedness.
+     * 
+     * @param packed    the packed truth table of the child
+     * @param nvar      number of variables of the child
+     * @param targets   indices of the coefficients to be probed
+     * @param threshold the fitness value to be compared with the bound
+     * @return          true if the fitness of the child is at most threshold
+     */
+    public static boolean isBoundedBFProbe(long[] packed, int nvar,
+            int[] targets, double threshold) {
+        
+        for(int i=0; i<targets.length; i++) {
+            int coeff = BoolTransf.calcWalshCoeff(packed, nvar, targets[i]);
+            if(BoolTransf.calcNL(Math.abs(coeff), nvar) <= threshold) {
+                return true;
+            }
+        }
+        
+        return false;
+        
+    }
+    
     /*---------------------------------------------------------------------------------------*/
     /* THE METHODS BELOW ITERATE THE THREE FITNESS FUNCTIONS OVER POPULATIONS OF INDIVIDUALS */
     /*---------------------------------------------------------------------------------------*/
@@ -396,10 +921,13 @@ public class FitnessFunctions {
             boolean unbal) {
         
         double[] fitnesses = new double[population.length];
+        int size = Math.min(population.length, batchSize(nvar));
+        int[] batch = new int[size << nvar];
         
-        for(int i=0; i<population.length; i++) {
+        for(int from=0; from<population.length; from+=size) {
             
-            fitnesses[i] = compFitnessBF(population[i], nvar, unbal);
+            compFitnessBFBatch(population, from, Math.min(size, population.length-from),
+                    nvar, unbal, batch, fitnesses, null);
             
         }
         
@@ -407,6 +935,74 @@ public class FitnessFunctions {
         
     }
     
+    /**
+     * Compute the fitness of a batch of boolean functions of a population, as
+     * compFitnessBF() does, but with a single transform of all of them laid
+     * out interleaved (see BoolTransf.calcFWTBatch()). The results are
+     * written at the indices of the functions in the population.
+     * 
+     * @param population    a boolean matrix containing the boolean functions in the population
+     * @param from          index of the first function of the batch
+     * @param count         number of functions in the batch
+     * @param nvar          number of variables of the functions
+     * @param unbal         unbalancedness flag for fitness function
+     * @param batch         buffer of at least count*2^nvar entries
+     * @param fitnesses     the array where the fitness values are written
+     * @param walsht        the arrays where the Walsh transforms are written
+     *                      (null if not needed)
+     */
+    public static void compFitnessBFBatch(boolean[][] population, int from,
+            int count, int nvar, boolean unbal, int[] batch, double[] fitnesses,
+            int[][] walsht) {
+        
+        int length = 1 << nvar;
+        
+        //Step 1: interleave the polar truth tables (0 -> 1, 1 -> -1)
+        for(int b=0; b<count; b++) {
+            boolean[] function = population[from+b];
+            for(int x=0; x<length; x++) {
+                batch[x*count+b] = function[x] ? -1 : 1;
+            }
+        }
+        
+        //Step 2: transform all the functions
+        BoolTransf.calcFWTBatch(batch, count, length);
+        
+        //Step 3: find the spectral radii, again with unit stride
+        int[] sprads = new int[count];
+        for(int x=0; x<length; x++) {
+            int p = x*count;
+            for(int b=0; b<count; b++) {
+                sprads[b] = Math.max(sprads[b], Math.abs(batch[p+b]));
+            }
+        }
+        
+        //Step 4: compute the fitness values as in compFitnessBF(), and copy
+        //back the transforms if requested
+        for(int b=0; b<count; b++) {
+            int nl = BoolTransf.calcNL(sprads[b], nvar);
+            fitnesses[from+b] = unbal ? nl - Math.abs(batch[b]) : nl;
+            if(walsht != null) {
+                int[] coeffs = walsht[from+b];
+                for(int x=0; x<length; x++) {
+                    coeffs[x] = batch[x*count+b];
+                }
+            }
+        }
+        
+    }
+    
+    /**
+     * Return the number of functions of nvar variables transformed together by
+     * compFitnessBFBatch(): up to 2^16 entries, so that the batch stays in the
+     * L2 cache, and at most 256 functions.
+     */
+    private static int batchSize(int nvar) {
+        
+        return Math.max(1, Math.min(256, (1 << 16) >> nvar));
+        
+    }
+    
     
     /**
      * Compute the fitness of a population of boolean functions (ie, iterates
@@ -421,11 +1017,27 @@ public class FitnessFunctions {
             boolean unbal) {
         
         double[] fitnesses = new double[population.length];
+        int[][] walsht = new int[population.length][];
         SearchSolution[] populationSS = new SearchSolution[population.length];
         for(int i=0; i<population.length; i++) {
             
-            fitnesses[i] = compFitnessBent(population[i], nvar, unbal);
-            populationSS[i] = compFitnessBF_SS(population[i], nvar, unbal);
+            populationSS[i] = new SearchSolution(nvar);
+            System.arraycopy(population[i], 0, populationSS[i].function, 0, population[i].length);
+            walsht[i] = populationSS[i].walsht;
+            
+        }
+        
+        //The transforms are written directly in the solutions
+        int size = Math.min(population.length, batchSize(nvar));
+        int[] batch = new int[size << nvar];
+        for(int from=0; from<population.length; from+=size) {
+            
+            compFitnessBFBatch(population, from, Math.min(size, population.length-from),
+                    nvar, unbal, batch, fitnesses, walsht);
+            
+        }
+        for(int i=0; i<population.length; i++) {
+            populationSS[i].fitness = fitnesses[i];
         }
         
         return populationSS;
@@ -489,4 +1101,196 @@ public class FitnessFunctions {
         
     }
     
+    /*-----------------------------------------------------------------------------------*/
+    /* THE METHODS BELOW EVALUATE A BATCH OF INDIVIDUALS IN PARALLEL WITH FORK-JOIN TASKS */
+    /*-----------------------------------------------------------------------------------*/
+    
+    /**
+     * Fork-join task evaluating the individuals in the index range [from,to)
+     * of a batch. The range is split in halves until it contains at most
+     * grain individuals, which are then evaluated sequentially.
+     */
+    private static class BatchEvalTask extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final IntToDoubleFunction evaluator;
+        private final double[] fitnesses;
+        private final int from;
+        private final int to;
+        private final int grain;
+        
+        BatchEvalTask(IntToDoubleFunction evaluator, double[] fitnesses,
+                int from, int to, int grain) {
+            this.evaluator = evaluator;
+            this.fitnesses = fitnesses;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+        
+        @Override
+        protected void compute() {
+            
+            if(to - from <= grain) {
+                
+                for(int i=from; i<to; i++) {
+                    fitnesses[i] = evaluator.applyAsDouble(i);
+                }
+                
+            } else {
+                
+                int mid = (from + to) >>> 1;
+                invokeAll(new BatchEvalTask(evaluator, fitnesses, from, mid, grain),
+                        new BatchEvalTask(evaluator, fitnesses, mid, to, grain));
+                
+            }
+            
+        }
+        
+    }
+    
+    /**
+     * Evaluate a batch of individuals in parallel on a fork-join pool. The
+     * evaluator receives the index of an individual in the batch and returns
+     * its fitness; since every fitness is written in its own cell, the
+     * result does not depend on the number of threads of the pool.
+     * 
+     * @param size          number of individuals in the batch
+     * @param evaluator     fitness function applied to each index of the batch
+     * @param pool          fork-join pool used to run the evaluations
+     * @return              an array of fitness, one for each individual in the batch
+     */
+    public static double[] compFitnessBatchPar(int size,
+            IntToDoubleFunction evaluator, ForkJoinPool pool) {
+        
+        double[] fitnesses = new double[size];
+        
+        //Use a few tasks per worker thread, so that the load is balanced
+        //also when the evaluation times of the individuals differ
+        int grain = Math.max(1, size / (4 * pool.getParallelism()));
+        pool.invoke(new BatchEvalTask(evaluator, fitnesses, 0, size, grain));
+        
+        return fitnesses;
+        
+    }
+    
+    /**
+     * Parallel version of compFitnessBFPop().
+     * 
+     * @param population    a boolean matrix containing the boolean functions in the population
+     * @param nvar          number of variables of the functions
+     * @param unbal         unbalancedness flag for fitness function
+     * @param pool          fork-join pool used to run the evaluations
+     * @return              an array of fitness, one for each function in the population
+     */
+    public static double[] compFitnessBFPopPar(boolean[][] population, int nvar,
+            boolean unbal, ForkJoinPool pool) {
+        
+        double[] fitnesses = new double[population.length];
+        
+        //Batches small enough to give a few of them to each worker thread
+        int size = Math.max(1, Math.min(batchSize(nvar),
+                population.length / (4 * pool.getParallelism())));
+        int batches = (population.length + size - 1) / size;
+        pool.invoke(new BFBatchTask(population, nvar, unbal, fitnesses, size, 0, batches));
+        
+        return fitnesses;
+        
+    }
+    
+    /**
+     * Fork-join task evaluating the batches of boolean functions in the index
+     * range [from,to) with compFitnessBFBatch(). The range is split in halves
+     * until it contains a single batch.
+     */
+    private static class BFBatchTask extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final boolean[][] population;
+        private final int nvar;
+        private final boolean unbal;
+        private final double[] fitnesses;
+        private final int size;
+        private final int from;
+        private final int to;
+        
+        BFBatchTask(boolean[][] population, int nvar, boolean unbal,
+                double[] fitnesses, int size, int from, int to) {
+            this.population = population;
+            this.nvar = nvar;
+            this.unbal = unbal;
+            this.fitnesses = fitnesses;
+            this.size = size;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            
+            if(to - from <= 1) {
+                
+                for(int k=from; k<to; k++) {
+                    int first = k*size;
+                    int count = Math.min(size, population.length-first);
+                    compFitnessBFBatch(population, first, count, nvar, unbal,
+                            new int[count << nvar], fitnesses, null);
+                }
+                
+            } else {
+                
+                int mid = (from + to) >>> 1;
+                invokeAll(new BFBatchTask(population, nvar, unbal, fitnesses, size, from, mid),
+                        new BFBatchTask(population, nvar, unbal, fitnesses, size, mid, to));
+                
+            }
+            
+        }
+        
+    }
+    
+    /**
+     * Parallel version of compFitnessOAPop().
+     * 
+     * @param population    a boolean three-dimensional matrix containing the boolean matrices in the population
+     * @param t             strength of the OA
+     * @param lambda        index of the OA
+     * @param p             exponent used in the L^p norm
+     * @param pool          fork-join pool used to run the evaluations
+     * @return              an array of fitness, one for each matrix in the population
+     */
+    public static double[] compFitnessOAPopPar(boolean[][][] population, int t,
+            int lambda, int p, ForkJoinPool pool) {
+        
+        return compFitnessBatchPar(population.length,
+                i -> compFitnessOA(population[i], t, lambda, p), pool);
+        
+    }
+    
+    /**
+     * Parallel version of compFitnessWPBFuncPop().
+     * 
+     * @param population    a boolean matrix containing the boolean functions in the population
+     * @param n             number of variables of the functions
+     * @param inmat         the three dimensional boolean inmat containing all
+                            input vectors in weightwise order
+     * @param sizes         sizes of the sets E_{n,k}
+     * @param unbal         unbalancedness flag for fitness function
+     * @param fitfun        specifies which fitness function to use for nonlinearity
+     *                      (false: sum, true: min)
+     * @param pool          fork-join pool used to run the evaluations
+     * @return              an array of fitness, one for each function in the population
+     */
+    public static double[] compFitnessWPBFuncPopPar(boolean[][] population,
+            int n, boolean[][][] inmat, int[] sizes, boolean unbal,
+            boolean fitfun, ForkJoinPool pool) {
+        
+        return compFitnessBatchPar(population.length,
+                i -> compFitnessWPBFunc(n, population[i], inmat, sizes, unbal,
+                        fitfun), pool);
+        
+    }
+    
 }
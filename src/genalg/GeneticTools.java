@@ -215,6 +215,50 @@ public class GeneticTools {
         
     }
     
+    /**
+     * Tournament selection operator returning the positions in the population
+     * of the two winners of the tournament.
+     * 
+     * NOTICE: tournSelection() above returns the positions of the winners
+     * inside the tournament pool instead. This method maps them back to the
+     * population, and it is the one used by the generational and cellular GAs.
+     * 
+     * @param popsize       size of the population
+     * @param fitnesses     array of fitness values of the population
+     * @param tsize         tournament size
+     * @param genrand       a Random instance representing a pseudorandom generator
+     * @param objective     flag specifying whether the objective of the problem
+     *                      is to minimize (false) or maximize (true) the fitness function
+     * @return              the positions in the population of the two winners
+     */
+    public static int[] tournSelectionPop(int popsize, double[] fitnesses,
+            int tsize, Random genrand, boolean objective) {
+        
+        int[] candpos = new int[tsize];
+        double[] candfit = new double[tsize];
+        
+        //Draw tsize individual at random from the population
+        for(int i=0; i<tsize; i++) {
+            
+            candpos[i] = genrand.nextInt(popsize);
+            candfit[i] = fitnesses[candpos[i]];
+            
+        }
+        
+        //Determine the two winners in the pool, and map them to the population
+        int[] winpos;
+        if(objective) {
+            winpos = findMaxFit2IndivPos(candfit);
+        } else {
+            winpos = findMinFit2IndivPos(candfit);
+        }
+        
+        int[] parents = {candpos[winpos[0]], candpos[winpos[1]]};
+        
+        return parents;
+        
+    }
+    
     /**
      * Tournament selection operator. Returns an array containing the positions
      * of the individuals selected for the tournament.
@@ -342,6 +386,100 @@ public class GeneticTools {
         
     }
     
+    /**
+     * Survivor selection operator for the (mu+lambda) generational model.
+     * The mu parents and the lambda children are ranked together by fitness,
+     * and the mu best ones survive. Since the current best individual always
+     * ranks first, the operator is elitist. Ties are broken in favour of the
+     * children (and then by position), so that the population can drift on
+     * fitness plateaus.
+     * 
+     * @param parentfit     array of fitness values of the mu parents
+     * @param childfit      array of fitness values of the lambda children
+     * @param objective     flag specifying whether the objective of the problem
+     *                      is to minimize (false) or maximize (true) the fitness function
+     * @return              the positions of the mu survivors sorted from best to
+     *                      worst. A position p < mu denotes the parent p, while
+     *                      a position p >= mu denotes the child p-mu
+     */
+    public static int[] plusSelection(double[] parentfit, double[] childfit,
+            boolean objective) {
+        
+        int mu = parentfit.length;
+        int lambda = childfit.length;
+        
+        //Merge the fitness values of parents and children, listing the
+        //children first so that the stable sort below favours them on ties
+        int[] cands = new int[mu+lambda];
+        double[] candfit = new double[mu+lambda];
+        for(int i=0; i<lambda; i++) {
+            cands[i] = mu+i;
+            candfit[i] = childfit[i];
+        }
+        for(int i=0; i<mu; i++) {
+            cands[lambda+i] = i;
+            candfit[lambda+i] = parentfit[i];
+        }
+        
+        //Stable bottom-up merge sort of the candidates, best first
+        int[] order = new int[cands.length];
+        int[] temp = new int[cands.length];
+        for(int i=0; i<order.length; i++) {
+            order[i] = i;
+        }
+        for(int width=1; width<order.length; width*=2) {
+            
+            for(int lo=0; lo<order.length; lo+=2*width) {
+                
+                int mid = Math.min(lo+width, order.length);
+                int hi = Math.min(lo+2*width, order.length);
+                int l = lo;
+                int r = mid;
+                
+                for(int k=lo; k<hi; k++) {
+                    
+                    boolean takeright = false;
+                    if(l >= mid) {
+                        takeright = true;
+                    } else {
+                        if(r < hi) {
+                            //Take from the right run only if strictly better
+                            if(objective) {
+                                takeright = candfit[order[r]] > candfit[order[l]];
+                            } else {
+                                takeright = candfit[order[r]] < candfit[order[l]];
+                            }
+                        }
+                    }
+                    
+                    if(takeright) {
+                        temp[k] = order[r];
+                        r++;
+                    } else {
+                        temp[k] = order[l];
+                        l++;
+                    }
+                    
+                }
+                
+            }
+            
+            int[] swap = order;
+            order = temp;
+            temp = swap;
+            
+        }
+        
+        //Keep the mu best candidates
+        int[] survivors = new int[mu];
+        for(int i=0; i<mu; i++) {
+            survivors[i] = cands[order[i]];
+        }
+        
+        return survivors;
+        
+    }
+    
     /**
      * Create a population of balanced bitstrings.
      * 
@@ -0,0 +1,555 @@
+package island;
+
+/**
+ * Class implementing the migration layer of a distributed island model. Each
+ * island (i.e. each GA process) owns a node, which listens for migrants on a
+ * TCP port and sends its own emigrants to a static list of peers. All network
+ * operations are performed by a background thread using non-blocking
+ * channels: the GA thread only serializes a batch of emigrants in a queue
+ * with offer(), and collects the received migrants with pollMigrant(), so that
+ * the evaluation loop is never stalled by the network. A peer that crashes or
+ * is not started yet is simply reconnected later, and the batches addressed
+ * to it are kept in a bounded queue in the meantime. Likewise, the received
+ * migrants are kept in a bounded queue, from which the oldest ones are dropped
+ * if the GA does not collect them fast enough.
+ *
+ * The genomes are exchanged as arrays of 64-bit words (e.g. truth tables packed
+ * with BinTools.packTable()). Each batch is sent as a single frame:
+ * [frame length][number of migrants][words per genome], followed by the
+ * fitness and the words of each migrant.
+ */
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MigrationNode implements Runnable {
+    
+    /**
+     * A migrant received from a peer, with its fitness value.
+     */
+    public static class Migrant {
+        
+        public final long[] genome;
+        public final double fitness;
+        
+        public Migrant(long[] genome, double fitness) {
+            this.genome = genome;
+            this.fitness = fitness;
+        }
+        
+    }
+    
+    /**
+     * Outgoing connection towards a peer, with the batches waiting to be sent.
+     */
+    private static class PeerLink {
+        
+        final InetSocketAddress address;
+        final ArrayDeque<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+        SocketChannel channel;
+        SelectionKey key;
+        boolean connected;
+        long nextattempt;
+        
+        PeerLink(InetSocketAddress address) {
+            this.address = address;
+        }
+        
+    }
+    
+    /**
+     * Incremental reader of the frames arriving on an incoming connection.
+     */
+    private static class FrameReader {
+        
+        final ByteBuffer header = ByteBuffer.allocate(4);
+        ByteBuffer body;
+        
+    }
+    
+    private static final long RECONNECT_DELAY = 500;    //milliseconds between two connection attempts to a peer
+    private static final int MAX_PENDING = 64;          //maximum number of batches queued for a peer
+    private static final int MAX_INBOX = 4096;          //maximum number of received migrants queued for the GA
+    private static final int MAX_FRAME = 1 << 26;       //maximum size in bytes of a frame
+    
+    private final InetSocketAddress bindaddr;
+    private final PeerLink[] links;
+    private final int words;
+    
+    private final ConcurrentLinkedQueue<ByteBuffer> outbox = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final ArrayBlockingQueue<Migrant> inbox = new ArrayBlockingQueue<Migrant>(MAX_INBOX);
+    
+    private final AtomicLong sentbatches = new AtomicLong();
+    private final AtomicLong recvmigrants = new AtomicLong();
+    private final AtomicLong droppedbatches = new AtomicLong();
+    private final AtomicLong droppedmigrants = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean running;
+    
+    /**
+     * Create a migration node. The node does not open any socket until
+     * start() is called.
+     *
+     * @param port      TCP port on which the node listens for migrants
+     * @param peers     addresses of the peers to which emigrants are sent
+     * @param words     number of 64-bit words of each genome
+     */
+    public MigrationNode(int port, InetSocketAddress[] peers, int words) {
+        
+        this.bindaddr = new InetSocketAddress(port);
+        this.words = words;
+        this.links = new PeerLink[peers.length];
+        for(int i=0; i<peers.length; i++) {
+            links[i] = new PeerLink(peers[i]);
+        }
+        
+    }
+    
+    /**
+     * Parse a static list of peers, given as comma-separated host:port pairs.
+     * The string "none" denotes an empty list.
+     *
+     * @param list  the list of peers
+     * @return      the addresses of the peers
+     */
+    public static InetSocketAddress[] parsePeers(String list) {
+        
+        if(list.equals("none") || list.isEmpty()) {
+            return new InetSocketAddress[0];
+        }
+        
+        String[] entries = list.split(",");
+        InetSocketAddress[] peers = new InetSocketAddress[entries.length];
+        for(int i=0; i<entries.length; i++) {
+            int sep = entries[i].lastIndexOf(':');
+            String host = entries[i].substring(0, sep).trim();
+            int port = Integer.parseInt(entries[i].substring(sep+1).trim());
+            peers[i] = InetSocketAddress.createUnresolved(host, port);
+        }
+        
+        return peers;
+        
+    }
+    
+    /**
+     * Bind the listening port and start the background network thread.
+     *
+     * @throws IOException if the listening port cannot be bound
+     */
+    public void start() throws IOException {
+        
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        server.bind(bindaddr);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        
+        running = true;
+        thread = new Thread(this, "migration-"+bindaddr.getPort());
+        thread.setDaemon(true);
+        thread.start();
+        
+    }
+    
+    /**
+     * Stop the background thread and close all connections. The batches that
+     * have not been sent yet are discarded.
+     */
+    public void close() {
+        
+        running = false;
+        if(selector != null) {
+            selector.wakeup();
+        }
+        if(thread != null) {
+            try {
+                thread.join(2000);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+    }
+    
+    /**
+     * Queue a batch of emigrants to be sent to all peers. The method only
+     * serializes the batch and returns immediately.
+     *
+     * @param genomes       the genomes of the emigrants, as arrays of words
+     * @param fitnesses     the fitness values of the emigrants
+     * @throws IllegalStateException if the node is not started or is closed
+     */
+    public void offer(long[][] genomes, double[] fitnesses) {
+        
+        if(!running) {
+            throw new IllegalStateException("The migration node is not running");
+        }
+        if(links.length == 0 || genomes.length == 0) {
+            return;
+        }
+        
+        int size = 8 + genomes.length*(8 + 8*words);
+        ByteBuffer frame = ByteBuffer.allocate(4 + size);
+        frame.putInt(size);
+        frame.putInt(genomes.length);
+        frame.putInt(words);
+        for(int i=0; i<genomes.length; i++) {
+            frame.putDouble(fitnesses[i]);
+            for(int w=0; w<words; w++) {
+                frame.putLong(genomes[i][w]);
+            }
+        }
+        frame.flip();
+        
+        outbox.add(frame);
+        selector.wakeup();
+        
+    }
+    
+    /**
+     * Retrieve the next migrant received from the peers, if any.
+     *
+     * @return  the next migrant, or null if no migrant is available
+     */
+    public Migrant pollMigrant() {
+        
+        return inbox.poll();
+        
+    }
+    
+    public long getSentBatches() {
+        return sentbatches.get();
+    }
+    
+    public long getReceivedMigrants() {
+        return recvmigrants.get();
+    }
+    
+    public long getDroppedBatches() {
+        return droppedbatches.get();
+    }
+    
+    public long getDroppedMigrants() {
+        return droppedmigrants.get();
+    }
+    
+    public long getFailures() {
+        return failures.get();
+    }
+    
+    /**
+     * Main loop of the network thread.
+     */
+    @Override
+    public void run() {
+        
+        while(running) {
+            
+            try {
+                
+                selector.select(100);
+                
+                //Step 1: serve the channels that are ready
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while(it.hasNext()) {
+                    
+                    SelectionKey key = it.next();
+                    it.remove();
+                    
+                    if(!key.isValid()) {
+                        continue;
+                    }
+                    
+                    if(key.isAcceptable()) {
+                        
+                        SocketChannel channel = server.accept();
+                        if(channel != null) {
+                            channel.configureBlocking(false);
+                            channel.register(selector, SelectionKey.OP_READ, new FrameReader());
+                        }
+                        
+                    } else if(key.attachment() instanceof PeerLink) {
+                        
+                        serveLink((PeerLink)key.attachment(), key);
+                        
+                    } else {
+                        
+                        readFrames((FrameReader)key.attachment(), key);
+                        
+                    }
+                    
+                }
+                
+                //Step 2: dispatch the new batches to the queues of all peers
+                ByteBuffer frame;
+                while((frame = outbox.poll()) != null) {
+                    
+                    for(int i=0; i<links.length; i++) {
+                        
+                        //If a peer is unreachable for a long time, keep only
+                        //its most recent batches. A batch that is partially
+                        //written is never dropped, or the next one would
+                        //start in the middle of its frame
+                        if(links[i].pending.size() >= MAX_PENDING) {
+                            ByteBuffer head = links[i].pending.poll();
+                            if(head.position() > 0) {
+                                links[i].pending.poll();
+                                links[i].pending.addFirst(head);
+                            }
+                            droppedbatches.incrementAndGet();
+                        }
+                        links[i].pending.add(frame.duplicate());
+                        if(links[i].connected) {
+                            links[i].key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        }
+                        
+                    }
+                    
+                }
+                
+                //Step 3: (re)connect to the peers that are not connected
+                long now = System.currentTimeMillis();
+                for(int i=0; i<links.length; i++) {
+                    if(links[i].channel == null && now >= links[i].nextattempt) {
+                        connect(links[i]);
+                    }
+                }
+                
+            } catch(IOException e) {
+                
+                //Errors of single connections are handled where they occur,
+                //hence this can only be a failure of the selector itself
+                failures.incrementAndGet();
+                
+            }
+            
+        }
+        
+        //Close all channels
+        try {
+            for(SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch(IOException e) {
+            failures.incrementAndGet();
+        }
+        
+    }
+    
+    /**
+     * Open a non-blocking connection towards a peer.
+     */
+    private void connect(PeerLink link) {
+        
+        try {
+            
+            InetSocketAddress address = new InetSocketAddress(
+                    link.address.getHostString(), link.address.getPort());
+            link.channel = SocketChannel.open();
+            link.channel.configureBlocking(false);
+            link.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            if(link.channel.connect(address)) {
+                link.connected = true;
+                link.key = link.channel.register(selector, interestOps(link), link);
+            } else {
+                link.key = link.channel.register(selector, SelectionKey.OP_CONNECT, link);
+            }
+            
+        } catch(IOException e) {
+            
+            dropLink(link);
+            
+        }
+        
+    }
+    
+    /**
+     * Handle the events of an outgoing connection: completion of the
+     * connection, batches to be written, and closure by the peer.
+     */
+    private void serveLink(PeerLink link, SelectionKey key) {
+        
+        try {
+            
+            if(key.isConnectable()) {
+                link.channel.finishConnect();
+                link.connected = true;
+                key.interestOps(interestOps(link));
+                return;
+            }
+            
+            if(key.isReadable()) {
+                //Peers never write on this connection: a read can only
+                //detect that the peer has closed it
+                ByteBuffer scratch = ByteBuffer.allocate(64);
+                if(link.channel.read(scratch) < 0) {
+                    dropLink(link);
+                    return;
+                }
+            }
+            
+            if(key.isValid() && key.isWritable()) {
+                
+                while(!link.pending.isEmpty()) {
+                    ByteBuffer head = link.pending.peek();
+                    link.channel.write(head);
+                    if(head.hasRemaining()) {
+                        break;
+                    }
+                    link.pending.poll();
+                    sentbatches.incrementAndGet();
+                }
+                key.interestOps(interestOps(link));
+                
+            }
+            
+        } catch(IOException e) {
+            
+            dropLink(link);
+            
+        }
+        
+    }
+    
+    private static int interestOps(PeerLink link) {
+        
+        if(link.pending.isEmpty()) {
+            return SelectionKey.OP_READ;
+        } else {
+            return SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        }
+        
+    }
+    
+    /**
+     * Close a broken outgoing connection and schedule a new attempt. A batch
+     * that was partially written is sent again from the start on the next
+     * connection.
+     */
+    private void dropLink(PeerLink link) {
+        
+        failures.incrementAndGet();
+        if(link.key != null) {
+            link.key.cancel();
+        }
+        if(link.channel != null) {
+            try {
+                link.channel.close();
+            } catch(IOException e) {
+                //Nothing else can be done on a broken channel
+            }
+        }
+        if(!link.pending.isEmpty()) {
+            link.pending.peek().rewind();
+        }
+        link.channel = null;
+        link.key = null;
+        link.connected = false;
+        link.nextattempt = System.currentTimeMillis() + RECONNECT_DELAY;
+        
+    }
+    
+    /**
+     * Read all the frames available on an incoming connection, and put the
+     * decoded migrants in the inbox.
+     */
+    private void readFrames(FrameReader reader, SelectionKey key) {
+        
+        SocketChannel channel = (SocketChannel)key.channel();
+        
+        try {
+            
+            while(true) {
+                
+                if(reader.body == null) {
+                    
+                    if(channel.read(reader.header) < 0) {
+                        throw new IOException("Connection closed by the peer");
+                    }
+                    if(reader.header.hasRemaining()) {
+                        return;
+                    }
+                    int size = reader.header.getInt(0);
+                    if(size < 8 || size > MAX_FRAME) {
+                        throw new IOException("Invalid frame size: "+size);
+                    }
+                    reader.body = ByteBuffer.allocate(size);
+                    
+                }
+                
+                if(channel.read(reader.body) < 0) {
+                    throw new IOException("Connection closed by the peer");
+                }
+                if(reader.body.hasRemaining()) {
+                    return;
+                }
+                
+                decodeFrame(reader.body);
+                reader.header.clear();
+                reader.body = null;
+                
+            }
+            
+        } catch(IOException e) {
+            
+            key.cancel();
+            try {
+                channel.close();
+            } catch(IOException e1) {
+                //Nothing else can be done on a broken channel
+            }
+            
+        }
+        
+    }
+    
+    private void decodeFrame(ByteBuffer body) {
+        
+        body.flip();
+        int count = body.getInt();
+        int fwords = body.getInt();
+        
+        //Discard batches of genomes with a different length
+        if(fwords != words || body.remaining() != count*(8 + 8*words)) {
+            droppedbatches.incrementAndGet();
+            return;
+        }
+        
+        for(int i=0; i<count; i++) {
+            double fitness = body.getDouble();
+            long[] genome = new long[words];
+            for(int w=0; w<words; w++) {
+                genome[w] = body.getLong();
+            }
+            Migrant migrant = new Migrant(genome, fitness);
+            recvmigrants.incrementAndGet();
+            
+            //If the GA does not collect the migrants fast enough, keep only
+            //the most recent ones
+            while(!inbox.offer(migrant)) {
+                if(inbox.poll() != null) {
+                    droppedmigrants.incrementAndGet();
+                }
+            }
+        }
+        
+    }
+    
+}
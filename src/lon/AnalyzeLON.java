@@ -0,0 +1,78 @@
+package lon;
+
+/**
+ *
+ * Class to compute the metrics of a local optima network saved by SampleLON.
+ * The metrics are printed and appended as a row of tab-separated values to a
+ * CSV file without header, one row per network, as the all_results.csv files
+ * of the experiments. The columns are: nvar, nodes, edges, global optimum
+ * fitness, global optima, funnels, global funnels, global basin size
+ * (fraction of the nodes), in-strength of the global optima (fraction of the
+ * weight of the escape edges), PageRank of the global optima, mean escape
+ * rate.
+ *
+ */
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.ForkJoinPool;
+
+public class AnalyzeLON {
+    
+    public static void main(String[] args) throws IOException {
+        
+        if(args.length < 2 || args.length > 4) {
+            
+            System.err.println("Usage: java lon.AnalyzeLON graphfile csvfile [threads [damping]]");
+            System.err.println("\nwhere:");
+            System.err.println("- graphfile is the network saved by lon.SampleLON");
+            System.err.println("- csvfile is the file where the row of the metrics is appended");
+            System.err.println("- threads is the number of threads (default 0: all available processors)");
+            System.err.println("- damping is the damping factor of PageRank (default 0.85)\n");
+            System.exit(1);
+            
+        }
+        
+        String graphfile = args[0];
+        String csvfile = args[1];
+        int threads = 0;
+        double damping = 0.85;
+        if(args.length >= 3) {
+            threads = Integer.parseInt(args[2]);
+        }
+        if(args.length == 4) {
+            damping = Double.parseDouble(args[3]);
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if(threads > 0) {
+            pool = new ForkJoinPool(threads);
+        }
+        
+        long time = System.nanoTime();
+        LONGraph graph = LONGraph.read(graphfile);
+        double[] metrics = LONAnalysis.summary(graph, damping, pool);
+        time = System.nanoTime() - time;
+        
+        String[] names = {"Nodes", "Edges", "Global optimum fitness",
+            "Global optima", "Funnels", "Global funnels", "Global basin size",
+            "In-strength of the global optima", "PageRank of the global optima",
+            "Mean escape rate"};
+        
+        //The counts are written as integers, the fractions as doubles
+        StringBuilder row = new StringBuilder();
+        row.append(graph.nvar);
+        for(int m=0; m<metrics.length; m++) {
+            String value = (m < 6) ? Long.toString((long)metrics[m]) : Double.toString(metrics[m]);
+            System.out.println(names[m]+": "+value);
+            row.append('\t').append(value);
+        }
+        System.out.println("Time (ms): "+(time/1000000));
+        
+        try(PrintWriter out = new PrintWriter(new FileWriter(csvfile, true))) {
+            out.println(row);
+        }
+        
+    }
+    
+}
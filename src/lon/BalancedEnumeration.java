@@ -0,0 +1,409 @@
+package lon;
+
+/**
+ * Class enumerating all the balanced Boolean functions of nvar <= 5 variables,
+ * to compute the exact distribution of their nonlinearity.
+ *
+ * The supports of the functions (the sets of positions of their 1s) are the
+ * k-subsets of the 2^nvar positions, k = 2^(nvar-1), and they are visited in
+ * revolving door order (Kreher and Stinson, Combinatorial Algorithms, 2.3.3),
+ * where two consecutive subsets differ by one element out and one element in:
+ * the next function is a swap of a 1 and a 0 of the current one, so its Walsh
+ * transform and spectrum are updated in place in O(2^n) by
+ * LocalSearchTools.swapInPlace(), and the nonlinearity is read from the
+ * spectral radius. Since the order can be unranked, the enumeration is split
+ * into chunks of consecutive ranks, which are processed independently by the
+ * threads, each starting from the full transform of its first function.
+ *
+ * The counts of the completed chunks can be saved in a snapshot, so that an
+ * interrupted enumeration is resumed by processing only the other chunks. The
+ * in-place transform is compared to the full transform at the end of each
+ * chunk (and optionally every check functions), which makes the enumeration
+ * also a large-scale test of the swap update.
+ *
+ * The binary format of the snapshot is the following (big-endian):
+ * [magic][version][nvar][chunk size][number of chunks][completed chunk flags]
+ * [number of counts][counts]
+ */
+
+import boolfun.*;
+import genalg.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class BalancedEnumeration {
+    
+    private static final int MAGIC = 0x42454E55;    //"BENU"
+    private static final int VERSION = 1;
+    private static final long CHUNK = 1L << 22;     //functions per chunk
+    
+    private final int nvar;
+    private final int tlength;
+    private final int weight;
+    private final long total;
+    private final int nchunks;
+    private final long[][] binom;
+    private final boolean[] done;
+    private final long[] counts;        //counts[nl] = functions with nonlinearity nl
+    private int completed;
+    private final AtomicInteger next;
+    private final AtomicReference<RuntimeException> failure;
+    
+    private Path path;
+    private Path tmppath;
+    private int ckptfreq;
+    private int check;
+    
+    /**
+     * Prepare the enumeration of the balanced functions of nvar variables.
+     *
+     * @param nvar  number of variables (at most 5)
+     */
+    public BalancedEnumeration(int nvar) {
+        
+        if(nvar < 1 || nvar > 5) {
+            throw new IllegalArgumentException("The enumeration is limited to 1-5 variables");
+        }
+        
+        this.nvar = nvar;
+        tlength = 1 << nvar;
+        weight = tlength/2;
+        
+        //Pascal triangle up to tlength+1, since the unranking reads
+        //C(x+1,i) for x = tlength
+        binom = new long[tlength+2][tlength+2];
+        for(int i=0; i<binom.length; i++) {
+            binom[i][0] = 1;
+            for(int j=1; j<=i; j++) {
+                binom[i][j] = binom[i-1][j-1] + binom[i-1][j];
+            }
+        }
+        total = binom[tlength][weight];
+        nchunks = (int)((total + CHUNK - 1) / CHUNK);
+        done = new boolean[nchunks];
+        counts = new long[tlength/2 + 1];
+        next = new AtomicInteger();
+        failure = new AtomicReference<>();
+        
+    }
+    
+    /**
+     * Save a snapshot of the counts once every ckptfreq completed chunks, and
+     * when the enumeration ends.
+     *
+     * @param ckptfile  the path of the snapshot file
+     * @param ckptfreq  number of completed chunks between two snapshots
+     */
+    public void setCheckpoint(String ckptfile, int ckptfreq) {
+        
+        path = Paths.get(ckptfile).toAbsolutePath();
+        tmppath = path.resolveSibling(path.getFileName()+".tmp");
+        this.ckptfreq = Math.max(1, ckptfreq);
+        
+    }
+    
+    /**
+     * Compare the in-place transform to the full one also once every check
+     * functions (0: only at the end of each chunk).
+     *
+     * @param check     the interval between two comparisons
+     */
+    public void setCheck(int check) {
+        
+        this.check = check;
+        
+    }
+    
+    /**
+     * Run the enumeration of the chunks not yet completed.
+     *
+     * @param threads   number of threads
+     * @throws InterruptedException if interrupted while waiting for the threads
+     * @throws IllegalStateException if the in-place transform differs from
+     *                  the full one
+     */
+    public void run(int threads) throws InterruptedException {
+        
+        Thread[] workers = new Thread[threads];
+        for(int t=0; t<threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    for(int c=next.getAndIncrement(); c<nchunks && failure.get() == null;
+                            c=next.getAndIncrement()) {
+                        if(!isDone(c)) {
+                            enumerateChunk(c);
+                        }
+                    }
+                } catch(RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "enumeration-"+t);
+            workers[t].start();
+        }
+        for(int t=0; t<threads; t++) {
+            workers[t].join();
+        }
+        if(failure.get() != null) {
+            throw failure.get();
+        }
+        
+    }
+    
+    /**
+     * Enumerate the functions with ranks in the chunk c.
+     */
+    private void enumerateChunk(int c) {
+        
+        long from = c*CHUNK;
+        long to = Math.min(from+CHUNK, total);
+        long[] chunkcounts = new long[counts.length];
+        
+        //Step 1: full transform of the first function of the chunk. The
+        //subset is t[1..k] (1-based elements, t[k+1] is a sentinel)
+        int[] t = unrank(from);
+        boolean[] function = new boolean[tlength];
+        for(int i=1; i<=weight; i++) {
+            function[t[i]-1] = true;
+        }
+        SearchSolution sol = FitnessFunctions.compFitnessBF_SS(function, nvar, false);
+        sol.initSpectrum();
+        chunkcounts[BoolTransf.calcNL(sol.getSpectralRadius(), nvar)]++;
+        
+        //Step 2: the other functions, each a swap of the previous one
+        for(long r=from+1; r<to; r++) {
+            
+            long move = successor(t);
+            LocalSearchTools.swapInPlace(sol, (int)(move >>> 32)-1, (int)move-1);
+            chunkcounts[BoolTransf.calcNL(sol.getSpectralRadius(), nvar)]++;
+            
+            if(check > 0 && (r-from) % check == 0) {
+                verify(sol, r);
+            }
+            
+        }
+        
+        verify(sol, to-1);
+        complete(c, chunkcounts);
+        
+    }
+    
+    /**
+     * Compare the in-place transform of a solution to its full transform.
+     */
+    private void verify(SearchSolution sol, long r) {
+        
+        SearchSolution full = FitnessFunctions.compFitnessBF_SS(sol.function, nvar, false);
+        if(!Arrays.equals(full.walsht, sol.walsht)) {
+            throw new IllegalStateException("The swap update of the Walsh transform differs from the full transform at rank "+r);
+        }
+        
+    }
+    
+    /**
+     * Return the k-subset of rank r in revolving door order (Algorithm 2.12).
+     */
+    private int[] unrank(long r) {
+        
+        int[] t = new int[weight+2];
+        int x = tlength;
+        for(int i=weight; i>=1; i--) {
+            while(binom[x][i] > r) {
+                x--;
+            }
+            t[i] = x+1;
+            r = binom[x+1][i] - r - 1;
+        }
+        t[weight+1] = tlength+1;
+        
+        return t;
+        
+    }
+    
+    /**
+     * Move a k-subset to its successor in revolving door order (Algorithm
+     * 2.13), and return the element that leaves the subset and the one that
+     * enters it, packed as (out << 32) | in.
+     */
+    private long successor(int[] t) {
+        
+        //The last case may overwrite the sentinel t[k+1]
+        int k = weight;
+        t[k+1] = tlength+1;
+        int j = 1;
+        while(j <= k && t[j] == j) {
+            j++;
+        }
+        
+        long out;
+        long in;
+        if(((k-j) & 1) != 0) {
+            if(j == 1) {
+                out = t[1];
+                in = t[1]-1;
+                t[1]--;
+            } else {
+                //t[1..j-1] = 1..j-1 becomes 1..j-3, j-1, j
+                out = (j > 2) ? j-2 : 1;
+                in = j;
+                t[j-1] = j;
+                if(j > 2) {
+                    t[j-2] = j-1;
+                }
+            }
+        } else if(t[j+1] != t[j]+1) {
+            out = (j > 1) ? j-1 : t[j];
+            in = t[j]+1;
+            if(j > 1) {
+                t[j-1] = t[j];
+            }
+            t[j]++;
+        } else {
+            out = t[j]+1;
+            in = j;
+            t[j+1] = t[j];
+            t[j] = j;
+        }
+        
+        return (out << 32) | in;
+        
+    }
+    
+    private synchronized boolean isDone(int c) {
+        
+        return done[c];
+        
+    }
+    
+    /**
+     * Add the counts of a completed chunk, and save a snapshot if due.
+     */
+    private synchronized void complete(int c, long[] chunkcounts) {
+        
+        for(int nl=0; nl<counts.length; nl++) {
+            counts[nl] += chunkcounts[nl];
+        }
+        done[c] = true;
+        completed++;
+        
+        if(path != null && (completed % ckptfreq == 0 || completed == nchunks)) {
+            try {
+                save();
+            } catch(IOException e) {
+                //The previous snapshot is still valid
+                System.err.println("Cannot write snapshot "+path+": "+e);
+            }
+        }
+        
+    }
+    
+    private void save() throws IOException {
+        
+        ByteBuffer buffer = ByteBuffer.allocate(4*6 + 8 + nchunks + 8*counts.length);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(nvar);
+        buffer.putLong(CHUNK);
+        buffer.putInt(nchunks);
+        for(int c=0; c<nchunks; c++) {
+            buffer.put((byte)(done[c] ? 1 : 0));
+        }
+        buffer.putInt(counts.length);
+        for(int nl=0; nl<counts.length; nl++) {
+            buffer.putLong(counts[nl]);
+        }
+        buffer.flip();
+        
+        try(FileChannel channel = FileChannel.open(tmppath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmppath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        
+    }
+    
+    /**
+     * Load the counts and the completed chunks from the snapshot file set by
+     * setCheckpoint().
+     *
+     * @throws IOException if the file cannot be read or was saved by an
+     *                     enumeration with different parameters
+     */
+    public synchronized void resume() throws IOException {
+        
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        try {
+            if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(path+" is not an enumeration snapshot");
+            }
+            if(buffer.getInt() != nvar || buffer.getLong() != CHUNK
+                    || buffer.getInt() != nchunks) {
+                throw new IOException(path+" was saved by an enumeration with different parameters");
+            }
+            completed = 0;
+            for(int c=0; c<nchunks; c++) {
+                done[c] = (buffer.get() != 0);
+                if(done[c]) {
+                    completed++;
+                }
+            }
+            if(buffer.getInt() != counts.length) {
+                throw new IOException(path+" is not a valid enumeration snapshot");
+            }
+            for(int nl=0; nl<counts.length; nl++) {
+                counts[nl] = buffer.getLong();
+            }
+        } catch(RuntimeException e) {
+            //Truncated file
+            throw new IOException(path+" is not a valid enumeration snapshot", e);
+        }
+        
+    }
+    
+    /**
+     * Return the number of functions of each nonlinearity enumerated so far.
+     *
+     * @return  the counts, indexed by nonlinearity
+     */
+    public synchronized long[] getCounts() {
+        
+        return Arrays.copyOf(counts, counts.length);
+        
+    }
+    
+    /**
+     * Return the number of balanced functions.
+     *
+     * @return  the binomial coefficient C(2^nvar, 2^(nvar-1))
+     */
+    public long getTotal() {
+        
+        return total;
+        
+    }
+    
+    /**
+     * Return the number of chunks, and of completed ones.
+     *
+     * @return  the array {chunks, completed chunks}
+     */
+    public synchronized int[] getProgress() {
+        
+        int[] progress = {nchunks, completed};
+        
+        return progress;
+        
+    }
+    
+}
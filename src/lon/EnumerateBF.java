@@ -0,0 +1,66 @@
+package lon;
+
+/**
+ *
+ * Class to compute the exact distribution of the nonlinearity of the balanced
+ * Boolean functions of up to 5 variables, by exhaustive enumeration.
+ *
+ */
+
+import java.io.IOException;
+
+public class EnumerateBF {
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        
+        if(args.length != 3 && args.length != 6) {
+            
+            System.err.println("Usage: java lon.EnumerateBF nvar threads check [ckptfile ckptfreq resume]");
+            System.err.println("\nwhere:");
+            System.err.println("- nvar is the number of variables of the boolean functions (at most 5)");
+            System.err.println("- threads is the number of threads (0: all available processors)");
+            System.err.println("- check is the interval (in functions) between two comparisons of the updated Walsh transform with the full one (0: only at the end of each chunk of 2^22 functions)");
+            System.err.println("- ckptfile is the file where the snapshots of the enumeration are saved");
+            System.err.println("- ckptfreq is the checkpoint frequency (a snapshot is saved once every ckptfreq completed chunks)");
+            System.err.println("- resume is a boolean flag specifying whether to resume the enumeration from the snapshot in ckptfile\n");
+            System.exit(1);
+            
+        }
+        
+        int nvar = Integer.parseInt(args[0]);
+        int threads = Integer.parseInt(args[1]);
+        int check = Integer.parseInt(args[2]);
+        if(threads == 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        
+        BalancedEnumeration enumeration = new BalancedEnumeration(nvar);
+        enumeration.setCheck(check);
+        if(args.length == 6) {
+            enumeration.setCheckpoint(args[3], Integer.parseInt(args[4]));
+            if(Boolean.parseBoolean(args[5])) {
+                enumeration.resume();
+                int[] progress = enumeration.getProgress();
+                System.out.println("Resumed from "+args[3]+" with "+progress[1]+" of "+progress[0]+" chunks completed");
+            }
+        }
+        
+        long time = System.nanoTime();
+        enumeration.run(threads);
+        time = System.nanoTime() - time;
+        
+        long[] counts = enumeration.getCounts();
+        long sum = 0;
+        System.out.println("NL\tCount");
+        for(int nl=0; nl<counts.length; nl++) {
+            if(counts[nl] > 0) {
+                System.out.println(nl+"\t"+counts[nl]);
+                sum += counts[nl];
+            }
+        }
+        System.out.println("Functions: "+sum+" (balanced functions: "+enumeration.getTotal()+")");
+        System.out.println("Time (ms): "+(time/1000000));
+        
+    }
+    
+}
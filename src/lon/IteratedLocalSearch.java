@@ -0,0 +1,234 @@
+package lon;
+
+/**
+ * Class implementing an iterated local search (basin hopping) for balanced
+ * Boolean functions. At each iteration the current local optimum is perturbed
+ * by a kick of k random swaps of a 1 and a 0, the result is re-optimized by
+ * one of the strategies of LocalSearchTools.localSearch(), and the new local
+ * optimum replaces the current one according to an acceptance criterion.
+ *
+ * The kick is applied with the in-place update of the Walsh transform and of
+ * its spectrum, hence it costs O(k*2^n), and the strategies 2 to 5 climb with
+ * the same updates; the transform is never recomputed, except for the random
+ * functions drawn by the restarts. The strength k starts from kmin, grows by
+ * one after each kick not improving the current optimum (up to kmax), and
+ * goes back to kmin after an improvement.
+ *
+ * The evaluations are counted in neighbours, as by the local searches: each
+ * swap of a kick counts as one, and a restart as nvar (one fitness evaluation
+ * of the GA).
+ *
+ */
+
+import boolfun.*;
+import genalg.*;
+import java.util.Random;
+
+public class IteratedLocalSearch {
+    
+    public static final int BETTER = 0;     //accept only improving optima
+    public static final int EQUAL = 1;      //accept also optima of equal fitness
+    public static final int RESTART = 2;    //as EQUAL, restarting on stagnation
+    
+    private final SearchSolution cur;
+    private final SearchSolution cand;
+    private final SearchSolution best;
+    private final int lsop;
+    private final int lsbudget;
+    private final int samples;
+    private final int kmin;
+    private final int kmax;
+    private final int accept;
+    private final int patience;
+    private final Random genrand;
+    private int k;
+    private int stagnation;     //kicks since the last improvement of the best
+    private long eval;
+    private int kicks;
+    private int restarts;
+    
+    /**
+     * Prepare an iterated local search and climb from the starting solution
+     * to its first local optimum.
+     *
+     * @param sol       the starting solution (not modified)
+     * @param lsop      the code of the local search strategy (see
+     *                  LocalSearchTools.localSearch())
+     * @param lsbudget  maximum number of neighbours evaluated by each local
+     *                  search (0: no limit, not allowed for the tabu searches)
+     * @param samples   number of sampled swaps per step (strategy 3), or tabu
+     *                  tenure (strategies 4 and 5)
+     * @param kmin      minimum number of swaps of a kick
+     * @param kmax      maximum number of swaps of a kick
+     * @param accept    the acceptance criterion (BETTER, EQUAL or RESTART)
+     * @param patience  number of kicks without improving the best solution
+     *                  after which RESTART draws a new random function
+     * @param genrand   random number generator
+     */
+    public IteratedLocalSearch(SearchSolution sol, int lsop, int lsbudget,
+            int samples, int kmin, int kmax, int accept, int patience,
+            Random genrand) {
+        
+        if(lsop >= 4 && lsbudget == 0) {
+            throw new IllegalArgumentException("The tabu search needs a budget of evaluations");
+        }
+        this.lsop = lsop;
+        this.lsbudget = lsbudget;
+        this.samples = samples;
+        this.kmin = kmin;
+        this.kmax = kmax;
+        this.accept = accept;
+        this.patience = patience;
+        this.genrand = genrand;
+        k = kmin;
+        
+        cand = new SearchSolution(sol.function, sol.walsht, sol.fitness, sol.nvar);
+        cand.initSpectrum();
+        SearchSolution opt = optimize(0);
+        cur = new SearchSolution(opt.function, opt.walsht, opt.fitness, sol.nvar);
+        cur.initSpectrum();
+        best = new SearchSolution(opt.function, opt.walsht, opt.fitness, sol.nvar);
+        
+    }
+    
+    /**
+     * Iterate kicks and local searches until a total number of evaluated
+     * neighbours. The last local search may exceed it by the neighbours of
+     * one step.
+     *
+     * @param budget    total number of evaluated neighbours to reach
+     */
+    public void search(long budget) {
+        
+        int n = cur.function.length;
+        
+        while(eval < budget) {
+            
+            //Step 1: perturb a copy of the current optimum with a kick of k
+            //swaps, or draw a new random function on stagnation
+            boolean restart = (accept == RESTART && stagnation >= patience);
+            if(restart) {
+                boolean[] function = CombTools.genBalancedBinaryString(genrand, n);
+                SearchSolution rand = FitnessFunctions.compFitnessBF_SS(function, cur.nvar, false);
+                cand.updateFunction(rand.function, rand.walsht, rand.fitness);
+                eval += cur.nvar;
+                stagnation = 0;
+                restarts++;
+            } else {
+                cand.updateFunction(cur.function, cur.walsht, cur.fitness);
+                LocalSearchTools.kick(cand, k, genrand);
+                eval += k;
+            }
+            kicks++;
+            
+            //Step 2: climb to a new local optimum
+            SearchSolution opt = optimize(Math.max(budget-eval, 1));
+            
+            //Step 3: apply the acceptance criterion (the optimum reached
+            //after a restart is always accepted) and adapt the strength
+            if(opt.fitness > cur.fitness) {
+                k = kmin;
+            } else if(k < kmax) {
+                k++;
+            }
+            if(restart || opt.fitness > cur.fitness
+                    || (accept != BETTER && opt.fitness == cur.fitness)) {
+                cur.updateFunction(opt.function, opt.walsht, opt.fitness);
+            }
+            if(opt.fitness > best.fitness) {
+                best.updateFunction(opt.function, opt.walsht, opt.fitness);
+                stagnation = 0;
+            } else {
+                stagnation++;
+            }
+            
+        }
+        
+    }
+    
+    /**
+     * Climb from the candidate solution, within the budget of each local
+     * search and the remaining one (0: no limit).
+     */
+    private SearchSolution optimize(long remaining) {
+        
+        int budget = lsbudget;
+        if(remaining > 0 && (budget == 0 || remaining < budget)) {
+            budget = (int)Math.min(remaining, Integer.MAX_VALUE);
+        }
+        
+        SearchSolution opt = LocalSearchTools.localSearch(cand, lsop, true,
+                budget, samples, genrand);
+        eval += opt.eval;
+        
+        return opt;
+        
+    }
+    
+    /**
+     * Return the best local optimum found so far.
+     *
+     * @return  the best solution
+     */
+    public SearchSolution getBest() {
+        
+        return best;
+        
+    }
+    
+    /**
+     * Return the current local optimum.
+     *
+     * @return  the current solution
+     */
+    public SearchSolution getCurrent() {
+        
+        return cur;
+        
+    }
+    
+    /**
+     * Return the number of neighbours evaluated so far.
+     *
+     * @return  the number of evaluations
+     */
+    public long getEval() {
+        
+        return eval;
+        
+    }
+    
+    /**
+     * Return the number of kicks (restarts included).
+     *
+     * @return  the number of kicks
+     */
+    public int getKicks() {
+        
+        return kicks;
+        
+    }
+    
+    /**
+     * Return the number of restarts.
+     *
+     * @return  the number of restarts
+     */
+    public int getRestarts() {
+        
+        return restarts;
+        
+    }
+    
+    /**
+     * Return the current strength of the kicks.
+     *
+     * @return  the number of swaps of the next kick
+     */
+    public int getStrength() {
+        
+        return k;
+        
+    }
+    
+}
@@ -0,0 +1,455 @@
+package lon;
+
+/**
+ * Class computing the metrics of a local optima network stored in compressed
+ * sparse rows (see LONGraph): the funnels, the basin of the global optima, the
+ * in-strength and the PageRank of the global optima, and the escape rates.
+ *
+ * The funnels are computed on the compressed monotonic network: the optima
+ * joined by edges of equal fitness form a plateau, and a plateau without edges
+ * towards a fitter optimum is a sink, i.e. the bottom of a funnel. The basin
+ * of the global optima is the set of optima from which a global optimum can be
+ * reached along edges that never decrease the fitness.
+ *
+ * The per-node passes (strengths, escape rates, PageRank iterations, sinks)
+ * run in parallel on a fork-join pool over ranges of nodes; each node writes
+ * only its own cells, so the results do not depend on the number of threads.
+ * Apart from the transposed graph, the arrays are allocated once per metric.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+public class LONAnalysis {
+    
+    /**
+     * Fork-join task applying a body to the node range [from,to), split in
+     * halves down to grain nodes.
+     */
+    private static class RangeTask extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final IntConsumer body;
+        private final int from;
+        private final int to;
+        private final int grain;
+        
+        RangeTask(IntConsumer body, int from, int to, int grain) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+        
+        @Override
+        protected void compute() {
+            
+            if(to - from <= grain) {
+                
+                for(int i=from; i<to; i++) {
+                    body.accept(i);
+                }
+                
+            } else {
+                
+                int mid = (from + to) >>> 1;
+                invokeAll(new RangeTask(body, from, mid, grain),
+                        new RangeTask(body, mid, to, grain));
+                
+            }
+            
+        }
+        
+    }
+    
+    private static void parallelFor(int size, IntConsumer body, ForkJoinPool pool) {
+        
+        int grain = Math.max(1024, size / (8 * pool.getParallelism()));
+        pool.invoke(new RangeTask(body, 0, size, grain));
+        
+    }
+    
+    /**
+     * Build the transposed network, i.e. the in-edges of each node in
+     * compressed sparse rows.
+     *
+     * @param g     the network
+     * @return      the arrays {offsets, sources, weights} of the in-edges
+     */
+    public static int[][] transpose(LONGraph g) {
+        
+        int edges = g.getEdges();
+        int[] inoffsets = new int[g.nodes+1];
+        int[] sources = new int[edges];
+        int[] inweights = new int[edges];
+        
+        for(int e=0; e<edges; e++) {
+            inoffsets[g.targets[e]+1]++;
+        }
+        for(int v=0; v<g.nodes; v++) {
+            inoffsets[v+1] += inoffsets[v];
+        }
+        
+        //Fill the rows in order of source, using a copy of the offsets as
+        //insertion points
+        int[] next = Arrays.copyOf(inoffsets, g.nodes);
+        for(int u=0; u<g.nodes; u++) {
+            for(int e=g.offsets[u]; e<g.offsets[u+1]; e++) {
+                int pos = next[g.targets[e]];
+                sources[pos] = u;
+                inweights[pos] = g.weights[e];
+                next[g.targets[e]]++;
+            }
+        }
+        
+        int[][] in = {inoffsets, sources, inweights};
+        
+        return in;
+        
+    }
+    
+    /**
+     * Compute the out-strength of each node, i.e. the sum of the weights of
+     * its out-edges (self-loop included).
+     *
+     * @param g     the network
+     * @param pool  fork-join pool
+     * @return      the out-strengths
+     */
+    public static long[] outStrengths(LONGraph g, ForkJoinPool pool) {
+        
+        long[] strengths = new long[g.nodes];
+        parallelFor(g.nodes, u -> {
+            long s = 0;
+            for(int e=g.offsets[u]; e<g.offsets[u+1]; e++) {
+                s += g.weights[e];
+            }
+            strengths[u] = s;
+        }, pool);
+        
+        return strengths;
+        
+    }
+    
+    /**
+     * Compute the escape rate of each node, i.e. the fraction of the escape
+     * trials from it that reached another optimum.
+     *
+     * @param g     the network
+     * @param pool  fork-join pool
+     * @return      the escape rates (NaN for the nodes without out-edges)
+     */
+    public static double[] escapeRates(LONGraph g, ForkJoinPool pool) {
+        
+        double[] rates = new double[g.nodes];
+        parallelFor(g.nodes, u -> {
+            long total = 0;
+            long self = 0;
+            for(int e=g.offsets[u]; e<g.offsets[u+1]; e++) {
+                total += g.weights[e];
+                if(g.targets[e] == u) {
+                    self = g.weights[e];
+                }
+            }
+            rates[u] = total > 0 ? (double)(total-self)/total : Double.NaN;
+        }, pool);
+        
+        return rates;
+        
+    }
+    
+    /**
+     * Compute the PageRank of the nodes of the weighted network by power
+     * iteration, pulling the contributions along the in-edges. A node
+     * follows each out-edge with probability proportional to its weight, and
+     * the rank of the nodes without out-edges is spread uniformly.
+     *
+     * @param g         the network
+     * @param in        the transposed network (see transpose())
+     * @param damping   damping factor (probability of following an edge)
+     * @param tol       tolerance on the L1 change of the ranks
+     * @param maxiter   maximum number of iterations
+     * @param pool      fork-join pool
+     * @return          the ranks, summing to 1
+     */
+    public static double[] pageRank(LONGraph g, int[][] in, double damping,
+            double tol, int maxiter, ForkJoinPool pool) {
+        
+        int n = g.nodes;
+        int[] inoffsets = in[0];
+        int[] sources = in[1];
+        int[] inweights = in[2];
+        long[] strengths = outStrengths(g, pool);
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        double[] contrib = new double[n];
+        Arrays.fill(rank, 1.0/n);
+        
+        for(int it=0; it<maxiter; it++) {
+            
+            //Step 1: contribution per unit of weight of each node, and rank
+            //of the nodes without out-edges
+            double[] cur = rank;
+            parallelFor(n, u -> {
+                contrib[u] = strengths[u] > 0 ? cur[u]/strengths[u] : 0.0;
+            }, pool);
+            double dangling = 0.0;
+            for(int u=0; u<n; u++) {
+                if(strengths[u] == 0) {
+                    dangling += rank[u];
+                }
+            }
+            
+            //Step 2: pull the contributions along the in-edges
+            double base = (1.0-damping)/n + damping*dangling/n;
+            double[] upd = next;
+            parallelFor(n, v -> {
+                double s = 0.0;
+                for(int e=inoffsets[v]; e<inoffsets[v+1]; e++) {
+                    s += contrib[sources[e]]*inweights[e];
+                }
+                upd[v] = base + damping*s;
+            }, pool);
+            
+            double diff = 0.0;
+            for(int u=0; u<n; u++) {
+                diff += Math.abs(next[u]-rank[u]);
+            }
+            next = rank;
+            rank = upd;
+            if(diff < tol) {
+                break;
+            }
+            
+        }
+        
+        return rank;
+        
+    }
+    
+    /**
+     * Group the nodes in plateaus, i.e. the connected components of the edges
+     * joining optima of equal fitness (in either direction), with a union-find
+     * structure.
+     *
+     * @param g     the network
+     * @param pool  fork-join pool
+     * @return      the representative node of the plateau of each node
+     */
+    public static int[] plateaus(LONGraph g, ForkJoinPool pool) {
+        
+        int[] parent = new int[g.nodes];
+        for(int u=0; u<g.nodes; u++) {
+            parent[u] = u;
+        }
+        
+        for(int u=0; u<g.nodes; u++) {
+            for(int e=g.offsets[u]; e<g.offsets[u+1]; e++) {
+                int v = g.targets[e];
+                if(v != u && g.fitness[v] == g.fitness[u]) {
+                    int ru = find(parent, u);
+                    int rv = find(parent, v);
+                    if(ru != rv) {
+                        //The smaller id becomes the representative
+                        parent[Math.max(ru, rv)] = Math.min(ru, rv);
+                    }
+                }
+            }
+        }
+        
+        //Point every node directly to its representative. The roots do not
+        //change, so the walks of different nodes do not interfere
+        int[] plateau = new int[g.nodes];
+        parallelFor(g.nodes, u -> {
+            int r = u;
+            while(parent[r] != r) {
+                r = parent[r];
+            }
+            plateau[u] = r;
+        }, pool);
+        
+        return plateau;
+        
+    }
+    
+    private static int find(int[] parent, int u) {
+        
+        //Path halving
+        while(parent[u] != u) {
+            parent[u] = parent[parent[u]];
+            u = parent[u];
+        }
+        
+        return u;
+        
+    }
+    
+    /**
+     * Find the sinks of the compressed monotonic network, i.e. the plateaus
+     * without edges towards a fitter optimum.
+     *
+     * @param g         the network
+     * @param plateau   the plateau of each node (see plateaus())
+     * @param pool      fork-join pool
+     * @return          for each node, true if it is the representative of a
+     *                  sink plateau
+     */
+    public static boolean[] sinks(LONGraph g, int[] plateau, ForkJoinPool pool) {
+        
+        //All the writers store true, so the races on a plateau are harmless
+        boolean[] improving = new boolean[g.nodes];
+        parallelFor(g.nodes, u -> {
+            for(int e=g.offsets[u]; e<g.offsets[u+1]; e++) {
+                if(g.fitness[g.targets[e]] > g.fitness[u]) {
+                    improving[plateau[u]] = true;
+                    break;
+                }
+            }
+        }, pool);
+        
+        boolean[] sink = new boolean[g.nodes];
+        parallelFor(g.nodes, u -> {
+            sink[u] = (plateau[u] == u) && !improving[u];
+        }, pool);
+        
+        return sink;
+        
+    }
+    
+    /**
+     * Find the basin of the global optima, i.e. the nodes from which a global
+     * optimum can be reached along edges that do not decrease the fitness,
+     * by a breadth-first search from the global optima along the in-edges.
+     *
+     * @param g     the network
+     * @param in    the transposed network (see transpose())
+     * @param best  the global optimum fitness
+     * @return      for each node, true if it belongs to the basin
+     */
+    public static boolean[] globalBasin(LONGraph g, int[][] in, int best) {
+        
+        int[] inoffsets = in[0];
+        int[] sources = in[1];
+        boolean[] basin = new boolean[g.nodes];
+        int[] queue = new int[g.nodes];
+        int head = 0;
+        int tail = 0;
+        
+        for(int u=0; u<g.nodes; u++) {
+            if(g.fitness[u] == best) {
+                basin[u] = true;
+                queue[tail] = u;
+                tail++;
+            }
+        }
+        
+        while(head < tail) {
+            int v = queue[head];
+            head++;
+            for(int e=inoffsets[v]; e<inoffsets[v+1]; e++) {
+                int u = sources[e];
+                if(!basin[u] && g.fitness[u] <= g.fitness[v]) {
+                    basin[u] = true;
+                    queue[tail] = u;
+                    tail++;
+                }
+            }
+        }
+        
+        return basin;
+        
+    }
+    
+    /**
+     * Compute the summary of the metrics of a network, in the order of the
+     * columns of the CSV file written by AnalyzeLON: number of nodes, number
+     * of edges, global optimum fitness, number of global optima, number of
+     * funnels (sinks), number of global funnels, fraction of the nodes in the
+     * basin of the global optima, fraction of the weight of the edges between
+     * different nodes that enters a global optimum (in-strength), PageRank of
+     * the global optima, and mean escape rate of the nodes with out-edges.
+     *
+     * @param g         the network
+     * @param damping   damping factor of PageRank
+     * @param pool      fork-join pool
+     * @return          the values of the metrics
+     */
+    public static double[] summary(LONGraph g, double damping, ForkJoinPool pool) {
+        
+        int[][] in = transpose(g);
+        
+        //Step 1: global optima and their in-strength
+        int best = Integer.MIN_VALUE;
+        for(int u=0; u<g.nodes; u++) {
+            best = Math.max(best, g.fitness[u]);
+        }
+        int nbest = 0;
+        long instrength = 0;
+        long moves = 0;
+        for(int u=0; u<g.nodes; u++) {
+            if(g.fitness[u] == best) {
+                nbest++;
+            }
+            for(int e=g.offsets[u]; e<g.offsets[u+1]; e++) {
+                int v = g.targets[e];
+                if(v != u) {
+                    moves += g.weights[e];
+                    if(g.fitness[v] == best) {
+                        instrength += g.weights[e];
+                    }
+                }
+            }
+        }
+        
+        //Step 2: funnels and basin of the global optima
+        int[] plateau = plateaus(g, pool);
+        boolean[] sink = sinks(g, plateau, pool);
+        int funnels = 0;
+        int globalfunnels = 0;
+        for(int u=0; u<g.nodes; u++) {
+            if(sink[u]) {
+                funnels++;
+                if(g.fitness[u] == best) {
+                    globalfunnels++;
+                }
+            }
+        }
+        boolean[] basin = globalBasin(g, in, best);
+        int basinsize = 0;
+        for(int u=0; u<g.nodes; u++) {
+            if(basin[u]) {
+                basinsize++;
+            }
+        }
+        
+        //Step 3: PageRank of the global optima and escape rates
+        double[] rank = pageRank(g, in, damping, 1e-10, 1000, pool);
+        double bestrank = 0.0;
+        for(int u=0; u<g.nodes; u++) {
+            if(g.fitness[u] == best) {
+                bestrank += rank[u];
+            }
+        }
+        double[] rates = escapeRates(g, pool);
+        double sumrates = 0.0;
+        int nrates = 0;
+        for(int u=0; u<g.nodes; u++) {
+            if(!Double.isNaN(rates[u])) {
+                sumrates += rates[u];
+                nrates++;
+            }
+        }
+        
+        double[] metrics = {g.nodes, g.getEdges(), best, nbest, funnels,
+            globalfunnels, (double)basinsize/g.nodes,
+            moves > 0 ? (double)instrength/moves : 0.0, bestrank,
+            nrates > 0 ? sumrates/nrates : 0.0};
+        
+        return metrics;
+        
+    }
+    
+}
@@ -0,0 +1,231 @@
+package lon;
+
+/**
+ * Class for a local optima network: the nodes are local optima, identified by
+ * their packed truth tables, and the weighted directed edges count how many
+ * times the perturbation of an optimum followed by a local search reached
+ * another optimum (or the same one, which gives a self-loop). The edges are
+ * stored in compressed sparse row form: the out-edges of node u are the
+ * positions offsets[u] to offsets[u+1]-1 of the arrays targets and weights,
+ * sorted by target.
+ *
+ * The binary format of the graph file is the following (big-endian):
+ * [magic][version][nvar][nodes][edges][packed tables][fitness values]
+ * [offsets][targets][weights]
+ * where the packed tables are ((2^nvar+63)/64) 64-bit words per node.
+ */
+
+import boolfun.BinTools;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class LONGraph {
+    
+    private static final int MAGIC = 0x4C4F4E47;    //"LONG"
+    private static final int VERSION = 1;
+    
+    public int nvar;
+    public int nodes;
+    public long[] keys;
+    public int[] fitness;
+    public int[] offsets;
+    public int[] targets;
+    public int[] weights;
+    
+    /**
+     * Create a graph from its arrays, which are not copied.
+     *
+     * @param nvar      number of variables of the functions
+     * @param nodes     number of nodes
+     * @param keys      packed truth tables of the nodes, concatenated
+     * @param fitness   fitness values of the nodes
+     * @param offsets   start of the out-edges of each node (nodes+1 entries)
+     * @param targets   targets of the edges
+     * @param weights   weights of the edges
+     */
+    public LONGraph(int nvar, int nodes, long[] keys, int[] fitness,
+            int[] offsets, int[] targets, int[] weights) {
+        
+        this.nvar = nvar;
+        this.nodes = nodes;
+        this.keys = keys;
+        this.fitness = fitness;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        
+    }
+    
+    /**
+     * Build a graph from the table of the optima and a list of edges, each
+     * packed in a long as (source << 32) | target. Repeated edges are merged
+     * into a single edge whose weight is their number.
+     *
+     * @param nvar      number of variables of the functions
+     * @param table     the table of the optima
+     * @param edges     the packed edges (sorted in place)
+     * @param nedges    number of edges in the list
+     * @return          the graph
+     */
+    public static LONGraph build(int nvar, OptimaTable table, long[] edges,
+            int nedges) {
+        
+        int nodes = table.size();
+        Arrays.parallelSort(edges, 0, nedges);
+        
+        //Count the distinct edges
+        int distinct = 0;
+        for(int e=0; e<nedges; e++) {
+            if(e == 0 || edges[e] != edges[e-1]) {
+                distinct++;
+            }
+        }
+        
+        //Step 1: merge the runs of equal edges, counting the out-edges of
+        //each node in offsets[u+1]
+        int[] offsets = new int[nodes+1];
+        int[] targets = new int[distinct];
+        int[] weights = new int[distinct];
+        int k = -1;
+        for(int e=0; e<nedges; e++) {
+            if(e == 0 || edges[e] != edges[e-1]) {
+                k++;
+                targets[k] = (int)edges[e];
+                offsets[(int)(edges[e] >>> 32) + 1]++;
+            }
+            weights[k]++;
+        }
+        
+        //Step 2: prefix sums of the counts
+        for(int u=0; u<nodes; u++) {
+            offsets[u+1] += offsets[u];
+        }
+        
+        int words = table.getWords();
+        long[] keys = Arrays.copyOf(table.getKeys(), nodes*words);
+        int[] fitness = Arrays.copyOf(table.getFitness(), nodes);
+        
+        return new LONGraph(nvar, nodes, keys, fitness, offsets, targets, weights);
+        
+    }
+    
+    /**
+     * Return the number of edges.
+     *
+     * @return  the number of edges
+     */
+    public int getEdges() {
+        
+        return offsets[nodes];
+        
+    }
+    
+    /**
+     * Return the truth table of a node.
+     *
+     * @param u     the node
+     * @return      the truth table of the optimum
+     */
+    public boolean[] getFunction(int u) {
+        
+        int words = ((1 << nvar)+63) >>> 6;
+        
+        return BinTools.unpackTable(
+                Arrays.copyOfRange(keys, u*words, (u+1)*words), 1 << nvar);
+        
+    }
+    
+    /**
+     * Write the graph to a file.
+     *
+     * @param path  the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String path) throws IOException {
+        
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(path), 1 << 16))) {
+            
+            int edges = getEdges();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(nvar);
+            out.writeInt(nodes);
+            out.writeInt(edges);
+            for(int i=0; i<keys.length; i++) {
+                out.writeLong(keys[i]);
+            }
+            for(int u=0; u<nodes; u++) {
+                out.writeInt(fitness[u]);
+            }
+            for(int u=0; u<=nodes; u++) {
+                out.writeInt(offsets[u]);
+            }
+            for(int e=0; e<edges; e++) {
+                out.writeInt(targets[e]);
+            }
+            for(int e=0; e<edges; e++) {
+                out.writeInt(weights[e]);
+            }
+            
+        }
+        
+    }
+    
+    /**
+     * Read a graph from a file written by write().
+     *
+     * @param path  the path of the file
+     * @return      the graph
+     * @throws IOException if the file cannot be read or is not a valid graph
+     */
+    public static LONGraph read(String path) throws IOException {
+        
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(path), 1 << 16))) {
+            
+            if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(path+" is not a local optima network");
+            }
+            
+            int nvar = in.readInt();
+            int nodes = in.readInt();
+            int edges = in.readInt();
+            if(nvar < 0 || nvar > 30 || nodes < 0 || edges < 0) {
+                throw new IOException(path+" is not a valid local optima network");
+            }
+            int words = ((1 << nvar)+63) >>> 6;
+            
+            long[] keys = new long[nodes*words];
+            for(int i=0; i<keys.length; i++) {
+                keys[i] = in.readLong();
+            }
+            int[] fitness = readInts(in, nodes);
+            int[] offsets = readInts(in, nodes+1);
+            int[] targets = readInts(in, edges);
+            int[] weights = readInts(in, edges);
+            
+            return new LONGraph(nvar, nodes, keys, fitness, offsets, targets, weights);
+            
+        }
+        
+    }
+    
+    private static int[] readInts(DataInputStream in, int length) throws IOException {
+        
+        int[] values = new int[length];
+        for(int i=0; i<length; i++) {
+            values[i] = in.readInt();
+        }
+        
+        return values;
+        
+    }
+    
+}
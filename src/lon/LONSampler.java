@@ -0,0 +1,207 @@
+package lon;
+
+/**
+ * Class sampling the local optima network of the balanced Boolean functions
+ * of nvar variables. Each walk starts from a random balanced function, climbs
+ * to its local optimum, and then applies a number of escape trials: the
+ * current optimum is perturbed by a kick of random swaps and climbed again,
+ * and the edge from the current optimum to the one reached is recorded. The
+ * walk moves to the new optimum if it is not worse (monotonic sampling), so
+ * that the edges follow the paths available to an iterated local search.
+ *
+ * The walks run in parallel: the optima are shared through a concurrent
+ * OptimaTable, while each thread keeps its edges packed in a long array of
+ * its own, merged at the end into the compressed adjacency arrays of
+ * LONGraph. Each walk draws from a generator seeded by the seed of the run
+ * and its index, so that the sampled network does not depend on the number
+ * of threads (only the ids of the nodes do).
+ *
+ */
+
+import boolfun.*;
+import genalg.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class LONSampler {
+    
+    private final int nvar;
+    private final int starts;
+    private final int trials;
+    private final int strength;
+    private final int lsop;
+    private final int lsbudget;
+    private final int samples;
+    private final long seed;
+    private final OptimaTable table;
+    private final AtomicInteger next;
+    private final AtomicReference<RuntimeException> failure;
+    private long eval;
+    
+    /**
+     * Prepare the sampling of a network.
+     *
+     * @param nvar      number of variables of the functions
+     * @param starts    number of walks (random starting functions)
+     * @param trials    number of escape trials of each walk
+     * @param strength  number of swaps of a kick
+     * @param lsop      the code of the local search strategy (see
+     *                  LocalSearchTools.localSearch())
+     * @param lsbudget  maximum number of neighbours evaluated by each local
+     *                  search (0: no limit, not allowed for the tabu searches)
+     * @param samples   number of sampled swaps per step (strategy 3), or tabu
+     *                  tenure (strategies 4 and 5)
+     * @param capacity  maximum number of optima in the network
+     * @param seed      the seed of the run
+     */
+    public LONSampler(int nvar, int starts, int trials, int strength, int lsop,
+            int lsbudget, int samples, int capacity, long seed) {
+        
+        if(lsop >= 4 && lsbudget == 0) {
+            throw new IllegalArgumentException("The tabu search needs a budget of evaluations");
+        }
+        this.nvar = nvar;
+        this.starts = starts;
+        this.trials = trials;
+        this.strength = strength;
+        this.lsop = lsop;
+        this.lsbudget = lsbudget;
+        this.samples = samples;
+        this.seed = seed;
+        table = new OptimaTable(nvar, capacity);
+        next = new AtomicInteger();
+        failure = new AtomicReference<>();
+        
+    }
+    
+    /**
+     * Run the walks and build the network.
+     *
+     * @param threads   number of threads
+     * @return          the sampled network
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public LONGraph sample(int threads) throws InterruptedException {
+        
+        Walker[] walkers = new Walker[threads];
+        Thread[] workers = new Thread[threads];
+        for(int t=0; t<threads; t++) {
+            walkers[t] = new Walker();
+            workers[t] = new Thread(walkers[t], "lon-sampler-"+t);
+            workers[t].start();
+        }
+        for(int t=0; t<threads; t++) {
+            workers[t].join();
+        }
+        if(failure.get() != null) {
+            throw failure.get();
+        }
+        
+        //Merge the edges of the threads
+        long total = 0;
+        for(int t=0; t<threads; t++) {
+            total += walkers[t].nedges;
+            eval += walkers[t].eval;
+        }
+        if(total > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many edges: "+total);
+        }
+        long[] edges = new long[(int)total];
+        int nedges = 0;
+        for(int t=0; t<threads; t++) {
+            System.arraycopy(walkers[t].edges, 0, edges, nedges, walkers[t].nedges);
+            nedges += walkers[t].nedges;
+            walkers[t].edges = null;
+        }
+        
+        return LONGraph.build(nvar, table, edges, nedges);
+        
+    }
+    
+    /**
+     * Return the number of neighbours evaluated by the sampling. The swaps of
+     * the kicks count as one neighbour each, and the evaluation of a random
+     * starting function as nvar.
+     *
+     * @return  the number of evaluations
+     */
+    public long getEval() {
+        
+        return eval;
+        
+    }
+    
+    /**
+     * Thread running walks until all of them have been started.
+     */
+    private class Walker implements Runnable {
+        
+        private long[] edges = new long[1024];
+        private int nedges;
+        private long eval;
+        
+        @Override
+        public void run() {
+            
+            try {
+                for(int s=next.getAndIncrement(); s<starts && failure.get() == null;
+                        s=next.getAndIncrement()) {
+                    walk(s);
+                }
+            } catch(RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+            
+        }
+        
+        private void walk(int s) {
+            
+            Random genrand = new Random(seed + s);
+            
+            //Step 1: climb from a random balanced function
+            boolean[] function = CombTools.genBalancedBinaryString(genrand, 1 << nvar);
+            SearchSolution sol = FitnessFunctions.compFitnessBF_SS(function, nvar, false);
+            eval += nvar;
+            SearchSolution opt = LocalSearchTools.localSearch(sol, lsop, true,
+                    lsbudget, samples, genrand);
+            eval += opt.eval;
+            SearchSolution cur = new SearchSolution(opt.function, opt.walsht, opt.fitness, nvar);
+            SearchSolution cand = new SearchSolution(opt.function, opt.walsht, opt.fitness, nvar);
+            int u = table.getOrAdd(BinTools.packTable(cur.function), (int)cur.fitness);
+            
+            //Step 2: escape trials from the current optimum
+            for(int t=0; t<trials; t++) {
+                
+                cand.updateFunction(cur.function, cur.walsht, cur.fitness);
+                LocalSearchTools.kick(cand, strength, genrand);
+                eval += strength;
+                opt = LocalSearchTools.localSearch(cand, lsop, true, lsbudget,
+                        samples, genrand);
+                eval += opt.eval;
+                int v = table.getOrAdd(BinTools.packTable(opt.function), (int)opt.fitness);
+                addEdge(u, v);
+                
+                if(opt.fitness >= cur.fitness) {
+                    cur.updateFunction(opt.function, opt.walsht, opt.fitness);
+                    u = v;
+                }
+                
+            }
+            
+        }
+        
+        private void addEdge(int u, int v) {
+            
+            if(nedges == edges.length) {
+                edges = Arrays.copyOf(edges, edges.length*2);
+            }
+            edges[nedges] = ((long)u << 32) | v;
+            nedges++;
+            
+        }
+        
+    }
+    
+}
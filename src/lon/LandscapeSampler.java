@@ -0,0 +1,164 @@
+package lon;
+
+/**
+ * Class sampling the nonlinearity distribution of random genomes of the three
+ * problems of the GAs: balanced functions, functions with the weight of a bent
+ * function, and WPB functions. The genomes are drawn by the non-allocating
+ * generators of CombTools into buffers of each thread, and evaluated by an
+ * in-place fast Walsh transform, so that a sample costs O(n*2^n) and no
+ * memory. The nonlinearity values are counted in a histogram of 2^(n-1)+1
+ * entries per thread, added at the end.
+ *
+ * The samples are split in batches; each batch draws from its own generator,
+ * seeded by the seed of the run and the index of the batch, so that the
+ * histogram does not depend on the number of threads.
+ *
+ */
+
+import boolfun.*;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class LandscapeSampler {
+    
+    public static final int BALANCED = 0;      //balanced functions
+    public static final int BENTWEIGHT = 1;    //functions of weight 2^(n-1)-2^(n/2-1)
+    public static final int WPB = 2;           //weightwise perfectly balanced functions
+    
+    private final int nvar;
+    private final int type;
+    private final long samples;
+    private final int batch;
+    private final long seed;
+    private final AtomicLong next;
+    private final AtomicReference<RuntimeException> failure;
+    
+    /**
+     * Prepare a sampling.
+     *
+     * @param nvar      number of variables of the functions
+     * @param type      the kind of genomes (BALANCED, BENTWEIGHT or WPB)
+     * @param samples   number of genomes
+     * @param batch     number of genomes of a batch
+     * @param seed      the seed of the run
+     */
+    public LandscapeSampler(int nvar, int type, long samples, int batch, long seed) {
+        
+        if(type != BALANCED && type != BENTWEIGHT && type != WPB) {
+            throw new IllegalArgumentException("Unknown type of genomes: "+type);
+        }
+        if(type == WPB && (nvar & (nvar-1)) != 0) {
+            throw new IllegalArgumentException("WPB functions exist only for a number of variables that is a power of 2");
+        }
+        this.nvar = nvar;
+        this.type = type;
+        this.samples = samples;
+        this.batch = batch;
+        this.seed = seed;
+        next = new AtomicLong();
+        failure = new AtomicReference<>();
+        
+    }
+    
+    /**
+     * Draw and evaluate the genomes.
+     *
+     * @param threads   number of threads
+     * @return          the histogram of the nonlinearity (counts[nl] genomes
+     *                  have nonlinearity nl)
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public long[] sample(int threads) throws InterruptedException {
+        
+        long batches = (samples + batch - 1) / batch;
+        long[][] counts = new long[threads][];
+        Thread[] workers = new Thread[threads];
+        
+        for(int t=0; t<threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    counts[id] = sampleBatches(batches);
+                } catch(RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "landscape-sampler-"+t);
+            workers[t].start();
+        }
+        for(int t=0; t<threads; t++) {
+            workers[t].join();
+        }
+        if(failure.get() != null) {
+            throw failure.get();
+        }
+        
+        long[] total = new long[(1 << (nvar-1)) + 1];
+        for(int t=0; t<threads; t++) {
+            for(int nl=0; nl<total.length; nl++) {
+                total[nl] += counts[t][nl];
+            }
+        }
+        
+        return total;
+        
+    }
+    
+    /**
+     * Process batches until all of them have been taken, with the buffers of
+     * the calling thread.
+     */
+    private long[] sampleBatches(long batches) {
+        
+        int tlength = 1 << nvar;
+        long[] counts = new long[(1 << (nvar-1)) + 1];
+        boolean[] function = new boolean[tlength];
+        int[] walsht = new int[tlength];
+        int[] positions = new int[tlength];
+        int[][] classes = null;
+        int weight = tlength/2;
+        if(type == BENTWEIGHT) {
+            weight = (int)Math.pow(2, nvar-1) - (int)Math.pow(2, (nvar/2)-1);
+        }
+        
+        for(long b=next.getAndIncrement(); b<batches && failure.get() == null;
+                b=next.getAndIncrement()) {
+            
+            Random genrand = new Random(seed + b);
+            long size = Math.min(batch, samples - b*batch);
+            
+            //The generators shuffle the positions in place: start each batch
+            //from the same order, so that it depends only on its seed
+            if(type == WPB) {
+                classes = CombTools.genWeightClasses(nvar);
+            } else {
+                for(int i=0; i<tlength; i++) {
+                    positions[i] = i;
+                }
+            }
+            
+            for(long s=0; s<size; s++) {
+                
+                //Step 1: draw the genome
+                if(type == WPB) {
+                    CombTools.fillRandomWPBFunction(genrand, function, classes);
+                } else {
+                    CombTools.fillRandomWeightString(genrand, function, weight, positions);
+                }
+                
+                //Step 2: in-place transform of the polar form
+                for(int i=0; i<tlength; i++) {
+                    walsht[i] = function[i] ? -1 : 1;
+                }
+                int sprad = BoolTransf.calcFWT(walsht, 0, tlength);
+                counts[BoolTransf.calcNL(sprad, nvar)]++;
+                
+            }
+            
+        }
+        
+        return counts;
+        
+    }
+    
+}
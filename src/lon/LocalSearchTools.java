@@ -9,6 +9,9 @@ package lon;
 import boolfun.*;
 import genalg.*;
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class LocalSearchTools {
     
@@ -81,6 +84,68 @@ public class LocalSearchTools {
         
     }
     
+    /**
+     * Swap two bit positions y,z in the truth table of a solution, updating in
+     * place its Walsh transform and its spectrum (which must be initialized).
+     * Only the coefficients W(a) with a.y != a.z change, by
+     * [(-1)^f(z) - (-1)^f(y)] * [(-1)^ay - (-1)^az]. Swapping again the same
+     * positions restores the solution.
+     * 
+     * @param sol   the solution, with its spectrum initialized
+     * @param y     position of the first bit in the truth table to swap
+     * @param z     position of the second bit in the truth table to swap
+     */
+    public static void swapInPlace(SearchSolution sol, int y, int z) {
+        
+        boolean[] function = sol.function;
+        int[] walsht = sol.walsht;
+        
+        //Term (-1)^f(z) - (-1)^f(y), constant for all coefficients
+        int deltaf = (function[z] ? -1 : 1) - (function[y] ? -1 : 1);
+        
+        //The scalar products a.y and a.z are the parities of a&y and a&z
+        for(int a=0; a<walsht.length; a++) {
+            
+            int ay = Integer.bitCount(a & y) & 1;
+            int az = Integer.bitCount(a & z) & 1;
+            if(ay != az) {
+                //(-1)^ay - (-1)^az is -2 if ay=1, 2 otherwise
+                sol.setWalshCoeff(a, walsht[a] + deltaf*(2 - 4*ay));
+            }
+            
+        }
+        
+        boolean temp = function[y];
+        function[y] = function[z];
+        function[z] = temp;
+        
+    }
+    
+    /**
+     * Flip a bit position y in the truth table of a solution, updating in
+     * place its Walsh transform and its spectrum (which must be initialized).
+     * Every coefficient W(a) changes, by -2 * (-1)^f(y) * (-1)^ay. Flipping
+     * again the same position restores the solution.
+     * 
+     * @param sol   the solution, with its spectrum initialized
+     * @param y     position of the bit in the truth table to flip
+     */
+    public static void flipInPlace(SearchSolution sol, int y) {
+        
+        int[] walsht = sol.walsht;
+        
+        //Term -2 * (-1)^f(y), constant for all coefficients
+        int deltaf = sol.function[y] ? 2 : -2;
+        
+        for(int a=0; a<walsht.length; a++) {
+            int ay = Integer.bitCount(a & y) & 1;
+            sol.setWalshCoeff(a, walsht[a] + deltaf*(1 - 2*ay));
+        }
+        
+        sol.function[y] = !sol.function[y];
+        
+    }
+    
     /**
      * Generate and evaluate the neighborhood solutions
      * 
@@ -95,32 +160,256 @@ public class LocalSearchTools {
         
         SearchSolution best = new SearchSolution(function, walsht, fitness, nvar);
         int n=function.length;
-        boolean[] tempFunction = new boolean[n];
+        
+        //The neighbours are visited by swapping in place a working copy of
+        //the solution and swapping it back, so that the spectral radius of
+        //each neighbour is read from the spectrum and never rescanned
+        SearchSolution current = new SearchSolution(function, walsht, fitness, nvar);
+        current.initSpectrum();
         
         //generating all neighboors
         for (int i = 0; i < n; i++) {
             for (int j = i+1; j < n; j++) {
                 //swap only if the elements are different
-                System.arraycopy(function, 0, tempFunction, 0, n);
                 if(function[i]!=function[j]){
-                    //swap i and j
-                    tempFunction[i] = !tempFunction[i];
-                    tempFunction[j] = !tempFunction[j];
-                    //evaluate new solution
-                    int[] upwalsht = updateWHTSwap(function, walsht, nvar, i, j);
-                    double upfitness = FitnessFunctions.compFitnessBFGlob(upwalsht, nvar, false);
+                    //swap i and j and evaluate new solution
+                    swapInPlace(current, i, j);
+                    double upfitness = FitnessFunctions.compFitnessBFSpectrum(current, false);
                     best.eval++;
                     //check if the new solution is better 
                     //save the better one
                     if(upfitness>fitness){
-                         best.updateFunction(tempFunction, upwalsht, upfitness);
+                         best.updateFunction(current.function, current.walsht, upfitness);
+                    }
+                    swapInPlace(current, i, j);
+                }
+            }
+            
+        }
+        
+        return best;
+    }
+    
+    /**
+     * Generate the swaps of a solution that can improve its nonlinearity. A
+     * swap (y,z) improves the nonlinearity only if it lowers the magnitude of
+     * all the coefficients W(a) at the spectral radius. Since the change of
+     * W(a) is -4*(-1)^(f(y) XOR a.y) when f(y) != f(z) and a.(y XOR z) = 1,
+     * this happens exactly when both terms (-1)^(f(y) XOR a.y) and
+     * (-1)^(f(z) XOR a.z) have the sign of W(a) for all such a (the condition
+     * on a.(y XOR z) then follows from f(y) != f(z)). The candidate swaps are
+     * thus the pairs of positions with different values among those whose
+     * terms agree with all the maximum coefficients.
+     * 
+     * @param function  truth table of the function
+     * @param walsht    Walsh transform of the function
+     * @return          the candidate swaps as consecutive pairs (y,z), with
+     *                  y < z and in lexicographic order
+     */
+    public static int[] genPrunedSwaps(boolean[] function, int[] walsht) {
+        
+        int n = function.length;
+        
+        //Step 1: collect the coefficients at the spectral radius
+        int sprad = FitnessFunctions.findSpectralRadius(walsht);
+        int nmax = 0;
+        int[] maxcoeffs = new int[n];
+        for(int a=0; a<n; a++) {
+            if(Math.abs(walsht[a]) == sprad) {
+                maxcoeffs[nmax] = a;
+                nmax++;
+            }
+        }
+        
+        //Step 2: keep the positions whose terms agree in sign with all the
+        //maximum coefficients
+        int[] agree = new int[n];
+        int nagree = 0;
+        for(int x=0; x<n; x++) {
+            
+            int fx = function[x] ? 1 : 0;
+            boolean ok = true;
+            for(int m=0; m<nmax && ok; m++) {
+                int a = maxcoeffs[m];
+                //the term is positive iff f(x) XOR a.x = 0
+                boolean positive = ((fx ^ Integer.bitCount(a & x)) & 1) == 0;
+                ok = (positive == (walsht[a] > 0));
+            }
+            if(ok) {
+                agree[nagree] = x;
+                nagree++;
+            }
+            
+        }
+        
+        //Step 3: pair the agreeing positions with different values
+        int count = 0;
+        int[] swaps = new int[16];
+        for(int i=0; i<nagree; i++) {
+            for(int j=i+1; j<nagree; j++) {
+                if(function[agree[i]] != function[agree[j]]) {
+                    if(count+2 > swaps.length) {
+                        swaps = Arrays.copyOf(swaps, swaps.length*2);
+                    }
+                    swaps[count] = agree[i];
+                    swaps[count+1] = agree[j];
+                    count += 2;
+                }
+            }
+        }
+        
+        return Arrays.copyOf(swaps, count);
+        
+    }
+    
+    /**
+     * Same as findBestNeighbor(), but only the swaps returned by
+     * genPrunedSwaps() are evaluated. Since all the improving neighbours are
+     * among them, the returned solution is the same; only the number of
+     * evaluations is lower.
+     * 
+     * @param function  truth table of the function
+     * @param fitness   fitness function value for the function
+     * @param walsht    Walsh transform of the function
+     * @param nvar      number of variables
+     * @return 
+     */
+    public static SearchSolution findBestNeighborPruned(boolean[] function,
+            double fitness, int[] walsht, int nvar) {
+        
+        SearchSolution best = new SearchSolution(function, walsht, fitness, nvar);
+        SearchSolution current = new SearchSolution(function, walsht, fitness, nvar);
+        current.initSpectrum();
+        
+        int[] swaps = genPrunedSwaps(function, walsht);
+        for(int s=0; s<swaps.length; s+=2) {
+            
+            swapInPlace(current, swaps[s], swaps[s+1]);
+            double upfitness = FitnessFunctions.compFitnessBFSpectrum(current, false);
+            best.eval++;
+            if(upfitness>fitness){
+                best.updateFunction(current.function, current.walsht, upfitness);
+            }
+            swapInPlace(current, swaps[s], swaps[s+1]);
+            
+        }
+        
+        return best;
+        
+    }
+    
+    /**
+     * Task evaluating the swaps (i,j), i<j, of the rows i in [from,to) of the
+     * neighbourhood. Each leaf works on its own copy of the solution, applying
+     * and undoing the swaps in place, and returns the last improving swap of
+     * its rows (in the order of findBestNeighbor()) and the number of
+     * evaluated swaps. Since the rows are ordered, the reduction keeps the
+     * swap of the right task, and the result does not depend on the split.
+     */
+    private static class NeighborhoodTask extends RecursiveTask<long[]> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final SearchSolution start;
+        private final double fitness;
+        private final int from;
+        private final int to;
+        private final int grain;
+        
+        NeighborhoodTask(SearchSolution start, double fitness, int from,
+                int to, int grain) {
+            this.start = start;
+            this.fitness = fitness;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+        
+        @Override
+        protected long[] compute() {
+            
+            if(to - from <= grain) {
+                
+                SearchSolution current = new SearchSolution(start.function,
+                        start.walsht, start.fitness, start.nvar);
+                current.initSpectrum();
+                boolean[] function = start.function;
+                int n = function.length;
+                long last = -1;
+                long eval = 0;
+                
+                for(int i=from; i<to; i++) {
+                    for(int j=i+1; j<n; j++) {
+                        if(function[i] != function[j]) {
+                            swapInPlace(current, i, j);
+                            eval++;
+                            if(FitnessFunctions.compFitnessBFSpectrum(current, false) > fitness) {
+                                last = (long)i*n + j;
+                            }
+                            swapInPlace(current, i, j);
+                        }
                     }
                 }
+                
+                long[] result = {last, eval};
+                return result;
+                
+            } else {
+                
+                int mid = (from + to) >>> 1;
+                NeighborhoodTask left = new NeighborhoodTask(start, fitness, from, mid, grain);
+                NeighborhoodTask right = new NeighborhoodTask(start, fitness, mid, to, grain);
+                left.fork();
+                long[] rres = right.compute();
+                long[] lres = left.join();
+                
+                long[] result = {(rres[0] >= 0) ? rres[0] : lres[0], lres[1] + rres[1]};
+                return result;
+                
             }
             
         }
         
+    }
+    
+    /**
+     * Parallel version of findBestNeighbor(). The rows of the neighbourhood
+     * are split among the threads of a fork-join pool, and the returned
+     * solution is the same as in the sequential version, whatever the number
+     * of threads.
+     * 
+     * @param function  truth table of the function
+     * @param fitness   fitness function value for the function
+     * @param walsht    Walsh transform of the function
+     * @param nvar      number of variables
+     * @param pool      fork-join pool used to evaluate the neighbours
+     * @return 
+     */
+    public static SearchSolution findBestNeighborPar(boolean[] function,
+            double fitness, int[] walsht, int nvar, ForkJoinPool pool) {
+        
+        SearchSolution best = new SearchSolution(function, walsht, fitness, nvar);
+        int n = function.length;
+        
+        //The rows have decreasing lengths, hence use many tasks per thread
+        //to balance the load
+        int grain = Math.max(1, n / (16 * pool.getParallelism()));
+        long[] result = pool.invoke(new NeighborhoodTask(best, fitness, 0, n, grain));
+        
+        if(result[0] >= 0) {
+            
+            //Apply the chosen swap to a copy of the solution
+            SearchSolution current = new SearchSolution(function, walsht, fitness, nvar);
+            current.initSpectrum();
+            swapInPlace(current, (int)(result[0] / n), (int)(result[0] % n));
+            best.updateFunction(current.function, current.walsht,
+                    FitnessFunctions.compFitnessBFSpectrum(current, false));
+            
+        }
+        best.eval = (int)result[1];
+        
         return best;
+        
     }
     
     /**
@@ -150,6 +439,348 @@ public class LocalSearchTools {
         return best;
     }
     
+    /**
+     * Hill-climbing method that uses function findBestNeighborPruned. It
+     * reaches the same local optimum as hillClimb()
+     * 
+     * @param function  truth table of the function
+     * @param fitness   fitness function value for the function
+     * @param walsht    Walsh transform of the function
+     * @param nvar      number of variables
+     * @return 
+     */
+    public static SearchSolution hillClimbPruned(boolean[] function, double fitness, 
+            int[] walsht, int nvar){
+        
+        SearchSolution best = new SearchSolution(function, walsht, fitness, nvar);
+        SearchSolution temp = new SearchSolution(nvar);
+        int eval = 0;
+        do {
+            
+            temp.updateFunction(best.function, best.walsht, best.fitness);
+            best = findBestNeighborPruned(best.function, best.fitness, best.walsht, nvar);
+            eval += best.eval;
+            
+        } while(temp.fitness != best.fitness);
+        
+        best.eval = eval;
+        return best;
+    }
+    
+    /**
+     * First improvement hill climbing, done in place on a solution. At each
+     * step the swaps of a 1 and a 0 are visited in a random order, and the
+     * first improving one is kept; each rejected swap is undone. The order is
+     * the affine permutation k -> (offset + k*stride) mod m of the m swaps,
+     * with random offset and stride coprime to m, so that it costs no memory.
+     * 
+     * @param sol       the solution, which is modified in place. Its field eval
+     *                  is set to the number of evaluated neighbours
+     * @param steepest  flag specifying whether to climb until a local optimum
+     *                  (true) or to apply a single step (false)
+     * @param budget    maximum number of evaluated neighbours (0: no limit)
+     * @param genrand   random number generator
+     * @return          the solution
+     */
+    public static SearchSolution firstImprovementClimb(SearchSolution sol,
+            boolean steepest, int budget, Random genrand) {
+        
+        if(sol.spectrum == null) {
+            sol.initSpectrum();
+        }
+        int[][] positions = splitPositions(sol.function);
+        int[] ones = positions[0];
+        int[] zeros = positions[1];
+        long m = (long)ones.length * zeros.length;
+        int eval = 0;
+        boolean improved = (m > 0);
+        
+        while(improved && (budget == 0 || eval < budget)) {
+            
+            improved = false;
+            long offset = Math.floorMod(genrand.nextLong(), m);
+            long stride = 1 + Math.floorMod(genrand.nextLong(), m);
+            while(gcd(stride, m) != 1) {
+                stride = 1 + Math.floorMod(genrand.nextLong(), m);
+            }
+            
+            //The index is advanced by the stride modulo m at each step, since
+            //k*stride overflows a long for large n
+            long idx = offset;
+            for(long k=0; k<m && (budget == 0 || eval < budget); k++, idx = (idx + stride) % m) {
+                
+                int iy = (int)(idx / zeros.length);
+                int iz = (int)(idx % zeros.length);
+                
+                swapInPlace(sol, ones[iy], zeros[iz]);
+                double upfitness = FitnessFunctions.compFitnessBFSpectrum(sol, false);
+                eval++;
+                if(upfitness > sol.fitness) {
+                    //keep the swap: the 1 moved to zeros[iz] and vice versa
+                    sol.fitness = upfitness;
+                    int temp = ones[iy];
+                    ones[iy] = zeros[iz];
+                    zeros[iz] = temp;
+                    improved = true;
+                    break;
+                }
+                swapInPlace(sol, ones[iy], zeros[iz]);
+                
+            }
+            
+            if(!steepest) {
+                break;
+            }
+            
+        }
+        
+        sol.eval = eval;
+        return sol;
+        
+    }
+    
+    /**
+     * Hill climbing over a sampled neighbourhood, done in place on a solution.
+     * At each step, samples random swaps of a 1 and a 0 are evaluated (and
+     * undone), and the best of them is applied if it improves the solution.
+     * 
+     * @param sol       the solution, which is modified in place. Its field eval
+     *                  is set to the number of evaluated neighbours
+     * @param steepest  flag specifying whether to climb until a step finds no
+     *                  improving sample (true) or to apply a single step (false)
+     * @param budget    maximum number of evaluated neighbours (0: no limit)
+     * @param samples   number of sampled swaps per step
+     * @param genrand   random number generator
+     * @return          the solution
+     */
+    public static SearchSolution sampledClimb(SearchSolution sol,
+            boolean steepest, int budget, int samples, Random genrand) {
+        
+        if(sol.spectrum == null) {
+            sol.initSpectrum();
+        }
+        int[][] positions = splitPositions(sol.function);
+        int[] ones = positions[0];
+        int[] zeros = positions[1];
+        int eval = 0;
+        boolean improved = (ones.length > 0 && zeros.length > 0);
+        
+        while(improved && (budget == 0 || eval < budget)) {
+            
+            improved = false;
+            double bestfit = sol.fitness;
+            int besty = -1;
+            int bestz = -1;
+            
+            for(int s=0; s<samples && (budget == 0 || eval < budget); s++) {
+                
+                int iy = genrand.nextInt(ones.length);
+                int iz = genrand.nextInt(zeros.length);
+                swapInPlace(sol, ones[iy], zeros[iz]);
+                double upfitness = FitnessFunctions.compFitnessBFSpectrum(sol, false);
+                eval++;
+                if(upfitness > bestfit) {
+                    bestfit = upfitness;
+                    besty = iy;
+                    bestz = iz;
+                }
+                swapInPlace(sol, ones[iy], zeros[iz]);
+                
+            }
+            
+            if(besty >= 0) {
+                swapInPlace(sol, ones[besty], zeros[bestz]);
+                sol.fitness = bestfit;
+                int temp = ones[besty];
+                ones[besty] = zeros[bestz];
+                zeros[bestz] = temp;
+                improved = true;
+            }
+            
+            if(!steepest) {
+                break;
+            }
+            
+        }
+        
+        sol.eval = eval;
+        return sol;
+        
+    }
+    
+    /**
+     * Perturb a balanced solution in place with k random swaps of a 1 and a 0,
+     * updating its Walsh transform and spectrum, so that the kick costs
+     * O(k*2^n), and recompute its fitness from the spectrum.
+     * 
+     * @param sol       the solution, which is modified in place
+     * @param k         number of swaps
+     * @param genrand   random number generator
+     */
+    public static void kick(SearchSolution sol, int k, Random genrand) {
+        
+        if(sol.spectrum == null) {
+            sol.initSpectrum();
+        }
+        int n = sol.function.length;
+        
+        for(int s=0; s<k; s++) {
+            
+            //The function is balanced, so a random position holds a 1 (or a
+            //0) once every two draws on average
+            int y = genrand.nextInt(n);
+            while(!sol.function[y]) {
+                y = genrand.nextInt(n);
+            }
+            int z = genrand.nextInt(n);
+            while(sol.function[z]) {
+                z = genrand.nextInt(n);
+            }
+            swapInPlace(sol, y, z);
+            
+        }
+        
+        sol.fitness = FitnessFunctions.compFitnessBFSpectrum(sol, false);
+        
+    }
+    
+    /**
+     * Apply a local search strategy to a solution.
+     * 
+     * @param sol       the solution (modified in place by strategies 2 to 5)
+     * @param lsop      the code of the strategy (0: best improvement, 1: best
+     *                  improvement over the pruned neighbourhood, 2: first
+     *                  improvement, 3: sampled neighbourhood, 4: tabu search,
+     *                  5: tabu search over the pruned neighbourhood)
+     * @param steepest  flag specifying whether to climb until a local optimum
+     *                  (true) or to apply a single step (false). The tabu
+     *                  searches run until the budget is over if it is set
+     * @param budget    maximum number of evaluated neighbours (0: no limit,
+     *                  not allowed for the tabu searches if steepest is set).
+     *                  The best improvement strategies check it after each step
+     * @param samples   number of sampled swaps per step (strategy 3), or tabu
+     *                  tenure (strategies 4 and 5)
+     * @param genrand   random number generator (strategies 2 to 5)
+     * @return          the local optimum, with the number of evaluated
+     *                  neighbours in its field eval
+     */
+    public static SearchSolution localSearch(SearchSolution sol, int lsop,
+            boolean steepest, int budget, int samples, Random genrand) {
+        
+        return localSearch(sol, lsop, steepest, budget, samples, genrand, null);
+        
+    }
+    
+    /**
+     * Same as localSearch(), but the best improvement strategy (0) evaluates
+     * the neighbourhood in parallel on a fork-join pool (if not null). The
+     * result does not depend on the number of threads.
+     * 
+     * @param sol       the solution (modified in place by strategies 2 to 5)
+     * @param lsop      the code of the strategy
+     * @param steepest  flag specifying whether to climb until a local optimum
+     *                  (true) or to apply a single step (false)
+     * @param budget    maximum number of evaluated neighbours (0: no limit)
+     * @param samples   number of sampled swaps per step (strategy 3), or tabu
+     *                  tenure (strategies 4 and 5)
+     * @param genrand   random number generator (strategies 2 to 5)
+     * @param pool      fork-join pool for strategy 0 (null: sequential)
+     * @return          the local optimum, with the number of evaluated
+     *                  neighbours in its field eval
+     */
+    public static SearchSolution localSearch(SearchSolution sol, int lsop,
+            boolean steepest, int budget, int samples, Random genrand,
+            ForkJoinPool pool) {
+        
+        switch(lsop) {
+            
+            case 2:
+                return firstImprovementClimb(sol, steepest, budget, genrand);
+            
+            case 3:
+                return sampledClimb(sol, steepest, budget, samples, genrand);
+            
+            case 4:
+            case 5:
+                if(steepest && budget == 0) {
+                    throw new IllegalArgumentException("The tabu search needs a budget of evaluations");
+                }
+                return TabuSearch.tabuSearch(sol, steepest ? Integer.MAX_VALUE : 1,
+                        samples, lsop == 5, budget, genrand);
+            
+            default: {
+                
+                //Same loop as hillClimb(), stopped by the budget
+                SearchSolution best = sol;
+                int eval = 0;
+                double prevfit;
+                do {
+                    
+                    prevfit = best.fitness;
+                    if(lsop == 1) {
+                        best = findBestNeighborPruned(best.function, best.fitness, best.walsht, best.nvar);
+                    } else if(pool != null) {
+                        best = findBestNeighborPar(best.function, best.fitness, best.walsht, best.nvar, pool);
+                    } else {
+                        best = findBestNeighbor(best.function, best.fitness, best.walsht, best.nvar);
+                    }
+                    eval += best.eval;
+                    
+                } while(steepest && prevfit != best.fitness && (budget == 0 || eval < budget));
+                
+                best.eval = eval;
+                return best;
+                
+            }
+            
+        }
+        
+    }
+    
+    /**
+     * Return the positions of the 1s and of the 0s of a truth table.
+     */
+    static int[][] splitPositions(boolean[] function) {
+        
+        int weight = 0;
+        for(int i=0; i<function.length; i++) {
+            if(function[i]) {
+                weight++;
+            }
+        }
+        
+        int[] ones = new int[weight];
+        int[] zeros = new int[function.length-weight];
+        int o = 0;
+        int z = 0;
+        for(int i=0; i<function.length; i++) {
+            if(function[i]) {
+                ones[o] = i;
+                o++;
+            } else {
+                zeros[z] = i;
+                z++;
+            }
+        }
+        
+        int[][] positions = {ones, zeros};
+        
+        return positions;
+        
+    }
+    
+    private static long gcd(long a, long b) {
+        
+        while(b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        
+        return a;
+        
+    }
+    
     //Test main
     public static void main(String[] args) {
         
@@ -0,0 +1,185 @@
+package lon;
+
+/**
+ * Class implementing a concurrent table of the local optima found while
+ * sampling a local optima network. Each optimum is identified by its truth
+ * table packed in 64-bit words (see BinTools.packTable()) and gets a node id,
+ * assigned in order of insertion; the ids are the positions of the optima in
+ * the primitive arrays of the packed tables and of the fitness values, so the
+ * table holds no object per optimum.
+ *
+ * The ids are located through an open addressing index with linear probing,
+ * whose buckets are claimed with compare-and-set: a thread inserting a new
+ * optimum marks an empty bucket as busy, writes the packed table and the
+ * fitness, and then publishes the id in the bucket, so that lookups never
+ * lock and see only complete entries. The capacity is fixed at creation time.
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class OptimaTable {
+    
+    private static final int BUSY = -1;
+    private static final long K1 = 0x9E3779B97F4A7C15L;
+    
+    private final int capacity;
+    private final int words;
+    private final long[] keys;
+    private final int[] fitness;
+    private final AtomicIntegerArray index;     //id+1 of the optimum in each bucket, 0 if empty
+    private final int mask;
+    private final AtomicInteger size;
+    
+    /**
+     * Create an empty table.
+     *
+     * @param nvar      number of variables of the functions
+     * @param capacity  maximum number of optima stored
+     */
+    public OptimaTable(int nvar, int capacity) {
+        
+        if(capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the table must be positive");
+        }
+        words = ((1 << nvar)+63) >>> 6;
+        if(capacity > (1 << 28) || (long)capacity*words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The capacity of the table is too large: "+capacity);
+        }
+        
+        this.capacity = capacity;
+        keys = new long[capacity*words];
+        fitness = new int[capacity];
+        
+        //The index has at least twice the buckets of the optima, so that the
+        //probe sequences stay short
+        int buckets = Integer.highestOneBit(capacity) << 2;
+        index = new AtomicIntegerArray(buckets);
+        mask = buckets - 1;
+        size = new AtomicInteger();
+        
+    }
+    
+    /**
+     * Return the id of an optimum, inserting it if it is not in the table.
+     * This method can be called concurrently by several threads.
+     *
+     * @param packed    the packed truth table of the optimum
+     * @param fit       its fitness value
+     * @return          the id of the optimum
+     * @throws IllegalStateException if the table is full
+     */
+    public int getOrAdd(long[] packed, int fit) {
+        
+        int b = bucket(packed);
+        
+        while(true) {
+            
+            int v = index.get(b);
+            
+            if(v == 0) {
+                
+                if(!index.compareAndSet(b, 0, BUSY)) {
+                    //Another thread claimed the bucket: read it again
+                    continue;
+                }
+                int id = size.getAndIncrement();
+                if(id >= capacity) {
+                    size.decrementAndGet();
+                    index.set(b, 0);
+                    throw new IllegalStateException("The table of the optima is full ("+capacity+" optima)");
+                }
+                System.arraycopy(packed, 0, keys, id*words, words);
+                fitness[id] = fit;
+                index.set(b, id+1);
+                return id;
+                
+            }
+            
+            if(v == BUSY) {
+                //The optimum in the bucket is being written
+                Thread.onSpinWait();
+                continue;
+            }
+            
+            if(matches(v-1, packed)) {
+                return v-1;
+            }
+            b = (b+1) & mask;
+            
+        }
+        
+    }
+    
+    /**
+     * Return the number of optima in the table.
+     *
+     * @return  the number of optima
+     */
+    public int size() {
+        
+        return size.get();
+        
+    }
+    
+    /**
+     * Return the number of 64-bit words of a packed truth table.
+     *
+     * @return  the number of words
+     */
+    public int getWords() {
+        
+        return words;
+        
+    }
+    
+    /**
+     * Return the packed truth tables of the optima, concatenated in order of
+     * id. It must not be called while optima are being inserted.
+     *
+     * @return  the array of the packed tables (the internal one, not a copy)
+     */
+    public long[] getKeys() {
+        
+        return keys;
+        
+    }
+    
+    /**
+     * Return the fitness values of the optima, in order of id. It must not be
+     * called while optima are being inserted.
+     *
+     * @return  the array of the fitness values (the internal one, not a copy)
+     */
+    public int[] getFitness() {
+        
+        return fitness;
+        
+    }
+    
+    private boolean matches(int id, long[] packed) {
+        
+        int base = id*words;
+        for(int w=0; w<words; w++) {
+            if(keys[base+w] != packed[w]) {
+                return false;
+            }
+        }
+        
+        return true;
+        
+    }
+    
+    private int bucket(long[] packed) {
+        
+        long h = 0L;
+        for(int w=0; w<words; w++) {
+            h = (h ^ packed[w]) * K1;
+            h ^= h >>> 29;
+        }
+        
+        return (int)(h ^ (h >>> 32)) & mask;
+        
+    }
+    
+}
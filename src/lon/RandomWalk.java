@@ -0,0 +1,326 @@
+package lon;
+
+/**
+ * Class running a random walk on the fitness landscape of the Boolean
+ * functions and computing its statistics on the fly. The moves are random
+ * swaps of a 1 and a 0 (balanced functions, fitness = nonlinearity) or random
+ * flips of a bit (unbalanced functions, fitness = nonlinearity minus
+ * unbalancedness, as in SteadyGABFUnb), applied in O(2^n) by the incremental
+ * update of the Walsh transform and of its spectrum.
+ *
+ * The fitness values of the walk are not stored: the statistics are kept as
+ * sums updated at each step, with the last maxlag values in a circular buffer
+ * and the first maxlag values for the correction of the means, so that the
+ * memory is O(1) per lag and the walk can be arbitrarily long. The sums are
+ * exact, since they are kept as longs over the fitness values minus the
+ * starting one. The statistics are:
+ * - the autocorrelation r(k) of the fitness at lag k = 1..maxlag, and the
+ *   correlation length -1/ln|r(1)|;
+ * - the ratio of neutral steps (steps that do not change the fitness);
+ * - the information content H(eps), the partial information content M(eps)
+ *   and the density-basin information h(eps) of Vassilev et al., computed on
+ *   the string of the fitness changes classified as -1, 0 or 1 with
+ *   threshold eps.
+ *
+ */
+
+import genalg.*;
+import java.util.Random;
+
+public class RandomWalk {
+    
+    public static final int SWAP = 0;   //swap of a 1 and a 0, balanced fitness
+    public static final int FLIP = 1;   //flip of a bit, unbalanced fitness
+    
+    private final SearchSolution sol;
+    private final int move;
+    private final int maxlag;
+    private final double eps;
+    private final int[] ones;
+    private final int[] zeros;
+    
+    private final long offset;          //fitness of the starting solution
+    private final long[] head;          //first maxlag values
+    private final long[] tail;          //last maxlag values (circular)
+    private final long[] lagsums;       //lagsums[k] = sum of g(t)*g(t+k)
+    private long count;                 //number of fitness values
+    private long sum;
+    private long sqsum;
+    private long neutral;
+    private final long[][] pairs;       //pairs[p+1][q+1] = consecutive symbols p,q
+    private int lastsym;
+    private int lastslope;
+    private long slopes;                //length of the reduced symbol string
+    
+    /**
+     * Prepare a walk from a solution.
+     *
+     * @param sol       the starting solution, which is modified in place (it
+     *                  holds the current solution)
+     * @param move      the move of the walk (SWAP or FLIP)
+     * @param maxlag    maximum lag of the autocorrelation
+     * @param eps       threshold of the information content measures
+     */
+    public RandomWalk(SearchSolution sol, int move, int maxlag, double eps) {
+        
+        if(maxlag < 1) {
+            throw new IllegalArgumentException("The maximum lag must be positive");
+        }
+        if(sol.spectrum == null) {
+            sol.initSpectrum();
+        }
+        this.sol = sol;
+        this.move = move;
+        this.maxlag = maxlag;
+        this.eps = eps;
+        
+        int[][] positions = LocalSearchTools.splitPositions(sol.function);
+        ones = positions[0];
+        zeros = positions[1];
+        if(move == SWAP && (ones.length == 0 || zeros.length == 0)) {
+            throw new IllegalArgumentException("A constant function has no swap moves");
+        }
+        
+        head = new long[maxlag];
+        tail = new long[maxlag];
+        lagsums = new long[maxlag+1];
+        pairs = new long[3][3];
+        
+        sol.fitness = FitnessFunctions.compFitnessBFSpectrum(sol, move == FLIP);
+        offset = (long)sol.fitness;
+        record(0L);
+        
+    }
+    
+    /**
+     * Run a number of steps of the walk.
+     *
+     * @param steps     number of steps
+     * @param genrand   random number generator
+     */
+    public void walk(long steps, Random genrand) {
+        
+        for(long s=0; s<steps; s++) {
+            
+            //Step 1: apply a random move
+            if(move == SWAP) {
+                int i = genrand.nextInt(ones.length);
+                int j = genrand.nextInt(zeros.length);
+                LocalSearchTools.swapInPlace(sol, ones[i], zeros[j]);
+                int temp = ones[i];
+                ones[i] = zeros[j];
+                zeros[j] = temp;
+            } else {
+                LocalSearchTools.flipInPlace(sol, genrand.nextInt(sol.function.length));
+            }
+            
+            //Step 2: add the new fitness value to the statistics
+            long prev = (long)sol.fitness - offset;
+            sol.fitness = FitnessFunctions.compFitnessBFSpectrum(sol, move == FLIP);
+            long g = (long)sol.fitness - offset;
+            
+            long delta = g - prev;
+            if(delta == 0) {
+                neutral++;
+            }
+            int sym = 0;
+            if(delta > eps) {
+                sym = 1;
+            } else if(delta < -eps) {
+                sym = -1;
+            }
+            if(count >= 2) {
+                pairs[lastsym+1][sym+1]++;
+            }
+            if(sym != 0 && sym != lastslope) {
+                slopes++;
+                lastslope = sym;
+            }
+            lastsym = sym;
+            
+            record(g);
+            
+        }
+        
+    }
+    
+    /**
+     * Add a fitness value (minus the offset) to the sums.
+     */
+    private void record(long g) {
+        
+        int lags = (int)Math.min(maxlag, count);
+        for(int k=1; k<=lags; k++) {
+            lagsums[k] += g * tail[(int)((count-k) % maxlag)];
+        }
+        if(count < maxlag) {
+            head[(int)count] = g;
+        }
+        tail[(int)(count % maxlag)] = g;
+        sum += g;
+        sqsum += g*g;
+        count++;
+        
+    }
+    
+    /**
+     * Return the number of steps of the walk.
+     *
+     * @return  the number of steps
+     */
+    public long getSteps() {
+        
+        return count-1;
+        
+    }
+    
+    /**
+     * Return the mean fitness along the walk.
+     *
+     * @return  the mean fitness
+     */
+    public double getMean() {
+        
+        return offset + (double)sum/count;
+        
+    }
+    
+    /**
+     * Return the variance of the fitness along the walk.
+     *
+     * @return  the variance
+     */
+    public double getVariance() {
+        
+        double mean = (double)sum/count;
+        
+        return Math.max(0.0, (double)sqsum/count - mean*mean);
+        
+    }
+    
+    /**
+     * Return the autocorrelation of the fitness at a given lag, estimated
+     * with the mean and the variance of the whole walk. A walk of constant
+     * fitness is considered fully correlated.
+     *
+     * @param k     the lag, from 1 to maxlag
+     * @return      the autocorrelation r(k), or 0 if the walk is not longer
+     *              than k
+     */
+    public double getAutocorrelation(int k) {
+        
+        if(k < 1 || k > maxlag) {
+            throw new IllegalArgumentException("The lag must be between 1 and "+maxlag);
+        }
+        if(count <= k) {
+            return 0.0;
+        }
+        double var = getVariance();
+        if(var == 0.0) {
+            return 1.0;
+        }
+        
+        //Sums of g(t) over the first and the last count-k values
+        long first = sum;
+        long last = sum;
+        for(int i=1; i<=k; i++) {
+            first -= tail[(int)((count-i) % maxlag)];
+            last -= head[i-1];
+        }
+        
+        double mean = (double)sum/count;
+        double cov = (lagsums[k] - mean*(first+last))/(count-k) + mean*mean;
+        
+        return cov/var;
+        
+    }
+    
+    /**
+     * Return the correlation length -1/ln|r(1)| of the walk.
+     *
+     * @return  the correlation length
+     */
+    public double getCorrelationLength() {
+        
+        double r = Math.abs(getAutocorrelation(1));
+        if(r >= 1.0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if(r == 0.0) {
+            return 0.0;
+        }
+        
+        return -1.0/Math.log(r);
+        
+    }
+    
+    /**
+     * Return the fraction of the steps that do not change the fitness.
+     *
+     * @return  the ratio of neutral steps
+     */
+    public double getNeutralRatio() {
+        
+        return (count > 1) ? (double)neutral/(count-1) : 0.0;
+        
+    }
+    
+    /**
+     * Return the information content H(eps), i.e. the entropy (in base 6) of
+     * the pairs of different consecutive symbols of the walk.
+     *
+     * @return  the information content
+     */
+    public double getInformationContent() {
+        
+        return pairEntropy(false, 6);
+        
+    }
+    
+    /**
+     * Return the density-basin information h(eps), i.e. the entropy (in base
+     * 3) of the pairs of equal consecutive symbols of the walk.
+     *
+     * @return  the density-basin information
+     */
+    public double getDensityBasinInformation() {
+        
+        return pairEntropy(true, 3);
+        
+    }
+    
+    /**
+     * Return the partial information content M(eps), i.e. the length of the
+     * string of symbols without the 0s and the repeated symbols, over the
+     * number of steps.
+     *
+     * @return  the partial information content
+     */
+    public double getPartialInformationContent() {
+        
+        return (count > 1) ? (double)slopes/(count-1) : 0.0;
+        
+    }
+    
+    private double pairEntropy(boolean equal, int base) {
+        
+        long total = count-2;
+        if(total <= 0) {
+            return 0.0;
+        }
+        
+        double entropy = 0.0;
+        for(int p=0; p<3; p++) {
+            for(int q=0; q<3; q++) {
+                if((p == q) == equal && pairs[p][q] > 0) {
+                    double prob = (double)pairs[p][q]/total;
+                    entropy -= prob*Math.log(prob)/Math.log(base);
+                }
+            }
+        }
+        
+        return entropy;
+        
+    }
+    
+}
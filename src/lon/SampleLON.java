@@ -0,0 +1,83 @@
+package lon;
+
+/**
+ *
+ * Class to sample the local optima network of the balanced Boolean functions
+ * and save it in a binary graph file.
+ *
+ */
+
+import java.io.IOException;
+
+public class SampleLON {
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        
+        if(args.length != 10 && args.length != 11) {
+            
+            System.err.println("Usage: java lon.SampleLON nvar starts trials strength lsop lsbudget samples threads seed outfile [capacity]");
+            System.err.println("\nwhere:");
+            System.err.println("- nvar is the number of variables of the boolean functions");
+            System.err.println("- starts is the number of walks, each from a random balanced function");
+            System.err.println("- trials is the number of escape trials (kick and local search) of each walk");
+            System.err.println("- strength is the number of random swaps of a kick");
+            System.err.println("- lsop is the code for the local search strategy (see SteadyGALSBF, 0: best improvement)");
+            System.err.println("- lsbudget is the maximum number of neighbours evaluated by each local search (0: no limit, not allowed for strategies 4 and 5)");
+            System.err.println("- samples is the number of swaps sampled at each step by strategy 3, or the tabu tenure of strategies 4 and 5");
+            System.err.println("- threads is the number of sampling threads (0: all available processors)");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable");
+            System.err.println("- outfile is the file where the network is saved");
+            System.err.println("- capacity is the maximum number of optima (default: one per local search)\n");
+            System.exit(1);
+            
+        }
+        
+        int nvar = Integer.parseInt(args[0]);
+        int starts = Integer.parseInt(args[1]);
+        int trials = Integer.parseInt(args[2]);
+        int strength = Integer.parseInt(args[3]);
+        int lsop = Integer.parseInt(args[4]);
+        int lsbudget = Integer.parseInt(args[5]);
+        int samples = Integer.parseInt(args[6]);
+        int threads = Integer.parseInt(args[7]);
+        long seed = Long.parseLong(args[8]);
+        String outfile = args[9];
+        if(threads == 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        
+        //Each local search reaches at most one new optimum
+        long searches = (long)starts*(trials+1);
+        int capacity = (int)Math.min(searches, 1 << 28);
+        if(args.length == 11) {
+            capacity = Integer.parseInt(args[10]);
+        }
+        
+        long time = System.nanoTime();
+        LONSampler sampler = new LONSampler(nvar, starts, trials, strength,
+                lsop, lsbudget, samples, capacity, seed);
+        LONGraph graph = sampler.sample(threads);
+        time = System.nanoTime() - time;
+        graph.write(outfile);
+        
+        int best = Integer.MIN_VALUE;
+        int nbest = 0;
+        for(int u=0; u<graph.nodes; u++) {
+            if(graph.fitness[u] > best) {
+                best = graph.fitness[u];
+                nbest = 0;
+            }
+            if(graph.fitness[u] == best) {
+                nbest++;
+            }
+        }
+        
+        System.out.println("Nodes: "+graph.nodes);
+        System.out.println("Edges: "+graph.getEdges());
+        System.out.println("Best fitness: "+best+" ("+nbest+" optima)");
+        System.out.println("Evaluated neighbours: "+sampler.getEval());
+        System.out.println("Time (ms): "+(time/1000000));
+        
+    }
+    
+}
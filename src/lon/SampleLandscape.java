@@ -0,0 +1,72 @@
+package lon;
+
+/**
+ *
+ * Class to sample the nonlinearity distribution of random genomes, and save
+ * it in a file with a row "nl<TAB>count" for each nonlinearity value found.
+ *
+ */
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+public class SampleLandscape {
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        
+        if(args.length != 7) {
+            
+            System.err.println("Usage: java lon.SampleLandscape nvar type samples batch threads seed outfile");
+            System.err.println("\nwhere:");
+            System.err.println("- nvar is the number of variables of the boolean functions");
+            System.err.println("- type is the kind of genomes (0: balanced functions, 1: functions with the weight of a bent function, 2: WPB functions)");
+            System.err.println("- samples is the number of genomes");
+            System.err.println("- batch is the number of genomes drawn from the same random number generator");
+            System.err.println("- threads is the number of threads (0: all available processors)");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable");
+            System.err.println("- outfile is the file where the histogram is saved\n");
+            System.exit(1);
+            
+        }
+        
+        int nvar = Integer.parseInt(args[0]);
+        int type = Integer.parseInt(args[1]);
+        long samples = Long.parseLong(args[2]);
+        int batch = Integer.parseInt(args[3]);
+        int threads = Integer.parseInt(args[4]);
+        long seed = Long.parseLong(args[5]);
+        String outfile = args[6];
+        if(threads == 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        
+        long time = System.nanoTime();
+        LandscapeSampler sampler = new LandscapeSampler(nvar, type, samples, batch, seed);
+        long[] counts = sampler.sample(threads);
+        time = System.nanoTime() - time;
+        
+        //Compute the statistics and write the non-empty entries
+        double mean = 0.0;
+        double sqmean = 0.0;
+        int max = 0;
+        try(PrintWriter out = new PrintWriter(new FileWriter(outfile))) {
+            for(int nl=0; nl<counts.length; nl++) {
+                if(counts[nl] > 0) {
+                    out.println(nl+"\t"+counts[nl]);
+                    mean += (double)nl*counts[nl]/samples;
+                    sqmean += (double)nl*nl*counts[nl]/samples;
+                    max = nl;
+                }
+            }
+        }
+        
+        System.out.println("Samples: "+samples);
+        System.out.println("Average nonlinearity: "+mean);
+        System.out.println("Standard deviation: "+Math.sqrt(Math.max(0.0, sqmean - mean*mean)));
+        System.out.println("Maximum nonlinearity: "+max);
+        System.out.println("Time (ms): "+(time/1000000));
+        
+    }
+    
+}
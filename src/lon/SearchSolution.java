@@ -2,7 +2,10 @@ package lon;
 
 /**
  * Class for the structure that saves function, its walsh transform and fitness
- * function value.
+ * function value. Optionally, the structure also carries the spectrum of the
+ * function, i.e. the histogram of the absolute values of its Walsh
+ * coefficients, which allows to maintain the spectral radius while the
+ * coefficients are updated without scanning the whole transform.
  * 
  */
 
@@ -14,12 +17,15 @@ public class SearchSolution{
     public double fitness;
     public int nvar;
     public int eval;
+    public int[] spectrum;      //spectrum[v] = number of coefficients with |W| = v
+    private int sprad;
 
     public SearchSolution(int nvar) {
         int n = (int)Math.pow(2,nvar);
         function = new boolean[n];
         walsht = new int[n];
         fitness = 0;      
+        this.nvar = nvar;
         eval = 0;
     }
     
@@ -39,6 +45,69 @@ public class SearchSolution{
         System.arraycopy(function,0,this.function,0,n);
         System.arraycopy(walsht,0,this.walsht,0,n);
         this.fitness = fitness;
+        if(spectrum != null) {
+            initSpectrum();
+        }
+    }
+    
+    /**
+     * Build the spectrum of the function from its Walsh transform. From now
+     * on, the coefficients must be changed only through setWalshCoeff().
+     */
+    public void initSpectrum() {
+        
+        if(spectrum == null) {
+            spectrum = new int[walsht.length+1];
+        } else {
+            Arrays.fill(spectrum, 0);
+        }
+        
+        sprad = 0;
+        for(int a=0; a<walsht.length; a++) {
+            int abs = Math.abs(walsht[a]);
+            spectrum[abs]++;
+            if(abs > sprad) {
+                sprad = abs;
+            }
+        }
+        
+    }
+    
+    /**
+     * Set a Walsh coefficient, updating the spectrum. If the coefficient was
+     * the last one at the spectral radius, the new radius is found lazily by
+     * getSpectralRadius().
+     * 
+     * @param a         index of the coefficient
+     * @param value     new value of the coefficient
+     */
+    public void setWalshCoeff(int a, int value) {
+        
+        spectrum[Math.abs(walsht[a])]--;
+        walsht[a] = value;
+        int abs = Math.abs(value);
+        spectrum[abs]++;
+        if(abs > sprad) {
+            sprad = abs;
+        }
+        
+    }
+    
+    /**
+     * Return the spectral radius (maximum absolute value of the Walsh
+     * transform) from the spectrum. The radius only moves down through the
+     * empty entries left by the last updates, hence the scan is short.
+     * 
+     * @return  the spectral radius of the function
+     */
+    public int getSpectralRadius() {
+        
+        while(spectrum[sprad] == 0) {
+            sprad--;
+        }
+        
+        return sprad;
+        
     }
     
     @Override
@@ -0,0 +1,240 @@
+package lon;
+
+/**
+ * Class implementing a simulated annealing for balanced Boolean functions,
+ * whose moves are random swaps of a 1 and a 0 in the truth table.
+ *
+ * A swap changes only the Walsh coefficients W(a) with a.y != a.z, each by
+ * +-4, so a move is applied to the current solution in O(2^n) through the
+ * incremental update of the transform and of its spectrum, and undone in the
+ * same way if rejected. The spectral radius is read from the spectrum, and the
+ * sum of the bent deviations (2^(n/2)-|W(a)|)^2 of compFitnessBentGlob() is
+ * updated over the changed coefficients only, so that no move allocates memory.
+ *
+ * The cost to minimize is (1-mix)*(-NL) + mix*sqrt(sum of the deviations):
+ * mix = 0 gives the nonlinearity, mix = 1 the bent-style fitness, and the
+ * values in between weight the two. The temperature is lowered after each move
+ * with a geometric, linear or Lundy-Mees schedule.
+ *
+ * Each move counts as one evaluated neighbour, as in the local searches of
+ * LocalSearchTools, i.e. as 1/nvar of a fitness evaluation of the GA.
+ *
+ */
+
+import boolfun.*;
+import java.util.Random;
+
+public class SimulatedAnnealing {
+    
+    public static final int GEOMETRIC = 0;   //T = T*coolparam
+    public static final int LINEAR = 1;      //T = t0*(1-moves/length)
+    public static final int LUNDYMEES = 2;   //T = T/(1+coolparam*T)
+    
+    private final SearchSolution sol;
+    private final SearchSolution best;
+    private final int[] ones;
+    private final int[] zeros;
+    private final double t0;
+    private final int cooling;
+    private final double coolparam;
+    private final double mix;
+    private final long length;
+    private final int bentcoeff;
+    private double temp;
+    private long devsum;       //sum of (2^(n/2)-|W(a)|)^2 over a != 0
+    private double cost;
+    private double bestcost;
+    private long moves;
+    private long accepted;
+    
+    /**
+     * Prepare an annealing from a balanced solution.
+     *
+     * @param sol       the starting solution, which is modified in place (it
+     *                  holds the current solution)
+     * @param t0        initial temperature
+     * @param cooling   the code of the cooling schedule (GEOMETRIC, LINEAR or
+     *                  LUNDYMEES)
+     * @param coolparam the cooling factor (GEOMETRIC) or the coefficient beta
+     *                  (LUNDYMEES), ignored by LINEAR
+     * @param mix       weight of the bent-style fitness in the cost, in [0,1]
+     * @param length    number of moves after which the linear schedule
+     *                  reaches temperature 0
+     */
+    public SimulatedAnnealing(SearchSolution sol, double t0, int cooling,
+            double coolparam, double mix, long length) {
+        
+        if(sol.spectrum == null) {
+            sol.initSpectrum();
+        }
+        this.sol = sol;
+        this.t0 = t0;
+        this.cooling = cooling;
+        this.coolparam = coolparam;
+        this.mix = mix;
+        this.length = length;
+        temp = t0;
+        bentcoeff = (int)Math.pow(2, sol.nvar/2);
+        
+        int[][] positions = LocalSearchTools.splitPositions(sol.function);
+        ones = positions[0];
+        zeros = positions[1];
+        
+        //W(0) is constant under swaps, hence it is left out as in
+        //compFitnessBentGlob() for balanced functions
+        for(int a=1; a<sol.walsht.length; a++) {
+            long dev = bentcoeff - Math.abs(sol.walsht[a]);
+            devsum += dev*dev;
+        }
+        
+        sol.fitness = BoolTransf.calcNL(sol.getSpectralRadius(), sol.nvar);
+        cost = cost(sol.fitness, devsum);
+        best = new SearchSolution(sol.function, sol.walsht, sol.fitness, sol.nvar);
+        bestcost = cost;
+        
+    }
+    
+    /**
+     * Run a number of moves of the annealing.
+     *
+     * @param steps     number of moves
+     * @param genrand   random number generator
+     */
+    public void anneal(long steps, Random genrand) {
+        
+        int[] walsht = sol.walsht;
+        
+        for(long s=0; s<steps; s++) {
+            
+            //Step 1: draw a 1 and a 0 and apply their swap, updating the sum
+            //of the deviations over the changed coefficients. Since f(y) = 1
+            //and f(z) = 0, W(a) changes by 4 if a.y = 0 and by -4 if a.y = 1
+            int i = genrand.nextInt(ones.length);
+            int j = genrand.nextInt(zeros.length);
+            int y = ones[i];
+            int z = zeros[j];
+            int d = y ^ z;
+            long newsum = devsum;
+            for(int a=1; a<walsht.length; a++) {
+                if((Integer.bitCount(a & d) & 1) == 1) {
+                    int w = walsht[a];
+                    int nw = w + 4 - 8*(Integer.bitCount(a & y) & 1);
+                    long dev = bentcoeff - Math.abs(w);
+                    long ndev = bentcoeff - Math.abs(nw);
+                    newsum += ndev*ndev - dev*dev;
+                    sol.setWalshCoeff(a, nw);
+                }
+            }
+            sol.function[y] = false;
+            sol.function[z] = true;
+            moves++;
+            
+            //Step 2: accept the move with the Metropolis criterion, otherwise
+            //swap back the two positions
+            double newfit = BoolTransf.calcNL(sol.getSpectralRadius(), sol.nvar);
+            double newcost = cost(newfit, newsum);
+            double delta = newcost - cost;
+            if(delta <= 0 || (temp > 0 && genrand.nextDouble() < Math.exp(-delta/temp))) {
+                ones[i] = z;
+                zeros[j] = y;
+                devsum = newsum;
+                cost = newcost;
+                sol.fitness = newfit;
+                accepted++;
+                if(cost < bestcost) {
+                    best.updateFunction(sol.function, walsht, sol.fitness);
+                    bestcost = cost;
+                }
+            } else {
+                LocalSearchTools.swapInPlace(sol, y, z);
+            }
+            
+            //Step 3: lower the temperature
+            switch(cooling) {
+                case LINEAR:
+                    temp = moves < length ? t0*(1.0 - (double)moves/length) : 0.0;
+                    break;
+                case LUNDYMEES:
+                    temp = temp/(1.0 + coolparam*temp);
+                    break;
+                default:
+                    temp *= coolparam;
+            }
+            
+        }
+        
+    }
+    
+    private double cost(double fitness, long sum) {
+        
+        return -(1.0-mix)*fitness + mix*Math.sqrt(sum);
+        
+    }
+    
+    /**
+     * Return the solution with the lowest cost found so far.
+     *
+     * @return  the best solution
+     */
+    public SearchSolution getBest() {
+        
+        return best;
+        
+    }
+    
+    /**
+     * Return the cost of the best solution.
+     *
+     * @return  the best cost
+     */
+    public double getBestCost() {
+        
+        return bestcost;
+        
+    }
+    
+    /**
+     * Return the cost of the current solution.
+     *
+     * @return  the current cost
+     */
+    public double getCost() {
+        
+        return cost;
+        
+    }
+    
+    /**
+     * Return the current temperature.
+     *
+     * @return  the temperature
+     */
+    public double getTemperature() {
+        
+        return temp;
+        
+    }
+    
+    /**
+     * Return the number of moves done so far.
+     *
+     * @return  the number of moves
+     */
+    public long getMoves() {
+        
+        return moves;
+        
+    }
+    
+    /**
+     * Return the number of accepted moves.
+     *
+     * @return  the number of accepted moves
+     */
+    public long getAccepted() {
+        
+        return accepted;
+        
+    }
+    
+}
@@ -0,0 +1,287 @@
+package lon;
+
+/**
+ * Class storing a fixed number of solutions (e.g. a population, or an archive
+ * of optima) of nvar <= 14 variables in compact form, as a structure of
+ * arrays: the truth tables packed in 64-bit words as in BinTools.packTable(),
+ * the Walsh transforms as shorts (|W(a)| <= 2^14 fits), and the fitness
+ * values. A solution takes 2^n/8 + 2*2^n bytes, against 5*2^n bytes for the
+ * boolean and int arrays of a SearchSolution (plus their headers), so the
+ * same heap holds about 2.3 times as many solutions; the slots are positions
+ * in three arrays, with no object per solution.
+ *
+ * The swaps and flips are applied directly to the stored solution, with the
+ * same incremental update of the transform as LocalSearchTools.swapInPlace()
+ * and flipInPlace(), and the fitness is recomputed in the same pass. Solutions
+ * are moved in and out of the store through SearchSolution objects reused by
+ * the caller, so that no operation allocates memory.
+ *
+ */
+
+import boolfun.*;
+
+public class SolutionStore {
+    
+    private final int nvar;
+    private final int length;
+    private final int words;
+    private final boolean unbal;
+    private final long[] tables;
+    private final short[] spectra;
+    private final double[] fitness;
+    
+    /**
+     * Create a store of empty slots.
+     *
+     * @param nvar      number of variables of the functions (at most 14)
+     * @param capacity  number of slots
+     * @param unbal     flag for specifying if unbalancedness must be
+     *                  considered in the fitness updated by swap() and flip()
+     */
+    public SolutionStore(int nvar, int capacity, boolean unbal) {
+        
+        if(nvar < 1 || nvar > 14) {
+            throw new IllegalArgumentException("The compact store is limited to 1-14 variables");
+        }
+        length = 1 << nvar;
+        if((long)capacity*length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("The capacity of the store is too large: "+capacity);
+        }
+        
+        this.nvar = nvar;
+        this.unbal = unbal;
+        words = (length+63) >>> 6;
+        tables = new long[capacity*words];
+        spectra = new short[capacity*length];
+        fitness = new double[capacity];
+        
+    }
+    
+    /**
+     * Copy a solution into a slot.
+     *
+     * @param slot  the slot
+     * @param sol   the solution, with its Walsh transform and fitness
+     */
+    public void set(int slot, SearchSolution sol) {
+        
+        int tbase = slot*words;
+        int sbase = slot*length;
+        
+        for(int w=0; w<words; w++) {
+            long word = 0L;
+            for(int b=0; b<64 && (w << 6)+b < length; b++) {
+                if(sol.function[(w << 6)+b]) {
+                    word |= 1L << b;
+                }
+            }
+            tables[tbase+w] = word;
+        }
+        for(int a=0; a<length; a++) {
+            spectra[sbase+a] = (short)sol.walsht[a];
+        }
+        fitness[slot] = sol.fitness;
+        
+    }
+    
+    /**
+     * Copy the solution in a slot into a SearchSolution of nvar variables,
+     * whose arrays are overwritten (and its spectrum rebuilt, if it has one).
+     *
+     * @param slot  the slot
+     * @param sol   the solution receiving the truth table, the Walsh
+     *              transform and the fitness
+     */
+    public void get(int slot, SearchSolution sol) {
+        
+        int tbase = slot*words;
+        int sbase = slot*length;
+        
+        for(int x=0; x<length; x++) {
+            sol.function[x] = ((tables[tbase+(x >>> 6)] >>> (x & 63)) & 1L) != 0;
+            sol.walsht[x] = spectra[sbase+x];
+        }
+        sol.fitness = fitness[slot];
+        sol.nvar = nvar;
+        if(sol.spectrum != null) {
+            sol.initSpectrum();
+        }
+        
+    }
+    
+    /**
+     * Copy the solution in a slot to another slot.
+     *
+     * @param from  the source slot
+     * @param to    the destination slot
+     */
+    public void copy(int from, int to) {
+        
+        System.arraycopy(tables, from*words, tables, to*words, words);
+        System.arraycopy(spectra, from*length, spectra, to*length, length);
+        fitness[to] = fitness[from];
+        
+    }
+    
+    /**
+     * Swap two bit positions y,z in the truth table of the solution in a slot,
+     * updating its Walsh transform in place as in
+     * LocalSearchTools.swapInPlace(), and its fitness.
+     *
+     * @param slot  the slot
+     * @param y     position of the first bit to swap
+     * @param z     position of the second bit to swap
+     * @return      the new fitness of the solution
+     */
+    public double swap(int slot, int y, int z) {
+        
+        boolean fy = getBit(slot, y);
+        boolean fz = getBit(slot, z);
+        if(fy == fz) {
+            return fitness[slot];
+        }
+        
+        //Term (-1)^f(z) - (-1)^f(y), constant for all coefficients
+        int deltaf = (fz ? -1 : 1) - (fy ? -1 : 1);
+        int sbase = slot*length;
+        int sprad = 0;
+        for(int a=0; a<length; a++) {
+            int ay = Integer.bitCount(a & y) & 1;
+            int az = Integer.bitCount(a & z) & 1;
+            if(ay != az) {
+                spectra[sbase+a] += deltaf*(2 - 4*ay);
+            }
+            sprad = Math.max(sprad, Math.abs(spectra[sbase+a]));
+        }
+        
+        flipBit(slot, y);
+        flipBit(slot, z);
+        
+        return updateFitness(slot, sprad);
+        
+    }
+    
+    /**
+     * Flip a bit position y in the truth table of the solution in a slot,
+     * updating its Walsh transform in place as in
+     * LocalSearchTools.flipInPlace(), and its fitness.
+     *
+     * @param slot  the slot
+     * @param y     position of the bit to flip
+     * @return      the new fitness of the solution
+     */
+    public double flip(int slot, int y) {
+        
+        //Term -2 * (-1)^f(y), constant for all coefficients
+        int deltaf = getBit(slot, y) ? 2 : -2;
+        int sbase = slot*length;
+        int sprad = 0;
+        for(int a=0; a<length; a++) {
+            int ay = Integer.bitCount(a & y) & 1;
+            spectra[sbase+a] += deltaf*(1 - 2*ay);
+            sprad = Math.max(sprad, Math.abs(spectra[sbase+a]));
+        }
+        
+        flipBit(slot, y);
+        
+        return updateFitness(slot, sprad);
+        
+    }
+    
+    private double updateFitness(int slot, int sprad) {
+        
+        int nl = BoolTransf.calcNL(sprad, nvar);
+        fitness[slot] = unbal ? nl - Math.abs(spectra[slot*length]) : nl;
+        
+        return fitness[slot];
+        
+    }
+    
+    private void flipBit(int slot, int x) {
+        
+        tables[slot*words + (x >>> 6)] ^= 1L << (x & 63);
+        
+    }
+    
+    /**
+     * Return a bit of the truth table of the solution in a slot.
+     *
+     * @param slot  the slot
+     * @param x     the position in the truth table
+     * @return      the value f(x)
+     */
+    public boolean getBit(int slot, int x) {
+        
+        return ((tables[slot*words + (x >>> 6)] >>> (x & 63)) & 1L) != 0;
+        
+    }
+    
+    /**
+     * Return the Hamming distance between the truth tables of the solutions
+     * in two slots, counted on the packed words.
+     *
+     * @param slot1 the first slot
+     * @param slot2 the second slot
+     * @return      the number of positions where the truth tables differ
+     */
+    public int getDistance(int slot1, int slot2) {
+        
+        int base1 = slot1*words;
+        int base2 = slot2*words;
+        int dist = 0;
+        for(int w=0; w<words; w++) {
+            dist += Long.bitCount(tables[base1+w] ^ tables[base2+w]);
+        }
+        
+        return dist;
+        
+    }
+    
+    /**
+     * Return a Walsh coefficient of the solution in a slot.
+     *
+     * @param slot  the slot
+     * @param a     the index of the coefficient
+     * @return      the coefficient W(a)
+     */
+    public int getCoefficient(int slot, int a) {
+        
+        return spectra[slot*length + a];
+        
+    }
+    
+    /**
+     * Return the fitness of the solution in a slot.
+     *
+     * @param slot  the slot
+     * @return      the fitness value
+     */
+    public double getFitness(int slot) {
+        
+        return fitness[slot];
+        
+    }
+    
+    /**
+     * Return the number of variables of the stored functions.
+     *
+     * @return  the number of variables
+     */
+    public int getNvar() {
+        
+        return nvar;
+        
+    }
+    
+    /**
+     * Return the number of slots of the store.
+     *
+     * @return  the capacity
+     */
+    public int getCapacity() {
+        
+        return fitness.length;
+        
+    }
+    
+}
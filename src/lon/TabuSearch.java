@@ -0,0 +1,260 @@
+package lon;
+
+/**
+ * Class implementing a tabu search for balanced Boolean functions with high
+ * nonlinearity, over the neighbourhood of the swaps of a 1 and a 0 in the
+ * truth table.
+ *
+ * All the Walsh coefficients of a function are congruent modulo 4, and a swap
+ * changes each of them by 0 or +-4. Hence the spectral radius of a neighbour
+ * is R+4, R or R-4, and it depends only on the coefficients at the three
+ * levels R, R-4 and R-8. At each iteration these coefficients are listed,
+ * and each position x of the truth table gets a bitmask of the scalar
+ * products a.x over the list; a swap is then evaluated with a few word
+ * operations on the masks of its two positions, without changing the
+ * current solution. The Walsh transform and the spectrum of the solution are
+ * updated in place only for the chosen move.
+ *
+ * Since many swaps have the same nonlinearity, a move is scored by its
+ * nonlinearity and, among the moves with the same nonlinearity, by the number
+ * of coefficients at the spectral radius (the fewer, the better). After a
+ * move, the two swapped positions are tabu for a number of iterations (the
+ * tenure); a tabu move is allowed anyway if it improves the best nonlinearity
+ * found (aspiration).
+ *
+ */
+
+import boolfun.*;
+import java.util.Arrays;
+import java.util.Random;
+
+public class TabuSearch {
+    
+    /**
+     * Run a tabu search from a solution.
+     *
+     * @param sol           the starting solution, which is modified in place
+     *                      (it holds the last current solution at the end)
+     * @param iterations    maximum number of moves
+     * @param tenure        number of iterations a swapped position stays tabu
+     * @param pruned        flag specifying whether to evaluate only the swaps
+     *                      that lower the magnitude of a coefficient at the
+     *                      spectral radius, chosen at random at each iteration
+     * @param budget        maximum number of evaluated neighbours (0: no limit)
+     * @param genrand       random number generator
+     * @return              the best solution found, with the number of
+     *                      evaluated neighbours in its field eval
+     */
+    public static SearchSolution tabuSearch(SearchSolution sol, int iterations,
+            int tenure, boolean pruned, int budget, Random genrand) {
+        
+        if(sol.spectrum == null) {
+            sol.initSpectrum();
+        }
+        int n = sol.function.length;
+        SearchSolution best = new SearchSolution(sol.function, sol.walsht,
+                sol.fitness, sol.nvar);
+        
+        //tabu[x] is the first iteration at which position x is not tabu
+        int[] tabu = new int[n];
+        int[] ones = new int[n];
+        int[] zeros = new int[n];
+        int[] high = new int[n];
+        int maxwords = (n+63) >>> 6;
+        long[] masks = new long[maxwords*n];
+        long[] levels = new long[3*maxwords];
+        long[] signs = new long[maxwords];
+        long[] nulls = new long[maxwords];
+        int eval = 0;
+        
+        for(int it=0; it<iterations && (budget == 0 || eval < budget); it++) {
+            
+            //Step 1: collect the positions of the 1s and of the 0s (only
+            //those agreeing in sign with a maximum coefficient, if pruned)
+            int target = pruned ? pickMaxCoeff(sol, genrand) : -1;
+            int nones = 0;
+            int nzeros = 0;
+            for(int x=0; x<n; x++) {
+                if(target >= 0 && !agrees(sol, target, x)) {
+                    continue;
+                }
+                if(sol.function[x]) {
+                    ones[nones] = x;
+                    nones++;
+                } else {
+                    zeros[nzeros] = x;
+                    nzeros++;
+                }
+            }
+            
+            //Step 2: list the coefficients at the levels R, R-4 and R-8, with
+            //their level, sign and null masks, and the masks of the scalar
+            //products of the positions with them
+            int sprad = sol.getSpectralRadius();
+            int nhigh = 0;
+            for(int a=0; a<n; a++) {
+                if(Math.abs(sol.walsht[a]) >= sprad-8) {
+                    high[nhigh] = a;
+                    nhigh++;
+                }
+            }
+            int words = (nhigh+63) >>> 6;
+            Arrays.fill(levels, 0L);
+            Arrays.fill(signs, 0L);
+            Arrays.fill(nulls, 0L);
+            for(int h=0; h<nhigh; h++) {
+                int w = sol.walsht[high[h]];
+                long bit = 1L << (h & 63);
+                levels[((sprad-Math.abs(w)) >>> 2)*maxwords + (h >>> 6)] |= bit;
+                if(w > 0) {
+                    signs[h >>> 6] |= bit;
+                } else if(w == 0) {
+                    nulls[h >>> 6] |= bit;
+                }
+            }
+            fillMasks(ones, nones, high, nhigh, masks, words, maxwords);
+            fillMasks(zeros, nzeros, high, nhigh, masks, words, maxwords);
+            
+            //Step 3: evaluate the swaps and keep the best admissible one
+            int movey = -1;
+            int movez = -1;
+            double movefit = Double.NEGATIVE_INFINITY;
+            int movecount = Integer.MAX_VALUE;
+            
+            for(int i=0; i<nones && (budget == 0 || eval < budget); i++) {
+                for(int j=0; j<nzeros && (budget == 0 || eval < budget); j++) {
+                    
+                    int y = ones[i];
+                    int z = zeros[j];
+                    int up = 0;
+                    int same = 0;
+                    int down = 0;
+                    for(int k=0; k<words; k++) {
+                        
+                        //W(a) changes iff a.y != a.z, and since f(y) = 1 its
+                        //magnitude decreases iff a.y = 1 when W(a) > 0 and
+                        //a.y = 0 when W(a) < 0 (a null coefficient can only grow)
+                        long my = masks[y*maxwords + k];
+                        long changed = my ^ masks[z*maxwords + k];
+                        long dec = changed & ~(my ^ signs[k]) & ~nulls[k];
+                        long inc = changed & ~dec;
+                        long l0 = levels[k];
+                        long l1 = levels[maxwords + k];
+                        long l2 = levels[2*maxwords + k];
+                        up += Long.bitCount(l0 & inc);
+                        same += Long.bitCount(l0 & ~dec) + Long.bitCount(l1 & inc);
+                        down += Long.bitCount(l0 & dec) + Long.bitCount(l1 & ~changed)
+                                + Long.bitCount(l2 & inc);
+                        
+                    }
+                    eval++;
+                    
+                    //The new radius is the highest level still occupied
+                    int upsprad;
+                    int count;
+                    if(up > 0) {
+                        upsprad = sprad+4;
+                        count = up;
+                    } else if(same > 0) {
+                        upsprad = sprad;
+                        count = same;
+                    } else {
+                        upsprad = sprad-4;
+                        count = down;
+                    }
+                    double fit = BoolTransf.calcNL(upsprad, sol.nvar);
+                    
+                    boolean admissible = (tabu[y] <= it && tabu[z] <= it)
+                            || fit > best.fitness;
+                    if(admissible && (fit > movefit
+                            || (fit == movefit && count < movecount))) {
+                        movey = y;
+                        movez = z;
+                        movefit = fit;
+                        movecount = count;
+                    }
+                    
+                }
+            }
+            
+            //All moves are tabu (or the budget is over)
+            if(movey < 0) {
+                break;
+            }
+            
+            //Step 4: apply the move and make its positions tabu
+            LocalSearchTools.swapInPlace(sol, movey, movez);
+            sol.fitness = movefit;
+            tabu[movey] = it + 1 + tenure;
+            tabu[movez] = it + 1 + tenure;
+            
+            if(sol.fitness > best.fitness) {
+                best.updateFunction(sol.function, sol.walsht, sol.fitness);
+            }
+            
+        }
+        
+        best.eval = eval;
+        return best;
+        
+    }
+    
+    /**
+     * Compute, for each listed position x, the bitmask of the scalar products
+     * a.x over the listed coefficients a.
+     */
+    private static void fillMasks(int[] positions, int npos, int[] high,
+            int nhigh, long[] masks, int words, int maxwords) {
+        
+        for(int p=0; p<npos; p++) {
+            
+            int x = positions[p];
+            int base = x*maxwords;
+            for(int k=0; k<words; k++) {
+                masks[base+k] = 0L;
+            }
+            for(int h=0; h<nhigh; h++) {
+                if((Integer.bitCount(high[h] & x) & 1) == 1) {
+                    masks[base + (h >>> 6)] |= 1L << (h & 63);
+                }
+            }
+            
+        }
+        
+    }
+    
+    /**
+     * Choose at random one of the coefficients at the spectral radius.
+     */
+    private static int pickMaxCoeff(SearchSolution sol, Random genrand) {
+        
+        int sprad = sol.getSpectralRadius();
+        int k = genrand.nextInt(sol.spectrum[sprad]);
+        for(int a=0; a<sol.walsht.length; a++) {
+            if(Math.abs(sol.walsht[a]) == sprad) {
+                if(k == 0) {
+                    return a;
+                }
+                k--;
+            }
+        }
+        
+        return 0;
+        
+    }
+    
+    /**
+     * Check whether the term (-1)^(f(x) XOR a.x) of W(a) has the sign of W(a),
+     * i.e. whether swapping x with a position of the other value (agreeing as
+     * well) lowers |W(a)| (see LocalSearchTools.genPrunedSwaps()).
+     */
+    private static boolean agrees(SearchSolution sol, int a, int x) {
+        
+        int fx = sol.function[x] ? 1 : 0;
+        boolean positive = ((fx ^ Integer.bitCount(a & x)) & 1) == 0;
+        
+        return positive == (sol.walsht[a] > 0);
+        
+    }
+    
+}
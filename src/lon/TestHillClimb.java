@@ -15,9 +15,9 @@ public class TestHillClimb {
     
     public static void main(String[] args) {
         
-        if(args.length != 2) {
+        if(args.length != 2 && args.length != 3) {
             
-            System.err.println("Usage: java lon.TestHillClimb nvar runs"); 
+            System.err.println("Usage: java lon.TestHillClimb nvar runs [pruned]"); 
             System.exit(1);
             
         }
@@ -25,6 +25,7 @@ public class TestHillClimb {
         int nvar = Integer.parseInt(args[0]);
         int tlength = (int)Math.pow(2,nvar);
         int runs = Integer.parseInt(args[1]);
+        boolean pruned = (args.length == 3) && Boolean.parseBoolean(args[2]);
         Random genrand = new Random();
         
         System.out.println("");
@@ -36,7 +37,12 @@ public class TestHillClimb {
             double infit = FitnessFunctions.compFitnessBF(infunc, nvar, false);
             int[] walsht = BinTools.bin2Pol(infunc);
             BoolTransf.calcFWT(walsht, 0, tlength);
-            SearchSolution locopt = LocalSearchTools.hillClimb(infunc, infit, walsht, nvar);
+            SearchSolution locopt;
+            if(pruned) {
+                locopt = LocalSearchTools.hillClimbPruned(infunc, infit, walsht, nvar);
+            } else {
+                locopt = LocalSearchTools.hillClimb(infunc, infit, walsht, nvar);
+            }
             BigInteger declocopt = BinTools.bin2DecBig(locopt.function);
             System.out.println("Run "+i+"; Initial Solution: "+decinfunc+
                     " ; Init Fitness: "+infit+" ; Local Optimum: "+declocopt+" ; Final Fitness: "+locopt.fitness);
@@ -0,0 +1,103 @@
+package lon;
+
+/**
+ *
+ * Class to test the swaps and flips applied in place by SolutionStore: after
+ * each move, the stored Walsh transform and fitness are compared with those
+ * of the full transform (BoolTransf.calcFWT()) of the stored truth table.
+ *
+ */
+
+import boolfun.*;
+import genalg.*;
+import java.util.Arrays;
+import java.util.Random;
+
+public class TestSolutionStore {
+    
+    public static void main(String[] args) {
+        
+        if(args.length != 2 && args.length != 3) {
+            
+            System.err.println("Usage: java lon.TestSolutionStore nvar moves [seed]");
+            System.exit(1);
+            
+        }
+        
+        int nvar = Integer.parseInt(args[0]);
+        int tlength = (int)Math.pow(2,nvar);
+        int moves = Integer.parseInt(args[1]);
+        Random genrand;
+        if(args.length == 3) {
+            genrand = new Random(Long.parseLong(args[2]));
+        } else {
+            genrand = new Random();
+        }
+        
+        //Swaps on a balanced function and flips on an unbalanced one, each in
+        //a store with the matching fitness: slot 0 holds the moved solution,
+        //slot 1 the starting one
+        SolutionStore balstore = new SolutionStore(nvar, 2, false);
+        SolutionStore unbstore = new SolutionStore(nvar, 2, true);
+        boolean[] balfunc = CombTools.genBalancedBinaryString(genrand, tlength);
+        boolean[] unbfunc = CombTools.genUnbalancedBinaryString(genrand, tlength);
+        balstore.set(0, FitnessFunctions.compFitnessBF_SS(balfunc, nvar, false));
+        balstore.set(1, FitnessFunctions.compFitnessBF_SS(balfunc, nvar, false));
+        unbstore.set(0, FitnessFunctions.compFitnessBF_SS(unbfunc, nvar, true));
+        unbstore.set(1, FitnessFunctions.compFitnessBF_SS(unbfunc, nvar, true));
+        
+        SearchSolution sol = new SearchSolution(nvar);
+        int errors = 0;
+        
+        for(int m=1; m<=moves; m++) {
+            
+            int y = genrand.nextInt(tlength);
+            int z = genrand.nextInt(tlength);
+            double swapfit = balstore.swap(0, y, z);
+            double flipfit = unbstore.flip(0, y);
+            
+            errors += check(balstore, sol, nvar, false, swapfit, "swap", m);
+            errors += check(unbstore, sol, nvar, true, flipfit, "flip", m);
+            
+        }
+        
+        System.out.println("Moves: "+moves+" ; Errors: "+errors);
+        
+    }
+    
+    /**
+     * Compare the solution in slot 0 of a store with its full transform, and
+     * its distance from the starting solution in slot 1 with the Hamming
+     * distance of the truth tables, returning the number of mismatches.
+     */
+    private static int check(SolutionStore store, SearchSolution sol, int nvar,
+            boolean unbal, double movefit, String move, int m) {
+        
+        int errors = 0;
+        
+        store.get(1, sol);
+        boolean[] start = Arrays.copyOf(sol.function, sol.function.length);
+        store.get(0, sol);
+        
+        int[] walsht = BinTools.bin2Pol(sol.function);
+        BoolTransf.calcFWT(walsht, 0, walsht.length);
+        double fitness = FitnessFunctions.compFitnessBF(sol.function, nvar, unbal);
+        
+        if(!Arrays.equals(walsht, sol.walsht)) {
+            System.out.println("Move "+m+" ("+move+"): the Walsh transform differs from calcFWT()");
+            errors++;
+        }
+        if(fitness != movefit || fitness != store.getFitness(0)) {
+            System.out.println("Move "+m+" ("+move+"): fitness "+movefit+" instead of "+fitness);
+            errors++;
+        }
+        if(store.getDistance(0, 1) != BinTools.computeHD(start, sol.function)) {
+            System.out.println("Move "+m+" ("+move+"): wrong distance from the starting solution");
+            errors++;
+        }
+        
+        return errors;
+        
+    }
+    
+}
@@ -0,0 +1,53 @@
+package lon;
+
+/**
+ *
+ * Class to test the tabu search for Boolean functions.
+ *
+ */
+
+import boolfun.*;
+import genalg.*;
+import java.util.Random;
+import java.math.BigInteger;
+
+public class TestTabuSearch {
+    
+    public static void main(String[] args) {
+        
+        if(args.length != 6) {
+            
+            System.err.println("Usage: java lon.TestTabuSearch nvar runs iterations tenure pruned seed");
+            System.exit(1);
+            
+        }
+        
+        int nvar = Integer.parseInt(args[0]);
+        int tlength = (int)Math.pow(2,nvar);
+        int runs = Integer.parseInt(args[1]);
+        int iterations = Integer.parseInt(args[2]);
+        int tenure = Integer.parseInt(args[3]);
+        boolean pruned = Boolean.parseBoolean(args[4]);
+        Random genrand = new Random(Long.parseLong(args[5]));
+        
+        System.out.println("");
+        
+        for(int i=1; i<=runs; i++) {
+            
+            boolean[] infunc = CombTools.genBalancedBinaryString(genrand, tlength);
+            SearchSolution start = FitnessFunctions.compFitnessBF_SS(infunc, nvar, false);
+            double infit = start.fitness;
+            long time = System.nanoTime();
+            SearchSolution best = TabuSearch.tabuSearch(start, iterations, tenure,
+                    pruned, 0, genrand);
+            time = System.nanoTime() - time;
+            BigInteger decbest = BinTools.bin2DecBig(best.function);
+            System.out.println("Run "+i+"; Init Fitness: "+infit+" ; Best Solution: "+decbest+
+                    " ; Final Fitness: "+best.fitness+" ; Evaluations: "+best.eval+
+                    " ; Time (ms): "+(time/1000000));
+            
+        }
+        
+    }
+    
+}
@@ -0,0 +1,56 @@
+package lon;
+
+/**
+ *
+ * Class to compute the Walsh transform of a large boolean function out of
+ * core (see boolfun.MappedFWT), and print its spectral radius,
+ * nonlinearity, unbalancedness and bent-style fitness. The transform is kept
+ * in a file of 2^nvar little-endian 32-bit integers.
+ *
+ */
+
+import boolfun.*;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class TransformLargeBF {
+    
+    public static void main(String[] args) throws IOException {
+        
+        if(args.length < 3 || args.length > 5) {
+            
+            System.err.println("Usage: java lon.TransformLargeBF nvar tablefile spectrumfile [window [unbal]]");
+            System.err.println("\nwhere:");
+            System.err.println("- nvar is the number of variables of the boolean function (at most 30)");
+            System.err.println("- tablefile is the truth table, packed 8 entries per byte (entry x is the bit x%8 of the byte x/8)");
+            System.err.println("- spectrumfile is the file where the Walsh transform is written");
+            System.err.println("- window is the base 2 logarithm of the number of entries kept in memory (default 24)");
+            System.err.println("- unbal is a boolean flag specifying whether W(0) is included in the bent-style fitness (default false)\n");
+            System.exit(1);
+            
+        }
+        
+        int nvar = Integer.parseInt(args[0]);
+        int window = 24;
+        boolean unbal = false;
+        if(args.length >= 4) {
+            window = Integer.parseInt(args[3]);
+        }
+        if(args.length == 5) {
+            unbal = Boolean.parseBoolean(args[4]);
+        }
+        
+        long time = System.nanoTime();
+        MappedFWT fwt = new MappedFWT(Paths.get(args[2]), nvar, window);
+        fwt.transform(Paths.get(args[1]), unbal);
+        time = System.nanoTime() - time;
+        
+        System.out.println("Spectral radius: "+fwt.getSpectralRadius());
+        System.out.println("Nonlinearity: "+fwt.getNonlinearity());
+        System.out.println("Unbalancedness: "+Math.abs(fwt.getCoefficient(0)));
+        System.out.println("Bent-style fitness: "+fwt.getBentFitness());
+        System.out.println("Time (ms): "+(time/1000000));
+        
+    }
+    
+}
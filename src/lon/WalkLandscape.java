@@ -0,0 +1,137 @@
+package lon;
+
+/**
+ *
+ * Class to run random walks on the fitness landscape of the Boolean functions
+ * of nvar variables (see RandomWalk). The statistics of each walk are appended
+ * as a row of tab-separated values to a CSV file without header, as the
+ * all_results.csv files of the experiments, so that they can be put side by
+ * side with the results of the GAs. The columns are: nvar, move, steps, mean
+ * fitness, standard deviation of the fitness, r(1), correlation length, ratio
+ * of neutral steps, H(eps), M(eps), h(eps). The autocorrelation averaged over
+ * the walks is printed for all the lags.
+ *
+ */
+
+import boolfun.*;
+import genalg.*;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class WalkLandscape {
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        
+        if(args.length != 9) {
+            
+            System.err.println("Usage: java lon.WalkLandscape nvar move steps maxlag eps walks threads seed csvfile");
+            System.err.println("\nwhere:");
+            System.err.println("- nvar is the number of variables of the boolean functions");
+            System.err.println("- move is the move of the walks (0: swaps of balanced functions, 1: flips of unbalanced functions)");
+            System.err.println("- steps is the number of steps of each walk");
+            System.err.println("- maxlag is the maximum lag of the autocorrelation");
+            System.err.println("- eps is the threshold of the information content measures");
+            System.err.println("- walks is the number of walks, each from a random function");
+            System.err.println("- threads is the number of threads (0: all available processors)");
+            System.err.println("- seed is the initial seed for the random number generator, read as a long variable");
+            System.err.println("- csvfile is the file where the rows of the walks are appended\n");
+            System.exit(1);
+            
+        }
+        
+        int nvar = Integer.parseInt(args[0]);
+        int move = Integer.parseInt(args[1]);
+        long steps = Long.parseLong(args[2]);
+        int maxlag = Integer.parseInt(args[3]);
+        double eps = Double.parseDouble(args[4]);
+        int walks = Integer.parseInt(args[5]);
+        int threads = Integer.parseInt(args[6]);
+        long seed = Long.parseLong(args[7]);
+        String csvfile = args[8];
+        if(threads == 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        
+        //Each walk draws from a generator seeded by the seed and its index, so
+        //that the rows do not depend on the number of threads
+        RandomWalk[] results = new RandomWalk[walks];
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        
+        long time = System.nanoTime();
+        for(int t=0; t<threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    for(int w=next.getAndIncrement(); w<walks && failure.get() == null;
+                            w=next.getAndIncrement()) {
+                        Random genrand = new Random(seed + w);
+                        boolean[] function;
+                        if(move == RandomWalk.SWAP) {
+                            function = CombTools.genBalancedBinaryString(genrand, 1 << nvar);
+                        } else {
+                            function = CombTools.genUnbalancedBinaryString(genrand, 1 << nvar);
+                        }
+                        SearchSolution sol = FitnessFunctions.compFitnessBF_SS(function, nvar, move == RandomWalk.FLIP);
+                        RandomWalk walk = new RandomWalk(sol, move, maxlag, eps);
+                        walk.walk(steps, genrand);
+                        results[w] = walk;
+                    }
+                } catch(RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "random-walk-"+t);
+            workers[t].start();
+        }
+        for(int t=0; t<threads; t++) {
+            workers[t].join();
+        }
+        if(failure.get() != null) {
+            throw failure.get();
+        }
+        time = System.nanoTime() - time;
+        
+        try(PrintWriter out = new PrintWriter(new FileWriter(csvfile, true))) {
+            for(int w=0; w<walks; w++) {
+                RandomWalk walk = results[w];
+                out.println(nvar+"\t"+move+"\t"+walk.getSteps()+"\t"+walk.getMean()
+                        +"\t"+Math.sqrt(walk.getVariance())+"\t"+walk.getAutocorrelation(1)
+                        +"\t"+walk.getCorrelationLength()+"\t"+walk.getNeutralRatio()
+                        +"\t"+walk.getInformationContent()+"\t"+walk.getPartialInformationContent()
+                        +"\t"+walk.getDensityBasinInformation());
+            }
+        }
+        
+        //Averages over the walks
+        double[] avg = new double[6];
+        for(int w=0; w<walks; w++) {
+            avg[0] += results[w].getMean()/walks;
+            avg[1] += results[w].getCorrelationLength()/walks;
+            avg[2] += results[w].getNeutralRatio()/walks;
+            avg[3] += results[w].getInformationContent()/walks;
+            avg[4] += results[w].getPartialInformationContent()/walks;
+            avg[5] += results[w].getDensityBasinInformation()/walks;
+        }
+        System.out.println("Mean fitness: "+avg[0]);
+        System.out.println("Correlation length: "+avg[1]);
+        System.out.println("Neutral steps: "+avg[2]);
+        System.out.println("Information content H: "+avg[3]);
+        System.out.println("Partial information content M: "+avg[4]);
+        System.out.println("Density-basin information h: "+avg[5]);
+        System.out.println("Autocorrelation:");
+        for(int k=1; k<=maxlag; k++) {
+            double r = 0.0;
+            for(int w=0; w<walks; w++) {
+                r += results[w].getAutocorrelation(k)/walks;
+            }
+            System.out.println(k+"\t"+r);
+        }
+        System.out.println("Time (ms): "+(time/1000000));
+        
+    }
+    
+}
@@ -155,6 +155,28 @@ public class OrthogonalArrayTools {
      */
     public static double calcDistMatrix(int[][] matrix, int s, int t, int lambda, int p) {
         
+        return calcDistMatrix(matrix, s, t, lambda, p, Double.POSITIVE_INFINITY);
+        
+    }
+    
+    /**
+     * Same as calcDistMatrix(), but the computation stops as soon as the sum
+     * of the distances of the submatrices examined so far reaches a cutoff.
+     * Since the distances are non-negative, the partial sum is a lower bound
+     * of the distance of the whole matrix.
+     * 
+     * @param matrix
+     * @param s
+     * @param t
+     * @param lambda
+     * @param p
+     * @param cutoff    the value at which the computation stops
+     * @return          the distance of the matrix if it is lower than the
+     *                  cutoff, otherwise a partial distance >= cutoff
+     */
+    public static double calcDistMatrix(int[][] matrix, int s, int t, int lambda,
+            int p, double cutoff) {
+        
         double dist = 0;
         int k = matrix[0].length;   //Number of columns
         int[] submatrices = CombTools.genBinCombs(k-t, t);
@@ -167,6 +189,9 @@ public class OrthogonalArrayTools {
             double subdist = calcDistSubmatrix(submatrix, s, lambda, p);
             
             dist += subdist;
+            if(dist >= cutoff) {
+                break;
+            }
             
         }
         